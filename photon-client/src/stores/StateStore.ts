@@ -4,6 +4,7 @@ import type { AutoReconnectingWebsocket } from "@/lib/AutoReconnectingWebsocket"
 import type { MultitagResult, PipelineResult } from "@/types/PhotonTrackingTypes";
 import type {
   WebsocketCalibrationData,
+  WebsocketCalibrationProgress,
   WebsocketLogMessage,
   WebsocketNTUpdate,
   WebsocketPipelineResultUpdate
@@ -35,6 +36,7 @@ interface StateStore {
     minimumImageCount: number;
     hasEnoughImages: boolean;
   };
+  calibrationProgress: WebsocketCalibrationProgress;
 
   snackbarData: {
     show: boolean;
@@ -70,6 +72,10 @@ export const useStateStore = defineStore("state", {
         minimumImageCount: 12,
         hasEnoughImages: false
       },
+      calibrationProgress: {
+        stage: "",
+        progress: 0
+      },
 
       snackbarData: {
         show: false,
@@ -107,10 +113,12 @@ export const useStateStore = defineStore("state", {
       };
     },
     updateBackendResultsFromWebsocket(data: WebsocketPipelineResultUpdate) {
-      this.backendResults = {
-        ...this.backendResults,
-        ...data
-      };
+      // The backend only sends the fields that changed since its last update, so merge them into what we have
+      const merged = { ...this.backendResults };
+      for (const key in data) {
+        merged[key] = { ...merged[key], ...data[key] } as PipelineResult;
+      }
+      this.backendResults = merged;
 
       for (const key in data) {
         const multitagRes = data[key].multitagResult;
@@ -135,6 +143,12 @@ export const useStateStore = defineStore("state", {
         hasEnoughImages: data.hasEnough
       };
     },
+    updateCalibrationProgressFromWebsocket(data: WebsocketCalibrationProgress) {
+      this.calibrationProgress = {
+        stage: data.stage,
+        progress: data.progress
+      };
+    },
     showSnackbarMessage(data: { message: string; color: string; timeout?: number }) {
       this.snackbarData = {
         show: true,
@@ -113,6 +113,7 @@ export const useCameraSettingsStore = defineStore("cameraSettings", {
         isCSICamera: d.isCSICamera,
         minExposureRaw: d.minExposureRaw,
         maxExposureRaw: d.maxExposureRaw,
+        isRecording: d.isRecording,
         pipelineNicknames: d.pipelineNicknames,
         currentPipelineIndex: d.currentPipelineIndex,
         pipelineSettings: d.currentPipelineSettings,
@@ -318,6 +319,20 @@ export const useCameraSettingsStore = defineStore("cameraSettings", {
       }
       return axios.post("/settings/camera/setNickname", payload);
     },
+    /**
+     * Start or stop recording every frame the provided camera processes to disk.
+     *
+     * @param enabled whether the camera should be recording.
+     * @param cameraIndex the index of the camera.
+     * @return HTTP request promise to the backend
+     */
+    setCameraRecording(enabled: boolean, cameraIndex: number = useStateStore().currentCameraIndex) {
+      const payload = {
+        enabled: enabled,
+        cameraIndex: cameraIndex
+      };
+      return axios.post("/settings/camera/setRecording", payload);
+    },
     /**
      * Start the 3D calibration process for the provided camera.
      *
@@ -70,8 +70,20 @@ export interface PipelineResult {
   fps: number;
   latency: number;
   targets: PhotonTarget[];
-  // undefined if multitag failed or non-tag pipeline
-  multitagResult?: MultitagResult;
+  // undefined or null if multitag failed or non-tag pipeline
+  multitagResult?: MultitagResult | null;
   // Object detection class names -- empty if not doing object detection
   classNames: string[];
+  // Frames captured but dropped because processing fell behind, when capture is pipelined
+  captureDroppedFrames?: number;
+  // Frames the stream thread skipped because it was still busy with an earlier one
+  streamDroppedFrames?: number;
+  // Average time spent publishing one result to NetworkTables
+  ntPublishMicros?: number;
+  // How many NetworkTables fields the last result changed
+  ntFieldsWritten?: number;
+  // Snapshot writer counts, shared by every camera
+  snapshotsWritten?: number;
+  snapshotsDropped?: number;
+  snapshotsFailed?: number;
 }
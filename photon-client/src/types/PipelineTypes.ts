@@ -214,6 +214,11 @@ export interface AprilTagPipelineSettings extends PipelineSettings {
   tagFamily: AprilTagFamily;
   doMultiTarget: boolean;
   doSingleTargetAlways: boolean;
+  roiTracking: boolean;
+  roiPadding: number;
+  roiFullScanInterval: number;
+  adaptiveDecimation: boolean;
+  adaptiveMaxDecimate: number;
 }
 export type ConfigurableAprilTagPipelineSettings = Partial<
   Omit<AprilTagPipelineSettings, "pipelineType" | "hammingDist" | "debug">
@@ -238,7 +243,12 @@ export const DefaultAprilTagPipelineSettings: AprilTagPipelineSettings = {
   threads: 4,
   tagFamily: AprilTagFamily.Family36h11,
   doMultiTarget: false,
-  doSingleTargetAlways: false
+  doSingleTargetAlways: false,
+  roiTracking: false,
+  roiPadding: 0.5,
+  roiFullScanInterval: 10,
+  adaptiveDecimation: false,
+  adaptiveMaxDecimate: 4
 };
 
 export interface ArucoPipelineSettings extends PipelineSettings {
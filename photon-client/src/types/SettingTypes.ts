@@ -197,6 +197,7 @@ export interface CameraSettings {
   availableModels?: string[];
   minExposureRaw: number;
   maxExposureRaw: number;
+  isRecording: boolean;
 }
 
 export interface CameraSettingsChangeRequest {
@@ -298,7 +299,8 @@ export const PlaceholderCameraSettings: CameraSettings = {
   },
   isCSICamera: false,
   minExposureRaw: 1,
-  maxExposureRaw: 100
+  maxExposureRaw: 100,
+  isRecording: false
 };
 
 export enum CalibrationBoardTypes {
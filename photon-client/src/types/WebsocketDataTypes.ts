@@ -61,6 +61,7 @@ export interface WebsocketCameraSettingsUpdate {
   availableModels?: string[];
   minExposureRaw: number;
   maxExposureRaw: number;
+  isRecording: boolean;
 }
 export interface WebsocketNTUpdate {
   connected: boolean;
@@ -69,7 +70,7 @@ export interface WebsocketNTUpdate {
 }
 
 // key is the index of the camera, value is that camera's result
-export type WebsocketPipelineResultUpdate = Record<string, PipelineResult>;
+export type WebsocketPipelineResultUpdate = Record<string, Partial<PipelineResult>>;
 
 export interface WebsocketCalibrationData {
   patternWidth: number;
@@ -83,6 +84,11 @@ export interface WebsocketCalibrationData {
   markerSizeIn: number;
 }
 
+export interface WebsocketCalibrationProgress {
+  stage: string;
+  progress: number;
+}
+
 export interface IncomingWebsocketData {
   log?: WebsocketLogMessage;
   settings?: WebsocketSettingsUpdate;
@@ -97,6 +103,7 @@ export interface IncomingWebsocketData {
   mutatePipelineSettings?: Partial<ActivePipelineSettings>;
   cameraIndex?: number; // Sent when mutating pipeline settings to check against currently active
   calibrationData?: WebsocketCalibrationData;
+  calibrationProgress?: WebsocketCalibrationProgress;
 }
 
 export enum WebsocketPipelineType {
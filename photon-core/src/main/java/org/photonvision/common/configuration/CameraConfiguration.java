@@ -29,6 +29,7 @@ import org.photonvision.common.logging.Logger;
 import org.photonvision.vision.calibration.CameraCalibrationCoefficients;
 import org.photonvision.vision.camera.CameraType;
 import org.photonvision.vision.camera.QuirkyCamera;
+import org.photonvision.vision.frame.recording.FrameRecording;
 import org.photonvision.vision.pipeline.CVPipelineSettings;
 import org.photonvision.vision.pipeline.DriverModePipelineSettings;
 import org.photonvision.vision.processes.PipelineManager;
@@ -65,6 +66,39 @@ public class CameraConfiguration {
 
     public int streamIndex = 0; // 0 index means ports [1181, 1182], 1 means [1183, 1184], etc...
 
+    /**
+     * How many captured frames may queue up waiting for the pipeline. 0 captures and processes on a
+     * single thread; anything higher overlaps capture of the next frame with processing.
+     */
+    public int pipelineDepth = 0;
+
+    /** How many times per second pipeline results are sent to the web UI. */
+    public double uiResultRateHz = 10;
+
+    /** The most frames per second sent to each MJPEG stream. 0 or less means no limit. */
+    public double streamMaxFps = 30;
+
+    /** How input and output snapshots are saved. */
+    public SnapshotFormat snapshotFormat = SnapshotFormat.JPEG;
+
+    /** JPEG quality (0-100) or PNG compression level (0-9) for snapshots. */
+    public int snapshotQuality = 95;
+
+    /** Whether every input frame and its result are recorded to disk. */
+    public boolean recordingEnabled = false;
+
+    /** How recorded frames are stored. */
+    public FrameRecording.Encoding recordingEncoding = FrameRecording.Encoding.JPEG;
+
+    /** JPEG quality (0-100) for recorded frames. */
+    public int recordingQuality = 90;
+
+    /** The size at which a recording moves on to a new segment file, in megabytes. */
+    public int recordingSegmentMegabytes = 256;
+
+    /** The most disk space all of this camera's recordings may use together, in megabytes. */
+    public int recordingMaxMegabytes = 4096;
+
     @JsonIgnore // this ignores the pipes as we serialize them to their own subfolder
     public List<CVPipelineSettings> pipelineSettings = new ArrayList<>();
 
@@ -202,6 +236,26 @@ public class CameraConfiguration {
                 + currentPipelineIndex
                 + ", streamIndex="
                 + streamIndex
+                + ", pipelineDepth="
+                + pipelineDepth
+                + ", uiResultRateHz="
+                + uiResultRateHz
+                + ", streamMaxFps="
+                + streamMaxFps
+                + ", snapshotFormat="
+                + snapshotFormat
+                + ", snapshotQuality="
+                + snapshotQuality
+                + ", recordingEnabled="
+                + recordingEnabled
+                + ", recordingEncoding="
+                + recordingEncoding
+                + ", recordingQuality="
+                + recordingQuality
+                + ", recordingSegmentMegabytes="
+                + recordingSegmentMegabytes
+                + ", recordingMaxMegabytes="
+                + recordingMaxMegabytes
                 + ", pipelineSettings="
                 + pipelineSettings
                 + ", driveModeSettings="
@@ -253,6 +253,12 @@ public class ConfigManager {
         return imgFilePath.toPath();
     }
 
+    public Path getRecordingsPath() {
+        var recordingsPath = Path.of(configDirectoryFile.toString(), "recordings").toFile();
+        if (!recordingsPath.exists()) recordingsPath.mkdirs();
+        return recordingsPath.toPath();
+    }
+
     public boolean saveUploadedHardwareConfig(Path uploadPath) {
         return m_provider.saveUploadedHardwareConfig(uploadPath);
     }
@@ -181,5 +181,6 @@ public class PhotonConfiguration {
         public String[] availableModels;
         public double minExposureRaw;
         public double maxExposureRaw;
+        public boolean isRecording;
     }
 }
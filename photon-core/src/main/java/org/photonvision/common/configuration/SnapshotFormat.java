@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) Photon Vision.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.photonvision.common.configuration;
+
+/** The image formats input and output snapshots can be saved in. */
+public enum SnapshotFormat {
+    JPEG(".jpg"),
+    PNG(".png"),
+    /** Uncompressed, so it's the cheapest to write but the biggest on disk. */
+    BMP(".bmp");
+
+    public final String extension;
+
+    SnapshotFormat(String extension) {
+        this.extension = extension;
+    }
+}
@@ -17,9 +17,10 @@
 
 package org.photonvision.common.dataflow;
 
-import java.util.concurrent.BlockingQueue;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.stream.Collectors;
 import org.photonvision.common.dataflow.events.DataChangeEvent;
 import org.photonvision.common.logging.LogGroup;
@@ -39,10 +40,31 @@ public class DataChangeService {
 
     private final CopyOnWriteArrayList<DataChangeSubscriber> subscribers;
 
+    // Subscribers for each [source][destination] pair, rebuilt whenever one is added so that
+    // dispatching doesn't have to check every subscriber's wanted lists for every event
+    private volatile DataChangeSubscriber[][][] routingTable = buildRoutingTable(List.of());
+
     @SuppressWarnings("FieldCanBeLocal")
     private final Thread dispatchThread;
 
-    private final BlockingQueue<DataChangeEvent> eventQueue = new LinkedBlockingQueue<>();
+    private static class QueuedEvent {
+        DataChangeEvent event;
+        final long enqueuedNanos;
+
+        QueuedEvent(DataChangeEvent event, long enqueuedNanos) {
+            this.event = event;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    // Control events are all dispatched in order, ahead of any telemetry. Telemetry is keyed by
+    // coalescing key, so a burst of updates for the same thing only gets dispatched once.
+    private final Object queueLock = new Object();
+    private final ArrayDeque<QueuedEvent> controlQueue = new ArrayDeque<>();
+    private final LinkedHashMap<Object, QueuedEvent> telemetryQueue = new LinkedHashMap<>();
+
+    private long coalescedEventCount = 0;
+    private volatile double averageDispatchLatencyMillis = 0;
 
     private DataChangeService() {
         subscribers = new CopyOnWriteArrayList<>();
@@ -52,18 +74,54 @@ public class DataChangeService {
     }
 
     public boolean hasEvents() {
-        return !eventQueue.isEmpty();
+        return getQueueDepth() > 0;
+    }
+
+    /** How many events are waiting to be dispatched. */
+    public int getQueueDepth() {
+        synchronized (queueLock) {
+            return controlQueue.size() + telemetryQueue.size();
+        }
+    }
+
+    /** How many telemetry events have been merged into a newer one instead of being dispatched. */
+    public long getCoalescedEventCount() {
+        synchronized (queueLock) {
+            return coalescedEventCount;
+        }
+    }
+
+    /** The average time from an event being published to it being dispatched, in milliseconds. */
+    public double getAverageDispatchLatencyMillis() {
+        return averageDispatchLatencyMillis;
+    }
+
+    private QueuedEvent takeNext() throws InterruptedException {
+        synchronized (queueLock) {
+            while (controlQueue.isEmpty() && telemetryQueue.isEmpty()) {
+                queueLock.wait();
+            }
+
+            if (!controlQueue.isEmpty()) return controlQueue.poll();
+
+            var it = telemetryQueue.values().iterator();
+            var next = it.next();
+            it.remove();
+            return next;
+        }
     }
 
     private void dispatchFromQueue() {
         while (true) {
             try {
-                var taken = eventQueue.take();
-                for (var sub : subscribers) {
-                    if (sub.wantedSources.contains(taken.sourceType)
-                            && sub.wantedDestinations.contains(taken.destType)) {
-                        sub.onDataChangeEvent(taken);
-                    }
+                var taken = takeNext();
+
+                double latencyMillis = (System.nanoTime() - taken.enqueuedNanos) / 1e6;
+                averageDispatchLatencyMillis += (latencyMillis - averageDispatchLatencyMillis) * 0.05;
+
+                var event = taken.event;
+                for (var sub : routingTable[event.sourceType.ordinal()][event.destType.ordinal()]) {
+                    sub.onDataChangeEvent(event);
                 }
             } catch (Exception e) {
                 logger.error("Exception when dispatching event!", e);
@@ -72,10 +130,29 @@ public class DataChangeService {
         }
     }
 
+    private static DataChangeSubscriber[][][] buildRoutingTable(List<DataChangeSubscriber> subs) {
+        var sources = DataChangeSource.values();
+        var destinations = DataChangeDestination.values();
+        var table = new DataChangeSubscriber[sources.length][destinations.length][];
+        for (var source : sources) {
+            for (var dest : destinations) {
+                table[source.ordinal()][dest.ordinal()] =
+                        subs.stream()
+                                .filter(
+                                        sub ->
+                                                sub.wantedSources.contains(source)
+                                                        && sub.wantedDestinations.contains(dest))
+                                .toArray(DataChangeSubscriber[]::new);
+            }
+        }
+        return table;
+    }
+
     public void addSubscriber(DataChangeSubscriber subscriber) {
         if (!subscribers.addIfAbsent(subscriber)) {
             logger.warn("Attempted to add already added subscriber!");
         } else {
+            routingTable = buildRoutingTable(subscribers);
             logger.debug(
                     () -> {
                         var sources =
@@ -99,7 +176,22 @@ public class DataChangeService {
     }
 
     public void publishEvent(DataChangeEvent event) {
-        eventQueue.offer(event);
+        var key = event.getCoalescingKey();
+        synchronized (queueLock) {
+            if (key == null) {
+                controlQueue.add(new QueuedEvent(event, System.nanoTime()));
+            } else {
+                var pending = telemetryQueue.get(key);
+                if (pending != null) {
+                    // Keep the older event's place in line (and enqueue time), just with the newer data
+                    pending.event = event.coalesceWith(pending.event);
+                    coalescedEventCount++;
+                } else {
+                    telemetryQueue.put(key, new QueuedEvent(event, System.nanoTime()));
+                }
+            }
+            queueLock.notify();
+        }
     }
 
     public void publishEvents(DataChangeEvent... events) {
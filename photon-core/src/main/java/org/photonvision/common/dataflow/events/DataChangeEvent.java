@@ -37,6 +37,26 @@ public class DataChangeEvent<T> {
         this.data = newValue;
     }
 
+    /**
+     * Events with the same non-null key are telemetry: only the latest state matters, so if a newer
+     * one is published before an older one has been dispatched, they get combined with {@link
+     * #coalesceWith(DataChangeEvent)} and dispatched once. Events with a null key (the default) are
+     * all dispatched, in order, ahead of any telemetry.
+     */
+    public Object getCoalescingKey() {
+        return null;
+    }
+
+    /**
+     * Combine this event with an older, not yet dispatched one with the same coalescing key.
+     *
+     * @param older The event this one is replacing
+     * @return The event to dispatch in place of both. By default the newer event simply wins.
+     */
+    public DataChangeEvent<?> coalesceWith(DataChangeEvent<?> older) {
+        return this;
+    }
+
     @Override
     public String toString() {
         return "DataChangeEvent{"
@@ -19,19 +19,68 @@ package org.photonvision.common.dataflow.events;
 
 import io.javalin.websocket.WsContext;
 import java.util.HashMap;
+import java.util.Map;
 import org.photonvision.common.dataflow.DataChangeDestination;
 import org.photonvision.common.dataflow.DataChangeSource;
 
 public class OutgoingUIEvent<T> extends DataChangeEvent<T> {
     public final WsContext originContext;
 
+    /**
+     * The camera this event is about, if it's only of interest to clients looking at that camera.
+     * Null if every client should get it.
+     */
+    public final Integer cameraIndex;
+
     public OutgoingUIEvent(String propertyName, T newValue) {
         this(propertyName, newValue, null);
     }
 
     public OutgoingUIEvent(String propertyName, T newValue, WsContext originContext) {
+        this(propertyName, newValue, originContext, null);
+    }
+
+    public OutgoingUIEvent(
+            String propertyName, T newValue, WsContext originContext, Integer cameraIndex) {
         super(DataChangeSource.DCS_WEBSOCKET, DataChangeDestination.DCD_UI, propertyName, newValue);
         this.originContext = originContext;
+        this.cameraIndex = cameraIndex;
+    }
+
+    @Override
+    public Object getCoalescingKey() {
+        // Per-camera updates are telemetry, so only the latest one per camera needs to go out
+        return cameraIndex == null ? null : propertyName + "/" + cameraIndex;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public DataChangeEvent<?> coalesceWith(DataChangeEvent<?> older) {
+        // Updates may only hold what's changed since the last one, so rather than dropping the older
+        // update, keep anything it had that this one doesn't
+        if (older.data instanceof Map && data instanceof Map) {
+            var merged = mergeMaps((Map<String, Object>) older.data, (Map<String, Object>) data);
+            return new OutgoingUIEvent<>(propertyName, merged, originContext, cameraIndex);
+        }
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HashMap<String, Object> mergeMaps(
+            Map<String, Object> older, Map<String, Object> newer) {
+        var merged = new HashMap<>(older);
+        for (var entry : newer.entrySet()) {
+            var olderValue = merged.get(entry.getKey());
+            if (olderValue instanceof Map && entry.getValue() instanceof Map) {
+                merged.put(
+                        entry.getKey(),
+                        mergeMaps(
+                                (Map<String, Object>) olderValue, (Map<String, Object>) entry.getValue()));
+            } else {
+                merged.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return merged;
     }
 
     public static OutgoingUIEvent<HashMap<String, Object>> wrappedOf(
@@ -48,4 +97,12 @@ public class OutgoingUIEvent<T> extends DataChangeEvent<T> {
 
         return new OutgoingUIEvent<>(commandName, data, originContext);
     }
+
+    /** Like {@link #wrappedOf(String, Object)}, but only for clients looking at one camera. */
+    public static OutgoingUIEvent<HashMap<String, Object>> wrappedOfCamera(
+            String commandName, Object value, int cameraIndex) {
+        HashMap<String, Object> data = new HashMap<>();
+        data.put(commandName, value);
+        return new OutgoingUIEvent<>(commandName, data, null, cameraIndex);
+    }
 }
@@ -17,9 +17,15 @@
 
 package org.photonvision.common.dataflow.networktables;
 
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerArrayPublisher;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableEvent;
 import edu.wpi.first.util.WPIUtilJNI;
+import java.util.Arrays;
+import java.util.List;
 import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -30,6 +36,8 @@ import org.photonvision.common.logging.Logger;
 import org.photonvision.common.networktables.NTTopicSet;
 import org.photonvision.common.util.math.MathUtils;
 import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.vision.apriltag.AdaptiveDecimation;
+import org.photonvision.vision.calibration.CameraCalibrationCoefficients;
 import org.photonvision.vision.pipeline.result.CVPipelineResult;
 import org.photonvision.vision.target.TrackedTarget;
 
@@ -40,6 +48,33 @@ public class NTDataPublisher implements CVPipelineResultConsumer {
 
     private final NTTopicSet ts = new NTTopicSet();
 
+    // Indices into lastPublishedValues for each field we only publish when it changes
+    private static final int PIPELINE_INDEX = 0;
+    private static final int DRIVER_MODE = 1;
+    private static final int HAS_TARGET = 2;
+    private static final int TARGET_PITCH = 3;
+    private static final int TARGET_YAW = 4;
+    private static final int TARGET_AREA = 5;
+    private static final int TARGET_SKEW = 6;
+    private static final int TARGET_POS_X = 7;
+    private static final int TARGET_POS_Y = 8;
+    private static final int NUM_CACHED_FIELDS = 9;
+
+    private static final Transform3d NO_TARGET_POSE = new Transform3d();
+
+    private final double[] lastPublishedValues = new double[NUM_CACHED_FIELDS];
+    private Transform3d lastTargetPose;
+    private CameraCalibrationCoefficients lastCalibration;
+    private boolean calibrationPublished;
+
+    private volatile double averagePublishMicros = 0;
+    private volatile int lastFieldsWritten = 0;
+
+    // Only created once a pipeline has a trace to publish
+    private IntegerArrayPublisher decimationTraceTimestampsPublisher;
+    private IntegerArrayPublisher decimationTraceDecimationPublisher;
+    private DoubleArrayPublisher decimationTraceDetectMillisPublisher;
+
     NTDataChangeListener pipelineIndexListener;
     private final Supplier<Integer> pipelineIndexSupplier;
     private final Consumer<Integer> pipelineIndexConsumer;
@@ -103,6 +138,7 @@ public class NTDataPublisher implements CVPipelineResultConsumer {
     private void removeEntries() {
         if (pipelineIndexListener != null) pipelineIndexListener.remove();
         if (driverModeListener != null) driverModeListener.remove();
+        removeDecimationTraceEntries();
         ts.removeEntries();
     }
 
@@ -111,6 +147,8 @@ public class NTDataPublisher implements CVPipelineResultConsumer {
         if (driverModeListener != null) driverModeListener.remove();
 
         ts.updateEntries();
+        // New topics need every value sent again
+        resetPublishedValues();
 
         pipelineIndexListener =
                 new NTDataChangeListener(
@@ -129,6 +167,9 @@ public class NTDataPublisher implements CVPipelineResultConsumer {
 
     @Override
     public void accept(CVPipelineResult result) {
+        long startNanos = System.nanoTime();
+        int fieldsWritten = 0;
+
         var now = WPIUtilJNI.now();
         var captureMicros = MathUtils.nanosToMicros(result.getImageCaptureTimestampNanos());
         var simplified =
@@ -140,63 +181,175 @@ public class NTDataPublisher implements CVPipelineResultConsumer {
                         result.multiTagResult);
 
         ts.resultPublisher.set(simplified, simplified.getPacketSize());
+        fieldsWritten++;
         if (ConfigManager.getInstance().getConfig().getNetworkConfig().shouldPublishProto) {
             ts.protoResultPublisher.set(simplified);
+            fieldsWritten++;
         }
 
-        ts.pipelineIndexPublisher.set(pipelineIndexSupplier.get());
-        ts.driverModePublisher.set(driverModeSupplier.getAsBoolean());
+        // Latency and the heartbeat change every frame, so there's no point checking them
         ts.latencyMillisEntry.set(result.getLatencyMillis());
-        ts.hasTargetEntry.set(result.hasTargets());
+        ts.heartbeatPublisher.set(result.sequenceID);
+        fieldsWritten += 2;
+
+        if (changed(PIPELINE_INDEX, pipelineIndexSupplier.get())) {
+            ts.pipelineIndexPublisher.set(pipelineIndexSupplier.get());
+            fieldsWritten++;
+        }
+        if (changed(DRIVER_MODE, driverModeSupplier.getAsBoolean() ? 1 : 0)) {
+            ts.driverModePublisher.set(driverModeSupplier.getAsBoolean());
+            fieldsWritten++;
+        }
+        if (changed(HAS_TARGET, result.hasTargets() ? 1 : 0)) {
+            ts.hasTargetEntry.set(result.hasTargets());
+            fieldsWritten++;
+        }
 
         if (result.hasTargets()) {
             var bestTarget = result.targets.get(0);
 
-            ts.targetPitchEntry.set(bestTarget.getPitch());
-            ts.targetYawEntry.set(bestTarget.getYaw());
-            ts.targetAreaEntry.set(bestTarget.getArea());
-            ts.targetSkewEntry.set(bestTarget.getSkew());
+            fieldsWritten += setIfChanged(ts.targetPitchEntry, TARGET_PITCH, bestTarget.getPitch());
+            fieldsWritten += setIfChanged(ts.targetYawEntry, TARGET_YAW, bestTarget.getYaw());
+            fieldsWritten += setIfChanged(ts.targetAreaEntry, TARGET_AREA, bestTarget.getArea());
+            fieldsWritten += setIfChanged(ts.targetSkewEntry, TARGET_SKEW, bestTarget.getSkew());
 
             var pose = bestTarget.getBestCameraToTarget3d();
-            ts.targetPoseEntry.set(
-                    new double[] {
-                        pose.getTranslation().getX(),
-                        pose.getTranslation().getY(),
-                        pose.getTranslation().getZ(),
-                        pose.getRotation().getQuaternion().getW(),
-                        pose.getRotation().getQuaternion().getX(),
-                        pose.getRotation().getQuaternion().getY(),
-                        pose.getRotation().getQuaternion().getZ()
-                    });
+            if (lastTargetPose == NO_TARGET_POSE || !pose.equals(lastTargetPose)) {
+                ts.targetPoseEntry.set(
+                        new double[] {
+                            pose.getTranslation().getX(),
+                            pose.getTranslation().getY(),
+                            pose.getTranslation().getZ(),
+                            pose.getRotation().getQuaternion().getW(),
+                            pose.getRotation().getQuaternion().getX(),
+                            pose.getRotation().getQuaternion().getY(),
+                            pose.getRotation().getQuaternion().getZ()
+                        });
+                lastTargetPose = pose;
+                fieldsWritten++;
+            }
 
             var targetOffsetPoint = bestTarget.getTargetOffsetPoint();
-            ts.bestTargetPosX.set(targetOffsetPoint.x);
-            ts.bestTargetPosY.set(targetOffsetPoint.y);
+            fieldsWritten += setIfChanged(ts.bestTargetPosX, TARGET_POS_X, targetOffsetPoint.x);
+            fieldsWritten += setIfChanged(ts.bestTargetPosY, TARGET_POS_Y, targetOffsetPoint.y);
         } else {
-            ts.targetPitchEntry.set(0);
-            ts.targetYawEntry.set(0);
-            ts.targetAreaEntry.set(0);
-            ts.targetSkewEntry.set(0);
-            ts.targetPoseEntry.set(new double[] {0, 0, 0});
-            ts.bestTargetPosX.set(0);
-            ts.bestTargetPosY.set(0);
+            fieldsWritten += setIfChanged(ts.targetPitchEntry, TARGET_PITCH, 0);
+            fieldsWritten += setIfChanged(ts.targetYawEntry, TARGET_YAW, 0);
+            fieldsWritten += setIfChanged(ts.targetAreaEntry, TARGET_AREA, 0);
+            fieldsWritten += setIfChanged(ts.targetSkewEntry, TARGET_SKEW, 0);
+            if (lastTargetPose != NO_TARGET_POSE) {
+                ts.targetPoseEntry.set(new double[] {0, 0, 0});
+                lastTargetPose = NO_TARGET_POSE;
+                fieldsWritten++;
+            }
+            fieldsWritten += setIfChanged(ts.bestTargetPosX, TARGET_POS_X, 0);
+            fieldsWritten += setIfChanged(ts.bestTargetPosY, TARGET_POS_Y, 0);
         }
 
         // Something in the result can sometimes be null -- so check probably too many things
+        CameraCalibrationCoefficients calibration = null;
         if (result.inputAndOutputFrame != null
-                && result.inputAndOutputFrame.frameStaticProperties != null
-                && result.inputAndOutputFrame.frameStaticProperties.cameraCalibration != null) {
-            var fsp = result.inputAndOutputFrame.frameStaticProperties;
-            ts.cameraIntrinsicsPublisher.accept(fsp.cameraCalibration.getIntrinsicsArr());
-            ts.cameraDistortionPublisher.accept(fsp.cameraCalibration.getDistCoeffsArr());
-        } else {
-            ts.cameraIntrinsicsPublisher.accept(new double[] {});
-            ts.cameraDistortionPublisher.accept(new double[] {});
+                && result.inputAndOutputFrame.frameStaticProperties != null) {
+            calibration = result.inputAndOutputFrame.frameStaticProperties.cameraCalibration;
+        }
+        // Calibrations are replaced rather than edited, so only republish when we get a new one
+        if (calibration != lastCalibration || !calibrationPublished) {
+            if (calibration != null) {
+                ts.cameraIntrinsicsPublisher.accept(calibration.getIntrinsicsArr());
+                ts.cameraDistortionPublisher.accept(calibration.getDistCoeffsArr());
+            } else {
+                ts.cameraIntrinsicsPublisher.accept(new double[] {});
+                ts.cameraDistortionPublisher.accept(new double[] {});
+            }
+            lastCalibration = calibration;
+            calibrationPublished = true;
+            fieldsWritten += 2;
         }
 
-        ts.heartbeatPublisher.set(result.sequenceID);
+        // Let NetworkTablesManager batch this up with every other camera's flush
+        NetworkTablesManager.getInstance().requestFlush();
+
+        lastFieldsWritten = fieldsWritten;
+        double publishMicros = (System.nanoTime() - startNanos) / 1e3;
+        averagePublishMicros =
+                averagePublishMicros == 0
+                        ? publishMicros
+                        : averagePublishMicros + (publishMicros - averagePublishMicros) * 0.05;
+    }
+
+    /**
+     * Publishes an adaptive decimation trace as three parallel arrays under decimationTrace/ in the
+     * camera's table: when each frame was processed (monotonic, in microseconds), the decimation
+     * used, and the time detection took in milliseconds.
+     */
+    public void publishDecimationTrace(List<AdaptiveDecimation.Sample> trace) {
+        if (decimationTraceTimestampsPublisher == null) {
+            var traceTable = ts.subTable.getSubTable("decimationTrace");
+            decimationTraceTimestampsPublisher =
+                    traceTable.getIntegerArrayTopic("timestampMicros").publish();
+            decimationTraceDecimationPublisher =
+                    traceTable.getIntegerArrayTopic("decimation").publish();
+            decimationTraceDetectMillisPublisher =
+                    traceTable.getDoubleArrayTopic("detectMillis").publish();
+        }
+
+        var timestamps = new long[trace.size()];
+        var decimations = new long[trace.size()];
+        var detectMillis = new double[trace.size()];
+        for (int i = 0; i < trace.size(); i++) {
+            var sample = trace.get(i);
+            timestamps[i] = MathUtils.nanosToMicros(sample.timestampNanos);
+            decimations[i] = sample.decimation;
+            detectMillis[i] = sample.detectNanos / 1e6;
+        }
+        decimationTraceTimestampsPublisher.set(timestamps);
+        decimationTraceDecimationPublisher.set(decimations);
+        decimationTraceDetectMillisPublisher.set(detectMillis);
+        NetworkTablesManager.getInstance().requestFlush();
+    }
+
+    private void removeDecimationTraceEntries() {
+        if (decimationTraceTimestampsPublisher == null) return;
+        decimationTraceTimestampsPublisher.close();
+        decimationTraceDecimationPublisher.close();
+        decimationTraceDetectMillisPublisher.close();
+        decimationTraceTimestampsPublisher = null;
+        decimationTraceDecimationPublisher = null;
+        decimationTraceDetectMillisPublisher = null;
+    }
+
+    /**
+     * The average time spent publishing one result, in microseconds. This is smoothed over the last
+     * few dozen results.
+     */
+    public double getAveragePublishMicros() {
+        return averagePublishMicros;
+    }
+
+    /** How many NT fields the last result actually wrote, out of all the fields we publish. */
+    public int getLastFieldsWritten() {
+        return lastFieldsWritten;
+    }
+
+    /** Forget everything we've published, so that the next result publishes every field. */
+    private void resetPublishedValues() {
+        Arrays.fill(lastPublishedValues, Double.NaN);
+        lastTargetPose = null;
+        lastCalibration = null;
+        calibrationPublished = false;
+    }
+
+    /** Records value as the latest one for the given field, and returns whether it changed. */
+    private boolean changed(int field, double value) {
+        // NaN never equals anything, so fields that were just reset always count as changed
+        if (lastPublishedValues[field] == value) return false;
+        lastPublishedValues[field] = value;
+        return true;
+    }
 
-        // TODO...nt4... is this needed?
-        rootTable.getInstance().flush();
+    private int setIfChanged(DoublePublisher publisher, int field, double value) {
+        if (!changed(field, value)) return 0;
+        publisher.set(value);
+        return 1;
     }
 }
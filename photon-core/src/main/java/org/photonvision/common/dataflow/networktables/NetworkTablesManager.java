@@ -23,9 +23,11 @@ import edu.wpi.first.networktables.NetworkTableEvent;
 import edu.wpi.first.networktables.NetworkTableEvent.Kind;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.networktables.StringSubscriber;
+import edu.wpi.first.util.WPIUtilJNI;
 import java.io.IOException;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import org.photonvision.PhotonVersion;
 import org.photonvision.common.configuration.ConfigManager;
@@ -50,6 +52,11 @@ public class NetworkTablesManager {
 
     private boolean m_isRetryingConnection = false;
 
+    // NT rate-limits flush() to 100hz anyway, so there's no use flushing more often than that
+    private static final long kMinFlushPeriodMicros = 10_000;
+    private final AtomicBoolean m_flushPending = new AtomicBoolean(false);
+    private volatile long m_lastFlushMicros = 0;
+
     private StringSubscriber m_fieldLayoutSubscriber =
             kRootTable.getStringTopic(kFieldLayoutName).subscribe("");
 
@@ -153,6 +160,30 @@ public class NetworkTablesManager {
                 .publishEvent(new OutgoingUIEvent<>("networkTablesConnected", map));
     }
 
+    /**
+     * Ask for everything published so far to be sent to clients soon. Every camera calls this after
+     * each result, so rather than flushing each time, requests are coalesced so that NT is flushed at
+     * most once per flush period no matter how many cameras are running.
+     */
+    public void requestFlush() {
+        // Someone else has already queued up a flush that will cover us
+        if (!m_flushPending.compareAndSet(false, true)) return;
+
+        long waitMicros = m_lastFlushMicros + kMinFlushPeriodMicros - WPIUtilJNI.now();
+        if (waitMicros <= 0) {
+            flush();
+        } else {
+            TimedTaskManager.getInstance().addOneShotTask(this::flush, (waitMicros + 999) / 1000);
+        }
+    }
+
+    private void flush() {
+        // Clear this first, so that values set while we're flushing queue up another flush
+        m_flushPending.set(false);
+        m_lastFlushMicros = WPIUtilJNI.now();
+        ntInstance.flush();
+    }
+
     private void broadcastVersion() {
         kRootTable.getEntry("version").setString(PhotonVersion.versionString);
         kRootTable.getEntry("buildDate").setString(PhotonVersion.buildDate);
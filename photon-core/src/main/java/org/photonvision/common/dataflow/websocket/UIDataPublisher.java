@@ -19,6 +19,9 @@ package org.photonvision.common.dataflow.websocket;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.function.Supplier;
 import org.photonvision.common.dataflow.CVPipelineResultConsumer;
 import org.photonvision.common.dataflow.DataChangeService;
 import org.photonvision.common.dataflow.events.OutgoingUIEvent;
@@ -32,22 +35,53 @@ public class UIDataPublisher implements CVPipelineResultConsumer {
     private static final Logger logger = new Logger(UIDataPublisher.class, LogGroup.VisionModule);
 
     private final int index;
+    // Per-camera numbers sent along with every result, keyed by the name the UI reads them by
+    private final LinkedHashMap<String, Supplier<Object>> metrics = new LinkedHashMap<>();
     private long lastUIResultUpdateTime = 0;
+    private double rateHz = 10;
+
+    // Everything we've sent the UI so far, so we only need to send what's changed since. We still
+    // send everything every so often, so clients that just connected or switched to this camera
+    // catch up quickly.
+    private static final long kFullUpdatePeriodMillis = 1000;
+    private final HashMap<String, Object> lastSentData = new HashMap<>();
+    private long lastFullUpdateTime = 0;
 
     public UIDataPublisher(int index) {
         this.index = index;
     }
 
+    /**
+     * Send a metric to the UI along with each result. Metrics should be added before results start
+     * arriving.
+     *
+     * @param name The key the UI reads the metric by
+     * @param supplier Supplies the metric's current value. Called on the vision thread.
+     */
+    public void addMetric(String name, Supplier<Object> supplier) {
+        metrics.put(name, supplier);
+    }
+
+    /**
+     * Set how often results are sent to the UI.
+     *
+     * @param rateHz Updates per second. Clamped to between 1 and 30.
+     */
+    public void setRateHz(double rateHz) {
+        this.rateHz = Math.max(1, Math.min(30, rateHz));
+    }
+
     @Override
     public void accept(CVPipelineResult result) {
         long now = System.currentTimeMillis();
 
-        // only update the UI at 10hz
-        if (lastUIResultUpdateTime + 1000.0 / 10.0 > now) return;
+        // only update the UI at our set rate
+        if (lastUIResultUpdateTime + 1000.0 / rateHz > now) return;
 
         var dataMap = new HashMap<String, Object>();
         dataMap.put("fps", result.fps);
         dataMap.put("latency", result.getLatencyMillis());
+        metrics.forEach((name, supplier) -> dataMap.put(name, supplier.get()));
         var uiTargets = new ArrayList<HashMap<String, Object>>(result.targets.size());
 
         // We don't actually need to send targets during calibration and it can take up a lot (up to
@@ -70,13 +104,34 @@ public class UIDataPublisher implements CVPipelineResultConsumer {
             multitagData.put("bestReprojectionError", result.multiTagResult.estimatedPose.bestReprojErr);
             multitagData.put("fiducialIDsUsed", result.multiTagResult.fiducialIDsUsed);
             dataMap.put("multitagResult", multitagData);
+        } else {
+            // Explicitly clear it, since a missing key means "unchanged" in a partial update
+            dataMap.put("multitagResult", null);
         }
 
+        HashMap<String, Object> update;
+        if (lastFullUpdateTime + kFullUpdatePeriodMillis <= now) {
+            update = dataMap;
+            lastFullUpdateTime = now;
+        } else {
+            update = new HashMap<>();
+            for (var entry : dataMap.entrySet()) {
+                if (!lastSentData.containsKey(entry.getKey())
+                        || !Objects.equals(lastSentData.get(entry.getKey()), entry.getValue())) {
+                    update.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        lastSentData.putAll(dataMap);
+        lastUIResultUpdateTime = now;
+
+        // Nothing changed since last time, so there's nothing to tell the UI
+        if (update.isEmpty()) return;
+
         var uiMap = new HashMap<Integer, HashMap<String, Object>>();
-        uiMap.put(index, dataMap);
+        uiMap.put(index, update);
 
         DataChangeService.getInstance()
-                .publishEvent(OutgoingUIEvent.wrappedOf("updatePipelineResult", uiMap));
-        lastUIResultUpdateTime = now;
+                .publishEvent(OutgoingUIEvent.wrappedOfCamera("updatePipelineResult", uiMap, index));
     }
 }
@@ -32,6 +32,7 @@ import org.photonvision.common.hardware.metrics.cmds.RK3588Cmds;
 import org.photonvision.common.logging.LogGroup;
 import org.photonvision.common.logging.Logger;
 import org.photonvision.common.util.ShellExec;
+import org.photonvision.vision.pipeline.CVPipeline;
 
 public class MetricsManager {
     final Logger logger = new Logger(MetricsManager.class, LogGroup.General);
@@ -40,6 +41,9 @@ public class MetricsManager {
 
     private final ShellExec runCommand = new ShellExec(true, true);
 
+    private long lastReconfigCount = 0;
+    private long lastReconfigTimeNanos = 0;
+
     public void setConfig(HardwareConfig config) {
         if (config.hasCommandsConfigured()) {
             cmds = new FileCmds();
@@ -134,7 +138,28 @@ public class MetricsManager {
         metrics.put("diskUtilPct", this.getUsedDiskPct());
         metrics.put("npuUsage", this.getNpuUsage());
 
-        DataChangeService.getInstance().publishEvent(OutgoingUIEvent.wrappedOf("metrics", metrics));
+        var dcService = DataChangeService.getInstance();
+        metrics.put("eventQueueDepth", String.valueOf(dcService.getQueueDepth()));
+        metrics.put("eventsCoalesced", String.valueOf(dcService.getCoalescedEventCount()));
+        metrics.put(
+                "eventLatencyMs", String.format("%.2f", dcService.getAverageDispatchLatencyMillis()));
+
+        metrics.put("pipelineReconfigsPerSec", String.format("%.2f", getReconfigurationRate()));
+
+        dcService.publishEvent(OutgoingUIEvent.wrappedOf("metrics", metrics));
+    }
+
+    /** Pipeline parameter rebuilds per second since the last time metrics were published. */
+    private synchronized double getReconfigurationRate() {
+        long now = System.nanoTime();
+        long count = CVPipeline.getReconfigurationCount();
+        double rate = 0;
+        if (lastReconfigTimeNanos != 0 && now > lastReconfigTimeNanos) {
+            rate = (count - lastReconfigCount) / ((now - lastReconfigTimeNanos) / 1e9);
+        }
+        lastReconfigCount = count;
+        lastReconfigTimeNanos = now;
+        return rate;
     }
 
     public synchronized String execute(String command) {
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) Photon Vision.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.photonvision.vision.apriltag;
+
+import edu.wpi.first.apriltag.AprilTagDetection;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Picks the AprilTag quad decimation for the next frame from the size of the tags seen recently.
+ * Large (close) tags survive heavy decimation, so we decimate as much as we can while the smallest
+ * visible tag keeps at least {@link #MIN_TAG_PIXELS} pixels per edge. Once nothing has been seen for
+ * a few frames we fall back to the search decimation so far-away tags can be found again.
+ *
+ * <p>Moving to a higher decimation needs {@link #HYSTERESIS} times more margin than staying put, so
+ * a tag sitting near a threshold doesn't flip the decimation every frame.
+ */
+public class AdaptiveDecimation {
+    /** Smallest tag edge, in decimated pixels, that we trust the quad detector to find. */
+    public static final double MIN_TAG_PIXELS = 24;
+
+    public static final double HYSTERESIS = 1.25;
+
+    /** Frames without any tags before we drop back to the search decimation. */
+    public static final int FRAMES_BEFORE_SEARCH = 5;
+
+    public static final int TRACE_LENGTH = 256;
+
+    public static class Sample {
+        public final long timestampNanos;
+        public final int decimation;
+        public final long detectNanos;
+
+        Sample(long timestampNanos, int decimation, long detectNanos) {
+            this.timestampNanos = timestampNanos;
+            this.decimation = decimation;
+            this.detectNanos = detectNanos;
+        }
+    }
+
+    private int searchDecimate = 1;
+    private int maxDecimate = 1;
+    private int current = 1;
+    private int framesWithoutTags = 0;
+
+    private final Sample[] trace = new Sample[TRACE_LENGTH];
+    private int traceHead = 0;
+    private int traceCount = 0;
+
+    /**
+     * @param searchDecimate Decimation to use while no tags are in view
+     * @param maxDecimate Highest decimation we may pick when tags are close
+     */
+    public synchronized void configure(int searchDecimate, int maxDecimate) {
+        this.searchDecimate = Math.max(1, searchDecimate);
+        this.maxDecimate = Math.max(1, maxDecimate);
+        this.current = Math.min(this.searchDecimate, this.maxDecimate);
+        this.framesWithoutTags = 0;
+    }
+
+    /** The decimation to use for the next frame. */
+    public synchronized int getDecimation() {
+        return current;
+    }
+
+    /**
+     * Records a processed frame and works out the decimation for the next one.
+     *
+     * @param detections Detections accepted on this frame
+     * @param detectNanos How long detection took on this frame
+     * @return The decimation to use for the next frame
+     */
+    public synchronized int update(List<AprilTagDetection> detections, long detectNanos) {
+        trace[traceHead] = new Sample(System.nanoTime(), current, detectNanos);
+        traceHead = (traceHead + 1) % TRACE_LENGTH;
+        traceCount = Math.min(traceCount + 1, TRACE_LENGTH);
+
+        double smallestEdge = smallestEdgePixels(detections);
+        if (Double.isNaN(smallestEdge)) {
+            if (++framesWithoutTags >= FRAMES_BEFORE_SEARCH) {
+                current = searchDecimate;
+            }
+            return current;
+        }
+        framesWithoutTags = 0;
+
+        if (smallestEdge / current < MIN_TAG_PIXELS) {
+            // The smallest tag is getting too small to be found reliably, back off right away
+            current = clamp((int) Math.floor(smallestEdge / MIN_TAG_PIXELS));
+        } else {
+            int up = clamp((int) Math.floor(smallestEdge / (MIN_TAG_PIXELS * HYSTERESIS)));
+            if (up > current) current = up;
+        }
+
+        return current;
+    }
+
+    /** Recent frames, oldest first. */
+    public synchronized List<Sample> getTrace() {
+        var ret = new ArrayList<Sample>(traceCount);
+        int start = (traceHead - traceCount + TRACE_LENGTH) % TRACE_LENGTH;
+        for (int i = 0; i < traceCount; i++) {
+            ret.add(trace[(start + i) % TRACE_LENGTH]);
+        }
+        return ret;
+    }
+
+    private int clamp(int decimation) {
+        return Math.max(1, Math.min(maxDecimate, decimation));
+    }
+
+    /** The length of the shortest edge of any detection, or NaN if there are none. */
+    static double smallestEdgePixels(List<AprilTagDetection> detections) {
+        double smallest = Double.NaN;
+        for (var detection : detections) {
+            for (int i = 0; i < 4; i++) {
+                int next = (i + 1) % 4;
+                double edge =
+                        Math.hypot(
+                                detection.getCornerX(next) - detection.getCornerX(i),
+                                detection.getCornerY(next) - detection.getCornerY(i));
+                if (Double.isNaN(smallest) || edge < smallest) smallest = edge;
+            }
+        }
+        return smallest;
+    }
+}
@@ -71,6 +71,18 @@ public class Frame implements Releasable {
         processedImage.getMat().copyTo(destFrame.processedImage.getMat());
     }
 
+    /**
+     * Add a reference to both images, so that another thread can keep using this frame without
+     * copying it. Each call must be matched by a call to {@link #release()}.
+     *
+     * @return this
+     */
+    public Frame retain() {
+        colorImage.retain();
+        processedImage.retain();
+        return this;
+    }
+
     @Override
     public void release() {
         colorImage.release();
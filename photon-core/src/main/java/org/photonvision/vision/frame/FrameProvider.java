@@ -37,4 +37,16 @@ public abstract class FrameProvider implements Supplier<Frame> {
 
     /** Ask the camera to rotate frames it outputs */
     public abstract void requestHsvSettings(HSVPipe.HSVParams params);
+
+    /**
+     * Called once a frame from this provider has been run through the pipeline and its result handed
+     * off. The frame's images may already have been released.
+     */
+    public void onFrameProcessed(Frame frame) {}
+
+    /**
+     * Free anything this provider holds on to between frames, like capture buffers. Called once
+     * nothing will ask it for frames again; frames already handed out stay valid.
+     */
+    public void release() {}
 }
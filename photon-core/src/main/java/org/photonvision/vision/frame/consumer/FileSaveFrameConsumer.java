@@ -20,12 +20,11 @@ package org.photonvision.vision.frame.consumer;
 import edu.wpi.first.networktables.IntegerEntry;
 import edu.wpi.first.networktables.NetworkTable;
 import java.io.File;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.function.Consumer;
-import org.opencv.imgcodecs.Imgcodecs;
 import org.photonvision.common.configuration.ConfigManager;
+import org.photonvision.common.configuration.SnapshotFormat;
 import org.photonvision.common.dataflow.networktables.NetworkTablesManager;
 import org.photonvision.common.logging.LogGroup;
 import org.photonvision.common.logging.Logger;
@@ -37,11 +36,10 @@ public class FileSaveFrameConsumer implements Consumer<CVMat> {
 
     // Formatters to generate unique, timestamped file names
     private static final String FILE_PATH = ConfigManager.getInstance().getImageSavePath().toString();
-    private static final String FILE_EXTENSION = ".jpg";
     private static final String NT_SUFFIX = "SaveImgCmd";
 
-    DateFormat df = new SimpleDateFormat("yyyy-MM-dd");
-    DateFormat tf = new SimpleDateFormat("hhmmssSS");
+    private static final DateTimeFormatter df = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter tf = DateTimeFormatter.ofPattern("hhmmssSS");
 
     private final NetworkTable rootTable;
     private NetworkTable subTable;
@@ -54,6 +52,9 @@ public class FileSaveFrameConsumer implements Consumer<CVMat> {
 
     private long savedImagesCount = 0;
 
+    private SnapshotFormat format = SnapshotFormat.JPEG;
+    private int quality = 95;
+
     public FileSaveFrameConsumer(String camNickname, String cameraUniqueName, String streamPrefix) {
         this.ntEntryName = streamPrefix + NT_SUFFIX;
         this.cameraNickname = camNickname;
@@ -64,6 +65,17 @@ public class FileSaveFrameConsumer implements Consumer<CVMat> {
         updateCameraNickname(camNickname);
     }
 
+    /**
+     * Set how snapshots are encoded.
+     *
+     * @param format The image format
+     * @param quality The JPEG quality (0-100) or PNG compression level (0-9). Ignored for BMP.
+     */
+    public void setFormat(SnapshotFormat format, int quality) {
+        this.format = format;
+        this.quality = quality;
+    }
+
     public void accept(CVMat image) {
         long currentCount = saveFrameEntry.get();
 
@@ -72,34 +84,35 @@ public class FileSaveFrameConsumer implements Consumer<CVMat> {
 
         // The requested count is greater than the actual count
         if (savedImagesCount < currentCount) {
-            Date now = new Date();
-
+            var now = LocalDateTime.now();
             String fileName =
                     cameraNickname + "_" + streamType + "_" + df.format(now) + "T" + tf.format(now);
 
-            // Check if the Unique Camera directory exists and create it if it doesn't
+            // Saved under the unique camera name, so renaming the camera doesn't split them up
             String cameraPath = FILE_PATH + File.separator + this.cameraUniqueName;
-            var cameraDir = new File(cameraPath);
-            if (!cameraDir.exists()) {
-                cameraDir.mkdir();
-            }
 
-            String saveFilePath = cameraPath + File.separator + fileName + FILE_EXTENSION;
+            var mat =
+                    (image == null || image.getMat() == null || image.getMat().empty())
+                            ? StaticFrames.LOST_MAT
+                            : image.getMat();
 
-            if (image == null || image.getMat() == null || image.getMat().empty()) {
-                Imgcodecs.imwrite(saveFilePath, StaticFrames.LOST_MAT);
-            } else {
-                Imgcodecs.imwrite(saveFilePath, image.getMat());
+            // Encoding and writing happen in the background. If the writer is backed up, leave the
+            // request pending and try again with a later frame.
+            if (SnapshotWriter.getInstance().offer(mat, cameraPath, fileName, format, quality)
+                    != null) {
+                savedImagesCount++;
             }
-
-            savedImagesCount++;
-            logger.info("Saved new image at " + saveFilePath);
         } else if (savedImagesCount > currentCount) {
             // Reset local value with NT value in case of de-sync
             savedImagesCount = currentCount;
         }
     }
 
+    /** Whether the next frame we're given will be saved. */
+    public boolean isSaveRequested() {
+        return saveFrameEntry.get() > savedImagesCount;
+    }
+
     public void updateCameraNickname(String newCameraNickname) {
         // Remove existing entries
         if (this.subTable != null) {
@@ -0,0 +1,392 @@
+/*
+ * Copyright (C) Photon Vision.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.photonvision.vision.frame.consumer;
+
+import edu.wpi.first.util.WPIUtilJNI;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.photonvision.common.dataflow.CVPipelineResultConsumer;
+import org.photonvision.common.dataflow.structures.Packet;
+import org.photonvision.common.logging.LogGroup;
+import org.photonvision.common.logging.Logger;
+import org.photonvision.common.util.math.MathUtils;
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.vision.frame.recording.FrameRecording;
+import org.photonvision.vision.opencv.CVMat;
+import org.photonvision.vision.opencv.MatPool;
+import org.photonvision.vision.pipeline.result.CVPipelineResult;
+import org.photonvision.vision.target.TrackedTarget;
+
+/**
+ * Records every input frame a camera processes, along with its capture timestamp, sequence ID and
+ * pipeline result, so that bad detections can be looked into after a match.
+ *
+ * <p>Frames are copied into pooled Mats on the vision thread, then encoded and written by this
+ * recorder's own thread. The queue between them is bounded: if the disk can't keep up, frames are
+ * dropped rather than slowing down the camera or growing without limit.
+ *
+ * <p>Each recording is a directory of append-only {@link FrameRecording} segments. A new segment is
+ * started once the current one passes the segment size, so a recording cut off by a power loss
+ * only loses the frame being written. Recordings can be played back with {@link
+ * org.photonvision.vision.frame.provider.ReplayFrameProvider ReplayFrameProvider}. Their metadata
+ * is the result as sent over NetworkTables, packed with {@link PhotonPipelineResult#serde}.
+ *
+ * <p>All of a camera's recordings together are capped at {@link #setMaxTotalMegabytes}, and
+ * recording also stops if the disk gets close to full. Either way the recorder disables itself
+ * and tells its stop listener; old recordings are never deleted automatically.
+ */
+public class FrameRecorder implements CVPipelineResultConsumer {
+    private final Logger logger;
+
+    private static final int QUEUE_DEPTH = 4;
+    // Readers memory-map each segment, which caps them at 2GB. Stay well clear of that
+    private static final long MAX_SEGMENT_BYTES = 1024L * 1024 * 1024;
+    // Leave this much free on the disk (on top of a segment) for logs, configs and the OS
+    private static final long MIN_FREE_BYTES = 256L * 1024 * 1024;
+
+    private static final DateTimeFormatter df = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+
+    private static class PendingFrame {
+        final CVMat image;
+        final long timestampNanos;
+        final long sequenceID;
+        final byte[] metadata;
+        final int session;
+
+        PendingFrame(
+                CVMat image, long timestampNanos, long sequenceID, byte[] metadata, int session) {
+            this.image = image;
+            this.timestampNanos = timestampNanos;
+            this.sequenceID = sequenceID;
+            this.metadata = metadata;
+            this.session = session;
+        }
+    }
+
+    private final Path cameraDirectory;
+    private final ArrayBlockingQueue<PendingFrame> queue = new ArrayBlockingQueue<>(QUEUE_DEPTH);
+    private final Packet packet = new Packet(1);
+
+    private volatile boolean enabled = false;
+    // Bumped every time recording starts, so the writer knows to start a new recording
+    private volatile int session = 0;
+    private volatile FrameRecording.Encoding encoding = FrameRecording.Encoding.JPEG;
+    private volatile int jpegQuality = 90;
+    private volatile long segmentBytes = 256L * 1024 * 1024;
+    private volatile long maxTotalBytes = 4096L * 1024 * 1024;
+    private volatile Runnable stopListener = () -> {};
+
+    private final AtomicLong recordedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private volatile Path recordingDirectory;
+
+    // Only touched by the writer thread
+    private int recordingSession = -1;
+    private DataOutputStream segment;
+    private int segmentIndex;
+    private long segmentWritten;
+    // Everything in cameraDirectory, including earlier recordings
+    private long totalWritten;
+    // The session that hit a limit, whose queued frames are thrown away
+    private int stoppedSession = -1;
+
+    /**
+     * Create a recorder, which starts disabled.
+     *
+     * @param cameraDirectory Where to put this camera's recordings, one directory per recording
+     * @param cameraName The camera's name, for logging and the writer thread's name
+     */
+    public FrameRecorder(Path cameraDirectory, String cameraName) {
+        this.cameraDirectory = cameraDirectory;
+        this.logger = new Logger(FrameRecorder.class, cameraName, LogGroup.VisionModule);
+
+        var thread = new Thread(this::writeLoop, "FrameRecorder - " + cameraName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Start or stop recording. Each time recording starts, a new recording directory is created.
+     * Frames already queued when recording stops are still written.
+     */
+    public synchronized void setEnabled(boolean enabled) {
+        if (enabled && !this.enabled) session++;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Set how frames are stored.
+     *
+     * @param encoding RAW is cheapest to write but the biggest on disk
+     * @param jpegQuality JPEG quality (0-100), ignored for RAW
+     */
+    public void setEncoding(FrameRecording.Encoding encoding, int jpegQuality) {
+        this.encoding = encoding;
+        this.jpegQuality = Math.max(0, Math.min(100, jpegQuality));
+    }
+
+    /** Set the size at which a new segment is started, in megabytes. */
+    public void setSegmentMegabytes(int megabytes) {
+        segmentBytes = Math.min(MAX_SEGMENT_BYTES, Math.max(1, megabytes) * 1024L * 1024L);
+    }
+
+    /**
+     * Set the most disk space all of this camera's recordings may take up together, in megabytes.
+     * Recording stops once it's reached.
+     */
+    public void setMaxTotalMegabytes(int megabytes) {
+        maxTotalBytes = Math.max(1, megabytes) * 1024L * 1024L;
+    }
+
+    /**
+     * Set what to call when the recorder stops itself because it hit the size cap or the disk is
+     * nearly full. Called from the writer thread.
+     */
+    public void setStopListener(Runnable listener) {
+        this.stopListener = listener;
+    }
+
+    @Override
+    public void accept(CVPipelineResult result) {
+        var frame = result.inputAndOutputFrame;
+        if (!enabled || frame == null) return;
+
+        var image = frame.colorImage.getMat();
+        if (image.empty()) return;
+
+        // Check before copying, so a full queue costs nothing
+        if (queue.remainingCapacity() == 0) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+
+        // The stream thread resizes and draws on the frame in place, so take our own copy now
+        var copy = MatPool.getInstance().take(image.rows(), image.cols(), image.type());
+        image.copyTo(copy.getMat());
+
+        var pending =
+                new PendingFrame(
+                        copy, frame.timestampNanos, result.sequenceID, packResult(result), session);
+        if (!queue.offer(pending)) {
+            copy.release();
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    /** Pack the result the same way it's published to NetworkTables. */
+    private byte[] packResult(CVPipelineResult result) {
+        var simplified =
+                new PhotonPipelineResult(
+                        result.sequenceID,
+                        MathUtils.nanosToMicros(result.getImageCaptureTimestampNanos()),
+                        WPIUtilJNI.now(),
+                        TrackedTarget.simpleFromTrackedTargets(result.targets),
+                        result.multiTagResult);
+        // getPacketSize doesn't count all three timestamps
+        packet.ensureCapacity(simplified.getPacketSize() + 3 * Long.BYTES);
+        packet.clear();
+        PhotonPipelineResult.serde.pack(packet, simplified);
+        return Arrays.copyOf(packet.getData(), packet.getNumBytesWritten());
+    }
+
+    /** The number of frames written to disk. */
+    public long getRecordedCount() {
+        return recordedCount.get();
+    }
+
+    /** The number of frames dropped because the writer fell behind. */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /** The number of frames that could not be written. */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /** The directory of the current (or last) recording, or null if nothing has been recorded. */
+    public Path getRecordingDirectory() {
+        return recordingDirectory;
+    }
+
+    private void writeLoop() {
+        while (true) {
+            PendingFrame frame;
+            try {
+                // Wake up now and then, so the segment gets closed soon after recording stops
+                frame = queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                logger.warn("Frame recorder interrupted, exiting");
+                closeSegment();
+                return;
+            }
+
+            if (frame == null) {
+                if (!enabled) closeSegment();
+                continue;
+            }
+
+            try {
+                if (frame.session == stoppedSession) {
+                    droppedCount.incrementAndGet();
+                } else if (write(frame)) {
+                    recordedCount.incrementAndGet();
+                } else {
+                    droppedCount.incrementAndGet();
+                }
+            } catch (Exception e) {
+                failedCount.incrementAndGet();
+                logger.error("Failed to record frame " + frame.sequenceID, e);
+                // Start a fresh segment next time rather than appending after a partial record
+                closeSegment();
+            } finally {
+                frame.image.release();
+            }
+        }
+    }
+
+    /**
+     * Write a frame, starting a new recording or segment first if needed.
+     *
+     * @return false if recording stopped at a limit instead
+     */
+    private boolean write(PendingFrame frame) throws IOException {
+        var image = frame.image.getMat();
+        var bytes = FrameRecording.encodeImage(image, encoding, jpegQuality);
+        long recordBytes =
+                FrameRecording.RECORD_HEADER_BYTES + (long) bytes.length + frame.metadata.length;
+
+        if (frame.session != recordingSession) {
+            closeSegment();
+            startRecording(frame.session);
+        } else if (segment != null && segmentWritten + recordBytes > segmentBytes) {
+            closeSegment();
+        }
+
+        if (totalWritten + recordBytes > maxTotalBytes) {
+            stopAtLimit("this camera's recordings reached " + maxTotalBytes / (1024 * 1024) + "MB");
+            return false;
+        }
+        if (segment == null) {
+            // A segment can grow to segmentBytes, so make sure that much fits with room to spare
+            long usable = Files.getFileStore(recordingDirectory).getUsableSpace();
+            if (usable - segmentBytes < MIN_FREE_BYTES) {
+                stopAtLimit("only " + usable / (1024 * 1024) + "MB of disk space left");
+                return false;
+            }
+            openSegment();
+        }
+
+        long written =
+                FrameRecording.writeFrame(
+                        segment,
+                        frame.timestampNanos,
+                        frame.sequenceID,
+                        image,
+                        encoding,
+                        bytes,
+                        frame.metadata);
+        segmentWritten += written;
+        totalWritten += written;
+        // Hand each frame to the OS as it's written, so a crash loses as little as possible
+        segment.flush();
+        return true;
+    }
+
+    private void stopAtLimit(String reason) {
+        logger.warn("Stopped recording: " + reason);
+        closeSegment();
+        stoppedSession = recordingSession;
+        boolean stopped;
+        synchronized (this) {
+            // Recording may have been restarted since this frame was queued
+            stopped = session == recordingSession;
+            if (stopped) enabled = false;
+        }
+        if (stopped) stopListener.run();
+    }
+
+    /** The total size of every file under a directory, or 0 if it doesn't exist. */
+    private static long directorySize(Path directory) throws IOException {
+        if (!Files.exists(directory)) return 0;
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(FrameRecorder::fileSize).sum();
+        }
+    }
+
+    private static long fileSize(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            // Deleted while we were looking
+            return 0;
+        }
+    }
+
+    private void startRecording(int session) throws IOException {
+        var name = df.format(LocalDateTime.now());
+        var directory = cameraDirectory.resolve(name);
+        // Recording stopped and started again within a second
+        for (int i = 1; Files.exists(directory); i++) {
+            directory = cameraDirectory.resolve(name + "_" + i);
+        }
+        Files.createDirectories(directory);
+
+        totalWritten = directorySize(cameraDirectory);
+        recordingDirectory = directory;
+        recordingSession = session;
+        segmentIndex = 0;
+        logger.info("Recording to " + recordingDirectory);
+    }
+
+    private void openSegment() throws IOException {
+        var name =
+                String.format("segment-%05d%s", segmentIndex++, FrameRecording.SEGMENT_EXTENSION);
+        var path = recordingDirectory.resolve(name);
+        segment = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+        FrameRecording.writeFileHeader(segment);
+        segmentWritten = FrameRecording.FILE_HEADER_BYTES;
+        totalWritten += FrameRecording.FILE_HEADER_BYTES;
+    }
+
+    private void closeSegment() {
+        if (segment == null) return;
+        try {
+            segment.close();
+        } catch (IOException e) {
+            logger.error("Failed to close recording segment", e);
+        }
+        segment = null;
+    }
+}
@@ -26,10 +26,16 @@ import org.photonvision.common.util.math.MathUtils;
 import org.photonvision.vision.frame.StaticFrames;
 import org.photonvision.vision.opencv.CVMat;
 
+/**
+ * Serves frames to browsers as an MJPEG stream. Frames are only handed to cscore while at least one
+ * client is connected, and no faster than the max framerate. cscore encodes lazily on each client's
+ * connection thread, caching the JPEG per frame for each requested quality, so identical requests
+ * share one encode and a slow client just skips frames instead of building up a backlog.
+ */
 public class MJPGFrameConsumer implements AutoCloseable {
-    private static final double MAX_FRAMERATE = -1;
-    private static final long MAX_FRAME_PERIOD_NS = Math.round(1e9 / MAX_FRAMERATE);
+    public static final double DEFAULT_MAX_FRAMERATE = 30;
 
+    private long maxFramePeriodNs = Math.round(1e9 / DEFAULT_MAX_FRAMERATE);
     private long lastFrameTimeNs;
     private CvSource cvSource;
     private MjpegServer mjpegServer;
@@ -93,15 +99,32 @@ public class MJPGFrameConsumer implements AutoCloseable {
         this(name, 320, 240, port);
     }
 
+    /**
+     * Limit how often frames are sent to clients.
+     *
+     * @param maxFramerate The most frames per second to send, or 0 or less for no limit
+     */
+    public void setMaxFramerate(double maxFramerate) {
+        maxFramePeriodNs = maxFramerate > 0 ? Math.round(1e9 / maxFramerate) : 0;
+    }
+
+    /** Whether anyone is currently watching this stream. */
+    public boolean hasClients() {
+        // cscore enables the source whenever the MJPEG server has a client connected
+        return cvSource != null && cvSource.isEnabled();
+    }
+
     public void accept(CVMat image) {
+        // Nobody to send it to, so don't bother copying it into cscore
+        if (!hasClients()) return;
+
         long now = MathUtils.wpiNanoTime();
+        if (now - lastFrameTimeNs < maxFramePeriodNs) return;
+        lastFrameTimeNs = now;
 
         if (image == null || image.getMat() == null || image.getMat().empty()) {
-            image.copyFrom(StaticFrames.LOST_MAT);
-        }
-
-        if (now - lastFrameTimeNs > MAX_FRAME_PERIOD_NS) {
-            lastFrameTimeNs = now;
+            cvSource.putFrame(StaticFrames.LOST_MAT);
+        } else {
             cvSource.putFrame(image.getMat());
         }
     }
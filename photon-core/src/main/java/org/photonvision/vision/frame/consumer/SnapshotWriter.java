@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) Photon Vision.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.photonvision.vision.frame.consumer;
+
+import java.io.File;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfInt;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.photonvision.common.configuration.SnapshotFormat;
+import org.photonvision.common.logging.LogGroup;
+import org.photonvision.common.logging.Logger;
+import org.photonvision.vision.opencv.CVMat;
+import org.photonvision.vision.opencv.MatPool;
+
+/**
+ * Encodes and writes snapshots to disk on a background thread, so that saving images never holds
+ * up the thread that asked for them. Images are copied into pooled Mats when queued. The queue is
+ * bounded: if it's full, the image is refused and the caller may try again with a later frame.
+ */
+public class SnapshotWriter {
+    private static final Logger logger = new Logger(SnapshotWriter.class, LogGroup.General);
+
+    private static final int QUEUE_DEPTH = 8;
+
+    private static class PendingSnapshot {
+        final CVMat image;
+        final String path;
+        final MatOfInt params;
+
+        PendingSnapshot(CVMat image, String path, MatOfInt params) {
+            this.image = image;
+            this.path = path;
+            this.params = params;
+        }
+    }
+
+    private static class Singleton {
+        private static final SnapshotWriter INSTANCE = new SnapshotWriter(QUEUE_DEPTH);
+
+        static {
+            INSTANCE.start();
+        }
+    }
+
+    public static SnapshotWriter getInstance() {
+        return Singleton.INSTANCE;
+    }
+
+    private final ArrayBlockingQueue<PendingSnapshot> queue;
+
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /** Only for tests, which need their own writer; everything else shares {@link #getInstance}. */
+    SnapshotWriter(int queueDepth) {
+        queue = new ArrayBlockingQueue<>(queueDepth);
+    }
+
+    /** Start writing queued snapshots. Until then, they just wait in the queue. */
+    void start() {
+        var thread = new Thread(this::writeLoop, "SnapshotWriter");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queue an image to be written. The image is copied, so the caller keeps ownership of it.
+     *
+     * @param image The image to save
+     * @param directory The directory to save it in, created if needed
+     * @param baseName The file name, without extension
+     * @param format The format to encode as
+     * @param quality The JPEG quality (0-100) or PNG compression level (0-9). Ignored for BMP.
+     * @return The path the image will be written to, or null if the queue was full.
+     */
+    public String offer(
+            Mat image, String directory, String baseName, SnapshotFormat format, int quality) {
+        // Check before copying, so a full queue costs nothing
+        if (queue.remainingCapacity() == 0) {
+            droppedCount.incrementAndGet();
+            return null;
+        }
+
+        var copy = MatPool.getInstance().take(image.rows(), image.cols(), image.type());
+        image.copyTo(copy.getMat());
+
+        String path = directory + File.separator + baseName + format.extension;
+        if (!queue.offer(new PendingSnapshot(copy, path, encodeParams(format, quality)))) {
+            copy.release();
+            droppedCount.incrementAndGet();
+            return null;
+        }
+        return path;
+    }
+
+    private static MatOfInt encodeParams(SnapshotFormat format, int quality) {
+        switch (format) {
+            case JPEG:
+                quality = Math.max(0, Math.min(100, quality));
+                return new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, quality);
+            case PNG:
+                quality = Math.max(0, Math.min(9, quality));
+                return new MatOfInt(Imgcodecs.IMWRITE_PNG_COMPRESSION, quality);
+            default:
+                return new MatOfInt();
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            PendingSnapshot snapshot;
+            try {
+                snapshot = queue.take();
+            } catch (InterruptedException e) {
+                logger.warn("Snapshot writer interrupted, exiting");
+                return;
+            }
+
+            boolean written = false;
+            try {
+                var dir = new File(snapshot.path).getParentFile();
+                if (dir != null && !dir.exists()) {
+                    dir.mkdirs();
+                }
+
+                written =
+                        Imgcodecs.imwrite(snapshot.path, snapshot.image.getMat(), snapshot.params);
+                if (written) {
+                    logger.info("Saved new image at " + snapshot.path);
+                } else {
+                    logger.error("Failed to save image at " + snapshot.path);
+                }
+            } catch (Exception e) {
+                logger.error("Exception saving image at " + snapshot.path, e);
+            } finally {
+                snapshot.image.release();
+                snapshot.params.release();
+            }
+
+            // Only counted once the copy is back in the pool, so the counts mean we're done with it
+            if (written) {
+                writtenCount.incrementAndGet();
+            } else {
+                failedCount.incrementAndGet();
+            }
+        }
+    }
+
+    /** The number of snapshots waiting to be written. */
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    /** The number of snapshots successfully written. */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /** The number of snapshots refused because the queue was full. */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /** The number of snapshots that couldn't be written. */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+}
@@ -17,6 +17,7 @@
 
 package org.photonvision.vision.frame.provider;
 
+import org.opencv.core.Core;
 import org.photonvision.common.util.numbers.IntegerCouple;
 import org.photonvision.vision.frame.Frame;
 import org.photonvision.vision.frame.FrameProvider;
@@ -24,10 +25,9 @@ import org.photonvision.vision.frame.FrameStaticProperties;
 import org.photonvision.vision.frame.FrameThresholdType;
 import org.photonvision.vision.opencv.CVMat;
 import org.photonvision.vision.opencv.ImageRotationMode;
-import org.photonvision.vision.pipe.CVPipe.CVPipeResult;
+import org.photonvision.vision.opencv.MatPool;
 import org.photonvision.vision.pipe.impl.GrayscalePipe;
 import org.photonvision.vision.pipe.impl.HSVPipe;
-import org.photonvision.vision.pipe.impl.RotateImagePipe;
 
 public abstract class CpuImageProcessor extends FrameProvider {
     protected static class CapturedFrame {
@@ -44,9 +44,9 @@ public abstract class CpuImageProcessor extends FrameProvider {
     }
 
     private final HSVPipe m_hsvPipe = new HSVPipe();
-    private final RotateImagePipe m_rImagePipe = new RotateImagePipe();
     private final GrayscalePipe m_grayPipe = new GrayscalePipe();
     FrameThresholdType m_processType;
+    private ImageRotationMode m_rotation = ImageRotationMode.DEG_0;
 
     private final Object m_mutex = new Object();
 
@@ -69,19 +69,30 @@ public abstract class CpuImageProcessor extends FrameProvider {
         CVMat outputMat = null;
         long sumNanos = 0;
 
-        {
-            CVPipeResult<Void> out = m_rImagePipe.run(input.colorImage.getMat());
-            sumNanos += out.nanosElapsed;
+        FrameThresholdType processType;
+        ImageRotationMode rotation;
+        synchronized (m_mutex) {
+            processType = m_processType;
+            rotation = m_rotation;
+        }
+
+        var colorImage = input.colorImage;
+        var colorMat = colorImage.getMat();
+        if (!colorMat.empty() && rotation != ImageRotationMode.DEG_0) {
+            long rotateStartNanos = System.nanoTime();
+            colorImage = rotate(colorImage, rotation);
+            colorMat = colorImage.getMat();
+            sumNanos += System.nanoTime() - rotateStartNanos;
         }
 
-        if (!input.colorImage.getMat().empty()) {
-            if (m_processType == FrameThresholdType.HSV) {
-                var hsvResult = m_hsvPipe.run(input.colorImage.getMat());
-                outputMat = new CVMat(hsvResult.output);
+        if (!colorMat.empty()) {
+            if (processType == FrameThresholdType.HSV) {
+                var hsvResult = m_hsvPipe.run(colorMat);
+                outputMat = hsvResult.output;
                 sumNanos += hsvResult.nanosElapsed;
-            } else if (m_processType == FrameThresholdType.GREYSCALE) {
-                var result = m_grayPipe.run(input.colorImage.getMat());
-                outputMat = new CVMat(result.output);
+            } else if (processType == FrameThresholdType.GREYSCALE) {
+                var result = m_grayPipe.run(colorMat);
+                outputMat = result.output;
                 sumNanos += result.nanosElapsed;
             } else {
                 outputMat = new CVMat();
@@ -95,13 +106,33 @@ public abstract class CpuImageProcessor extends FrameProvider {
 
         return new Frame(
                 sequenceID,
-                input.colorImage,
+                colorImage,
                 outputMat,
-                m_processType,
+                processType,
                 input.captureTimestamp,
                 input.staticProps);
     }
 
+    /**
+     * Rotate a captured image. Quarter turns change its shape, so they're written to a pooled Mat
+     * and the capture buffer is released as it was; rotating it in place would make the next grab
+     * into that buffer reallocate it.
+     *
+     * @return The rotated image, which may be the one passed in
+     */
+    private static CVMat rotate(CVMat image, ImageRotationMode rotation) {
+        var mat = image.getMat();
+        if (!rotation.isRotated()) {
+            Core.rotate(mat, mat, rotation.value);
+            return image;
+        }
+
+        var rotated = MatPool.getInstance().take(mat.cols(), mat.rows(), mat.type());
+        Core.rotate(mat, rotated.getMat(), rotation.value);
+        image.release();
+        return rotated;
+    }
+
     @Override
     public void requestFrameThresholdType(FrameThresholdType type) {
         synchronized (m_mutex) {
@@ -112,7 +143,7 @@ public abstract class CpuImageProcessor extends FrameProvider {
     @Override
     public void requestFrameRotation(ImageRotationMode rotationMode) {
         synchronized (m_mutex) {
-            m_rImagePipe.setParams(new RotateImagePipe.RotateImageParams(rotationMode));
+            m_rotation = rotationMode;
         }
     }
 
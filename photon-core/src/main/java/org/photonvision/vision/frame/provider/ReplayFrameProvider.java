@@ -0,0 +1,405 @@
+/*
+ * Copyright (C) Photon Vision.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.photonvision.vision.frame.provider;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.opencv.core.Mat;
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.Videoio;
+import org.photonvision.common.logging.LogGroup;
+import org.photonvision.common.logging.Logger;
+import org.photonvision.common.util.math.MathUtils;
+import org.photonvision.common.util.numbers.NumberListUtils;
+import org.photonvision.vision.calibration.CameraCalibrationCoefficients;
+import org.photonvision.vision.frame.Frame;
+import org.photonvision.vision.frame.FrameProvider;
+import org.photonvision.vision.frame.FrameStaticProperties;
+import org.photonvision.vision.frame.recording.FrameRecording;
+import org.photonvision.vision.frame.recording.FrameRecordingReader;
+import org.photonvision.vision.opencv.CVMat;
+import org.photonvision.vision.opencv.MatRing;
+
+/**
+ * A {@link FrameProvider} that plays back a recorded sequence of frames, so that the whole vision
+ * stack can be profiled and regression-tested offline against real motion and real frame rates.
+ *
+ * <p>Plays either a {@link FrameRecording} (a segment file, or a directory of them), which is
+ * memory-mapped and keeps the original capture timestamps, or a video file that OpenCV can decode,
+ * which uses the container's presentation timestamps.
+ *
+ * <p>Frames are stamped with the time they were handed out, so latency measured downstream is the
+ * latency of the stack rather than the age of the recording. {@link
+ * org.photonvision.vision.processes.VisionRunner VisionRunner} reports back once each frame has
+ * been processed, and the end-to-end latency is logged after every pass through the recording.
+ */
+public class ReplayFrameProvider extends CpuImageProcessor {
+    private static final Logger logger = new Logger(ReplayFrameProvider.class, LogGroup.Camera);
+
+    private static final int RING_SIZE = 6;
+    // How long to wait between empty frames once a non-looping replay is done
+    private static final long FINISHED_DELAY_MILLIS = 100;
+
+    public enum ReplayTiming {
+        /** Keep the gaps between frames as they were recorded. */
+        ORIGINAL,
+        /** Hand out each frame as soon as it's asked for. */
+        AS_FAST_AS_POSSIBLE,
+        /** Hand out frames at the rate set by {@link #setFixedFps(double)}. */
+        FIXED_RATE
+    }
+
+    /** A summary of end-to-end latencies, in milliseconds. */
+    public static class LatencySummary {
+        public final int count;
+        public final double minMillis;
+        public final double meanMillis;
+        public final double p50Millis;
+        public final double p99Millis;
+        public final double maxMillis;
+
+        LatencySummary(List<Double> latencies) {
+            count = latencies.size();
+            minMillis = Collections.min(latencies);
+            meanMillis = NumberListUtils.mean(latencies);
+            p50Millis = MathUtils.getPercentile(latencies, 50);
+            p99Millis = MathUtils.getPercentile(latencies, 99);
+            maxMillis = Collections.max(latencies);
+        }
+
+        @Override
+        public String toString() {
+            return count
+                    + " frames - Min: "
+                    + MathUtils.roundTo(minMillis, 3)
+                    + "ms, Mean: "
+                    + MathUtils.roundTo(meanMillis, 3)
+                    + "ms, P50: "
+                    + MathUtils.roundTo(p50Millis, 3)
+                    + "ms, P99: "
+                    + MathUtils.roundTo(p99Millis, 3)
+                    + "ms, Max: "
+                    + MathUtils.roundTo(maxMillis, 3)
+                    + "ms";
+        }
+    }
+
+    /** Somewhere frames are played back from. Only used from the capture thread. */
+    private interface Source {
+        /**
+         * Read the next frame.
+         *
+         * @return false at the end of the recording
+         */
+        boolean read(Mat dest);
+
+        /** When the frame last read was captured, in nanoseconds. */
+        long getTimestampNanos();
+
+        /** Go back to the first frame. */
+        void rewind();
+
+        void release();
+    }
+
+    private static class RecordingSource implements Source {
+        private final FrameRecordingReader reader;
+        private int index = 0;
+        private long timestampNanos;
+        private byte[] scratch;
+
+        RecordingSource(FrameRecordingReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean read(Mat dest) {
+            if (index >= reader.getFrameCount()) return false;
+            scratch = reader.readImage(index, dest, scratch);
+            timestampNanos = reader.getTimestampNanos(index);
+            index++;
+            return true;
+        }
+
+        @Override
+        public long getTimestampNanos() {
+            return timestampNanos;
+        }
+
+        @Override
+        public void rewind() {
+            index = 0;
+        }
+
+        @Override
+        public void release() {}
+    }
+
+    private static class VideoSource implements Source {
+        private final VideoCapture capture;
+        private long timestampNanos;
+
+        VideoSource(VideoCapture capture) {
+            this.capture = capture;
+        }
+
+        @Override
+        public boolean read(Mat dest) {
+            if (!capture.read(dest) || dest.empty()) return false;
+            timestampNanos = (long) (capture.get(Videoio.CAP_PROP_POS_MSEC) * 1e6);
+            return true;
+        }
+
+        @Override
+        public long getTimestampNanos() {
+            return timestampNanos;
+        }
+
+        @Override
+        public void rewind() {
+            capture.set(Videoio.CAP_PROP_POS_FRAMES, 0);
+        }
+
+        @Override
+        public void release() {
+            capture.release();
+        }
+    }
+
+    private final Path path;
+    private final Source source;
+    private final FrameStaticProperties properties;
+    private final MatRing ring = new MatRing(RING_SIZE);
+
+    private volatile ReplayTiming timing = ReplayTiming.ORIGINAL;
+    private volatile long fixedPeriodNanos = 1_000_000_000L / 30;
+    private volatile boolean looping = true;
+    private volatile boolean resetPacing = true;
+    private volatile boolean finished = false;
+    private volatile int passCount = 0;
+
+    // Pacing state, only touched by the capture thread. firstRecordedNanos is the recorded
+    // timestamp of the first frame paced against, and firstDeliveredNanos is when it was handed out
+    private long firstRecordedNanos;
+    private long firstDeliveredNanos;
+    private long lastDeliveredNanos;
+
+    private final List<Double> passLatencies = new ArrayList<>();
+    private LatencySummary lastPassLatency;
+
+    /**
+     * Instantiates a new ReplayFrameProvider, which plays at the original rate and loops.
+     *
+     * @param path A frame recording (file or directory of segments), or a video file
+     * @param fov The diagonal FOV of the camera that recorded it
+     */
+    public ReplayFrameProvider(Path path, double fov) {
+        this(path, fov, null);
+    }
+
+    /**
+     * Instantiates a new ReplayFrameProvider, which plays at the original rate and loops.
+     *
+     * @param path A frame recording (file or directory of segments), or a video file
+     * @param fov The diagonal FOV of the camera that recorded it
+     * @param calibration The calibration of the camera that recorded it, or null
+     */
+    public ReplayFrameProvider(Path path, double fov, CameraCalibrationCoefficients calibration) {
+        if (!Files.exists(path))
+            throw new RuntimeException("Invalid path for replay: " + path.toAbsolutePath());
+        this.path = path;
+
+        if (Files.isDirectory(path) || path.toString().endsWith(FrameRecording.SEGMENT_EXTENSION)) {
+            try {
+                source = new RecordingSource(new FrameRecordingReader(path));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to open recording " + path, e);
+            }
+        } else {
+            var capture = new VideoCapture(path.toString());
+            if (!capture.isOpened()) {
+                capture.release();
+                throw new RuntimeException("Failed to open video " + path);
+            }
+            source = new VideoSource(capture);
+        }
+
+        // Peek at the first frame for its size
+        var first = new Mat();
+        if (!source.read(first)) {
+            first.release();
+            source.release();
+            throw new RuntimeException("No frames to replay in " + path);
+        }
+        properties = new FrameStaticProperties(first.width(), first.height(), fov, calibration);
+        first.release();
+        source.rewind();
+    }
+
+    /** Set how frames are paced. Pacing restarts from the next frame. */
+    public void setTiming(ReplayTiming timing) {
+        this.timing = timing;
+        resetPacing = true;
+    }
+
+    public ReplayTiming getTiming() {
+        return timing;
+    }
+
+    /** Set the rate frames are handed out at with {@link ReplayTiming#FIXED_RATE}. */
+    public void setFixedFps(double fps) {
+        fixedPeriodNanos = (long) (1e9 / fps);
+    }
+
+    /**
+     * Set whether to start over at the end of the recording. Otherwise, empty frames are handed out
+     * once every frame has been played.
+     */
+    public void setLooping(boolean looping) {
+        this.looping = looping;
+    }
+
+    /** Whether a non-looping replay has played every frame. */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /** The number of times every frame has been played. */
+    public int getPassCount() {
+        return passCount;
+    }
+
+    /**
+     * The end-to-end latency of each frame in the last full pass, from when it was handed out to
+     * when its result was handed off.
+     *
+     * @return The summary, or null if no pass has been processed yet
+     */
+    public synchronized LatencySummary getLastPassLatency() {
+        return lastPassLatency;
+    }
+
+    /** The end-to-end latency of each frame processed so far in this pass, or null if none. */
+    public synchronized LatencySummary getCurrentPassLatency() {
+        return passLatencies.isEmpty() ? null : new LatencySummary(passLatencies);
+    }
+
+    @Override
+    public CapturedFrame getInputMat() {
+        var out = ring.take();
+        if (!readNext(out.getMat())) {
+            out.release();
+            try {
+                Thread.sleep(FINISHED_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new CapturedFrame(new CVMat(), properties, MathUtils.wpiNanoTime());
+        }
+
+        pace(source.getTimestampNanos());
+
+        lastDeliveredNanos = MathUtils.wpiNanoTime();
+        return new CapturedFrame(out, properties, lastDeliveredNanos);
+    }
+
+    @Override
+    public void onFrameProcessed(Frame frame) {
+        double latencyMillis = (MathUtils.wpiNanoTime() - frame.timestampNanos) / 1e6;
+        synchronized (this) {
+            passLatencies.add(latencyMillis);
+        }
+    }
+
+    /**
+     * Read the next frame, going back to the start at the end of the recording if we're looping.
+     *
+     * @return false if there's nothing left to play
+     */
+    private boolean readNext(Mat dest) {
+        if (finished) return false;
+        if (source.read(dest)) return true;
+
+        endPass();
+        if (looping) {
+            source.rewind();
+            resetPacing = true;
+            if (source.read(dest)) return true;
+        }
+
+        finished = true;
+        return false;
+    }
+
+    private synchronized void endPass() {
+        passCount++;
+        // Frames still in flight are counted against the next pass
+        if (!passLatencies.isEmpty()) {
+            lastPassLatency = new LatencySummary(passLatencies);
+            passLatencies.clear();
+            logger.info("Replay pass " + passCount + " of " + getName() + ": " + lastPassLatency);
+        }
+    }
+
+    /** Wait until the frame recorded at recordedNanos is due. */
+    private void pace(long recordedNanos) {
+        long now = MathUtils.wpiNanoTime();
+        if (resetPacing) {
+            resetPacing = false;
+            firstRecordedNanos = recordedNanos;
+            firstDeliveredNanos = now;
+            return;
+        }
+
+        long due;
+        switch (timing) {
+            case ORIGINAL:
+                due = firstDeliveredNanos + (recordedNanos - firstRecordedNanos);
+                break;
+            case FIXED_RATE:
+                due = lastDeliveredNanos + fixedPeriodNanos;
+                break;
+            case AS_FAST_AS_POSSIBLE:
+            default:
+                return;
+        }
+
+        long remaining = due - now;
+        if (remaining <= 0) return;
+        try {
+            Thread.sleep(remaining / 1_000_000, (int) (remaining % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void release() {
+        ring.release();
+        source.release();
+    }
+
+    @Override
+    public String getName() {
+        return "ReplayFrameProvider - " + path.getFileName();
+    }
+}
@@ -20,14 +20,25 @@ package org.photonvision.vision.frame.provider;
 import edu.wpi.first.cscore.CvSink;
 import org.photonvision.common.logging.LogGroup;
 import org.photonvision.common.logging.Logger;
-import org.photonvision.vision.opencv.CVMat;
+import org.photonvision.vision.opencv.MatRing;
 import org.photonvision.vision.processes.VisionSourceSettables;
 
 public class USBFrameProvider extends CpuImageProcessor {
     private static final Logger logger = new Logger(USBFrameProvider.class, LogGroup.Camera);
 
+    /**
+     * Capture buffers per camera. Frames are held by the vision thread and briefly by stream and
+     * snapshot threads, so this leaves some slack before capture has to allocate.
+     */
+    private static final int CAPTURE_RING_SIZE = 6;
+
     private final CvSink cvSink;
 
+    // Each grab fills a slot no other thread holds; slots are sized by the first frame grabbed
+    // into them and reused from then on. This only holds while nothing changes a slot's shape, so
+    // rotation and stream resizing write to separate buffers
+    private final MatRing captureRing = new MatRing(CAPTURE_RING_SIZE);
+
     @SuppressWarnings("SpellCheckingInspection")
     private final VisionSourceSettables settables;
 
@@ -40,7 +51,7 @@ public class USBFrameProvider extends CpuImageProcessor {
 
     @Override
     public CapturedFrame getInputMat() {
-        var mat = new CVMat(); // We do this so that we don't fill a Mat in use by another thread
+        var mat = captureRing.take();
         // This is from wpi::Now, or WPIUtilJNI.now()
         long time =
                 cvSink.grabFrame(mat.getMat())
@@ -54,6 +65,11 @@ public class USBFrameProvider extends CpuImageProcessor {
         return new CapturedFrame(mat, settables.getFrameStaticProperties(), time);
     }
 
+    @Override
+    public void release() {
+        captureRing.release();
+    }
+
     @Override
     public String getName() {
         return "USBFrameProvider - " + cvSink.getName();
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) Photon Vision.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.photonvision.vision.frame.recording;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfInt;
+import org.opencv.imgcodecs.Imgcodecs;
+
+/**
+ * The on-disk format for recorded frames. A recording is one file, or a directory of segment files
+ * that are read in name order. Each file is append-only: a header, then frame records back to back.
+ * A record cut short (e.g. by power loss mid-write) ends the file; everything before it is still
+ * readable.
+ *
+ * <pre>
+ * File header:  int magic ("PVRC"), int version
+ * Frame record: int marker ("FRME"), long timestampNanos, long sequenceID,
+ *               int width, int height, int cvType, int encoding,
+ *               int imageLength, int metadataLength,
+ *               byte[imageLength] image, byte[metadataLength] metadata
+ * </pre>
+ *
+ * <p>All values are big-endian. Timestamps are in the wpi::Now time base the frame was captured
+ * in. Metadata is opaque to the format; recorders may leave it empty.
+ */
+public final class FrameRecording {
+    public static final int FILE_MAGIC = 0x50565243; // "PVRC"
+    public static final int VERSION = 1;
+    public static final int FILE_HEADER_BYTES = 8;
+
+    public static final int RECORD_MARKER = 0x46524D45; // "FRME"
+    public static final int RECORD_HEADER_BYTES = 44;
+
+    public static final String SEGMENT_EXTENSION = ".pvr";
+
+    /** How a record's image bytes are stored. Written as the ordinal, so only append new ones. */
+    public enum Encoding {
+        /** The Mat's pixel data, row by row with no padding. */
+        RAW,
+        /** A JPEG of the image, for 8-bit 1 or 3 channel images. */
+        JPEG
+    }
+
+    private FrameRecording() {}
+
+    public static void writeFileHeader(DataOutput out) throws IOException {
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    /**
+     * Encode an image for a frame record.
+     *
+     * @param image The image to encode
+     * @param encoding How to encode it
+     * @param jpegQuality The JPEG quality in [0, 100], only used for JPEG
+     * @return The encoded bytes
+     */
+    public static byte[] encodeImage(Mat image, Encoding encoding, int jpegQuality) {
+        if (encoding == Encoding.JPEG) {
+            var buf = new MatOfByte();
+            Imgcodecs.imencode(
+                    ".jpg", image, buf, new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, jpegQuality));
+            var bytes = buf.toArray();
+            buf.release();
+            return bytes;
+        }
+
+        var bytes = new byte[(int) (image.total() * image.elemSize())];
+        if (image.isContinuous()) {
+            image.get(0, 0, bytes);
+        } else {
+            var continuous = image.clone();
+            continuous.get(0, 0, bytes);
+            continuous.release();
+        }
+        return bytes;
+    }
+
+    /**
+     * Append a frame record.
+     *
+     * @param out Where to write the record
+     * @param timestampNanos When the frame was captured
+     * @param sequenceID The frame's sequence ID
+     * @param image The image, which sets the record's width, height and type
+     * @param encoding How imageBytes was encoded
+     * @param imageBytes The image, from {@link #encodeImage}
+     * @param metadata Anything else to keep with the frame, or null for nothing
+     * @return The number of bytes written
+     */
+    public static int writeFrame(
+            DataOutput out,
+            long timestampNanos,
+            long sequenceID,
+            Mat image,
+            Encoding encoding,
+            byte[] imageBytes,
+            byte[] metadata)
+            throws IOException {
+        int metadataLength = metadata != null ? metadata.length : 0;
+
+        out.writeInt(RECORD_MARKER);
+        out.writeLong(timestampNanos);
+        out.writeLong(sequenceID);
+        out.writeInt(image.cols());
+        out.writeInt(image.rows());
+        out.writeInt(image.type());
+        out.writeInt(encoding.ordinal());
+        out.writeInt(imageBytes.length);
+        out.writeInt(metadataLength);
+        out.write(imageBytes);
+        if (metadataLength > 0) out.write(metadata);
+
+        return RECORD_HEADER_BYTES + imageBytes.length + metadataLength;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) Photon Vision.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.photonvision.vision.frame.recording;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.photonvision.common.logging.LogGroup;
+import org.photonvision.common.logging.Logger;
+
+/**
+ * Reads a {@link FrameRecording}. Segments are memory-mapped and indexed up front, so frames can
+ * be read in any order without reading the file through the Java heap first.
+ *
+ * <p>Reads only touch the mapped buffers through absolute positions, so one reader may be shared
+ * between threads.
+ */
+public class FrameRecordingReader {
+    private static final Logger logger = new Logger(FrameRecordingReader.class, LogGroup.General);
+
+    private static final FrameRecording.Encoding[] ENCODINGS = FrameRecording.Encoding.values();
+
+    private static class Entry {
+        final MappedByteBuffer segment;
+        final int offset;
+        final long timestampNanos;
+        final long sequenceID;
+        final int width;
+        final int height;
+        final int type;
+        // Null if the recorded value isn't one we know
+        final FrameRecording.Encoding encoding;
+        final int imageLength;
+        final int metadataLength;
+
+        Entry(MappedByteBuffer segment, int offset) {
+            this.segment = segment;
+            this.offset = offset;
+            this.timestampNanos = segment.getLong(offset + 4);
+            this.sequenceID = segment.getLong(offset + 12);
+            this.width = segment.getInt(offset + 20);
+            this.height = segment.getInt(offset + 24);
+            this.type = segment.getInt(offset + 28);
+            int encodingIndex = segment.getInt(offset + 32);
+            this.encoding =
+                    encodingIndex >= 0 && encodingIndex < ENCODINGS.length
+                            ? ENCODINGS[encodingIndex]
+                            : null;
+            this.imageLength = segment.getInt(offset + 36);
+            this.metadataLength = segment.getInt(offset + 40);
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Open a recording.
+     *
+     * @param path A segment file, or a directory of segment files
+     * @throws IOException If a segment can't be read, or isn't a recording
+     */
+    public FrameRecordingReader(Path path) throws IOException {
+        List<Path> segments;
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> files = Files.list(path)) {
+                segments =
+                        files
+                                .filter(FrameRecordingReader::isSegment)
+                                .sorted()
+                                .collect(Collectors.toList());
+            }
+        } else {
+            segments = List.of(path);
+        }
+
+        for (var segment : segments) {
+            index(segment);
+        }
+
+        if (entries.isEmpty()) throw new IOException("No frames recorded in " + path);
+    }
+
+    private static boolean isSegment(Path path) {
+        return path.getFileName().toString().endsWith(FrameRecording.SEGMENT_EXTENSION);
+    }
+
+    private void index(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Segment " + path + " is too large to map");
+            }
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        int size = buffer.capacity();
+        if (size < FrameRecording.FILE_HEADER_BYTES
+                || buffer.getInt(0) != FrameRecording.FILE_MAGIC) {
+            throw new IOException(path + " is not a frame recording");
+        }
+        if (buffer.getInt(4) != FrameRecording.VERSION) {
+            throw new IOException(path + " has unsupported version " + buffer.getInt(4));
+        }
+
+        int offset = FrameRecording.FILE_HEADER_BYTES;
+        while (offset < size) {
+            if (size - offset < FrameRecording.RECORD_HEADER_BYTES
+                    || buffer.getInt(offset) != FrameRecording.RECORD_MARKER) {
+                logger.warn("Recording " + path + " ends with a partial frame, skipping it");
+                break;
+            }
+            var entry = new Entry(buffer, offset);
+            if (entry.encoding == null
+                    || entry.imageLength < 0
+                    || entry.metadataLength < 0
+                    || entry.width < 0
+                    || entry.height < 0) {
+                logger.warn(
+                        "Recording "
+                                + path
+                                + " has a corrupt frame at byte "
+                                + offset
+                                + ", skipping the rest of it");
+                break;
+            }
+            if (entry.encoding == FrameRecording.Encoding.RAW && !isRawImageValid(entry)) {
+                logger.warn(
+                        "Recording "
+                                + path
+                                + " has a raw frame at byte "
+                                + offset
+                                + " that doesn't match its size and type,"
+                                + " skipping the rest of it");
+                break;
+            }
+            long end =
+                    (long) offset
+                            + FrameRecording.RECORD_HEADER_BYTES
+                            + entry.imageLength
+                            + entry.metadataLength;
+            if (end > size) {
+                logger.warn("Recording " + path + " ends with a partial frame, skipping it");
+                break;
+            }
+            entries.add(entry);
+            offset = (int) end;
+        }
+    }
+
+    /**
+     * Whether a raw frame can be put straight into a Mat. Its type has to be 8-bit, since that's
+     * all readImage can copy in, and its image has to be exactly width * height of that type.
+     */
+    private static boolean isRawImageValid(Entry entry) {
+        if (entry.type < 0) return false;
+        int depth = CvType.depth(entry.type);
+        if (depth != CvType.CV_8U && depth != CvType.CV_8S) return false;
+        if (CvType.channels(entry.type) > 4) return false;
+
+        long expectedLength = (long) entry.width * entry.height * CvType.ELEM_SIZE(entry.type);
+        return entry.imageLength == expectedLength;
+    }
+
+    public int getFrameCount() {
+        return entries.size();
+    }
+
+    /** When a frame was captured, in the recording's wpi::Now time base. */
+    public long getTimestampNanos(int index) {
+        return entries.get(index).timestampNanos;
+    }
+
+    public long getSequenceID(int index) {
+        return entries.get(index).sequenceID;
+    }
+
+    /**
+     * Get the metadata recorded with a frame.
+     *
+     * @return The metadata, which is empty if there was none
+     */
+    public byte[] getMetadata(int index) {
+        var entry = entries.get(index);
+        var metadata = new byte[entry.metadataLength];
+        var buffer = entry.segment.duplicate();
+        buffer.position(entry.offset + FrameRecording.RECORD_HEADER_BYTES + entry.imageLength);
+        buffer.get(metadata);
+        return metadata;
+    }
+
+    /**
+     * Read a frame's image.
+     *
+     * @param index Which frame to read
+     * @param dest Where to put the image. It's reallocated only if its size or type differs.
+     * @param scratch A buffer to reuse between reads, or null
+     * @return The scratch buffer, grown if it was too small. Pass it back in on the next read.
+     */
+    public byte[] readImage(int index, Mat dest, byte[] scratch) {
+        var entry = entries.get(index);
+        if (scratch == null || scratch.length < entry.imageLength) {
+            scratch = new byte[entry.imageLength];
+        }
+        var buffer = entry.segment.duplicate();
+        buffer.position(entry.offset + FrameRecording.RECORD_HEADER_BYTES);
+        buffer.get(scratch, 0, entry.imageLength);
+
+        if (entry.encoding == FrameRecording.Encoding.JPEG) {
+            var encoded = new MatOfByte();
+            encoded.fromArray(Arrays.copyOf(scratch, entry.imageLength));
+            var decoded = Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_UNCHANGED);
+            decoded.copyTo(dest);
+            decoded.release();
+            encoded.release();
+        } else {
+            dest.create(entry.height, entry.width, entry.type);
+            dest.put(0, 0, scratch, 0, entry.imageLength);
+        }
+        return scratch;
+    }
+}
@@ -17,20 +17,30 @@
 
 package org.photonvision.vision.opencv;
 
-import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.opencv.core.Mat;
 import org.photonvision.common.logging.LogGroup;
 import org.photonvision.common.logging.Logger;
 
+/**
+ * A reference-counted wrapper around an OpenCV Mat. A CVMat starts out with a single reference;
+ * anyone who wants to hold onto it past its owner (e.g. another thread) should {@link #retain()} it,
+ * and everyone holding a reference must {@link #release()} it exactly once. The underlying Mat is
+ * freed (or handed back to its {@link MatPool} or {@link MatRing}) when the last reference is
+ * released.
+ */
 public class CVMat implements Releasable {
     private static final Logger logger = new Logger(CVMat.class, LogGroup.General);
 
-    private static int allMatCounter = 0;
-    private static final HashMap<Mat, Integer> allMats = new HashMap<>();
+    private static final AtomicInteger allMatCounter = new AtomicInteger();
+    private static final AtomicInteger liveMatCount = new AtomicInteger();
 
     private static boolean shouldPrint;
 
     private final Mat mat;
+    private final MatRecycler recycler;
+    private final int matNo;
+    private final AtomicInteger refCount = new AtomicInteger(1);
 
     public CVMat() {
         this(new Mat());
@@ -57,28 +67,46 @@ public class CVMat implements Releasable {
     }
 
     public CVMat(Mat mat) {
+        this(mat, null);
+    }
+
+    CVMat(Mat mat, MatRecycler recycler) {
         this.mat = mat;
-        allMatCounter++;
-        allMats.put(mat, allMatCounter);
+        this.recycler = recycler;
+        matNo = allMatCounter.incrementAndGet();
+        int count = liveMatCount.incrementAndGet();
 
         if (shouldPrint) {
-            logger.trace(() -> "CVMat" + allMatCounter + " alloc - new count: " + allMats.size());
+            logger.trace(() -> "CVMat" + matNo + " alloc - new count: " + count);
             logger.trace(getStackTraceBuilder()::toString);
         }
     }
 
+    /**
+     * Add a reference to this Mat, so that it stays valid until a matching {@link #release()}.
+     *
+     * @return this
+     */
+    public CVMat retain() {
+        refCount.incrementAndGet();
+        return this;
+    }
+
     @Override
     public void release() {
-        // If this mat is empty, all we can do is return
-        if (mat.empty()) return;
-
-        // If the mat isn't in the hashmap, we can't remove it
-        Integer matNo = allMats.get(mat);
-        if (matNo != null) allMats.remove(mat);
-        mat.release();
+        // Only the last reference out frees the Mat. Extra releases are ignored rather than
+        // double-freeing (or double-pooling) it
+        if (refCount.decrementAndGet() != 0) return;
+
+        int count = liveMatCount.decrementAndGet();
+        if (recycler != null) {
+            recycler.recycle(mat);
+        } else {
+            mat.release();
+        }
 
         if (shouldPrint) {
-            logger.trace(() -> "CVMat" + matNo + " de-alloc - new count: " + allMats.size());
+            logger.trace(() -> "CVMat" + matNo + " de-alloc - new count: " + count);
             logger.trace(getStackTraceBuilder()::toString);
         }
     }
@@ -93,7 +121,7 @@ public class CVMat implements Releasable {
     }
 
     public static int getMatCount() {
-        return allMats.size();
+        return liveMatCount.get();
     }
 
     public static void enablePrint(boolean enabled) {
@@ -33,8 +33,10 @@ public class Contour implements Releasable {
 
     public final MatOfPoint mat;
 
-    private Double area = Double.NaN;
-    private Double perimeter = Double.NaN;
+    // Geometry is computed lazily and cached, since most contours are rejected before everything is
+    // looked at -- but anything that survives gets asked for the same values by several pipes
+    private double area = Double.NaN;
+    private double perimeter = Double.NaN;
     private MatOfPoint2f mat2f = null;
     private RotatedRect minAreaRect = null;
     private Rect boundingRect = null;
@@ -59,7 +61,8 @@ public class Contour implements Releasable {
 
     public MatOfPoint2f getMat2f() {
         if (mat2f == null) {
-            mat2f = new MatOfPoint2f(mat.toArray());
+            // Convert natively, rather than round-tripping every point through a Java Point[]
+            mat2f = new MatOfPoint2f();
             mat.convertTo(mat2f, CvType.CV_32F);
         }
         return mat2f;
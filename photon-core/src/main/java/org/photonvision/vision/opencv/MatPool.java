@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) Photon Vision.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.photonvision.vision.opencv;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.opencv.core.Mat;
+import org.photonvision.common.logging.LogGroup;
+import org.photonvision.common.logging.Logger;
+
+/**
+ * A pool of native Mats, keyed by size and type. Camera frames keep the same size and type, so
+ * once the pool is warm, taking a Mat from it does not allocate any native memory.
+ *
+ * <p>Mats taken from the pool are wrapped in a {@link CVMat} that returns them here once its last
+ * reference is released. The pool may be used from any thread.
+ */
+public class MatPool implements MatRecycler {
+    private static final Logger logger = new Logger(MatPool.class, LogGroup.General);
+
+    /** The most free Mats of a given size and type we keep around before releasing them. */
+    private static final int MAX_FREE_PER_KEY = 8;
+
+    private static class Singleton {
+        private static final MatPool INSTANCE = new MatPool();
+    }
+
+    public static MatPool getInstance() {
+        return Singleton.INSTANCE;
+    }
+
+    private final ConcurrentHashMap<Long, ArrayBlockingQueue<Mat>> freeMats =
+            new ConcurrentHashMap<>();
+
+    private final AtomicLong allocationCount = new AtomicLong();
+    private final AtomicLong reuseCount = new AtomicLong();
+
+    MatPool() {}
+
+    private static long key(int rows, int cols, int type) {
+        // Type is at most 12 bits (depth + channels), and no camera gets close to 2^24 pixels wide
+        return ((long) rows << 40) | ((long) cols << 16) | type;
+    }
+
+    /**
+     * Take a Mat of the given size and type from the pool, allocating a new one only if none are
+     * free. Its contents are undefined.
+     *
+     * @param rows The number of rows
+     * @param cols The number of columns
+     * @param type The OpenCV type, e.g. CvType.CV_8UC3
+     * @return A CVMat that returns its Mat to this pool once released
+     */
+    public CVMat take(int rows, int cols, int type) {
+        var free = freeMats.get(key(rows, cols, type));
+        Mat mat = free == null ? null : free.poll();
+
+        if (mat != null) {
+            reuseCount.incrementAndGet();
+        } else {
+            mat = new Mat(rows, cols, type);
+            allocationCount.incrementAndGet();
+        }
+
+        return new CVMat(mat, this);
+    }
+
+    /**
+     * Hand a Mat back to the pool. Its size and type may have changed since it was taken (pipes
+     * like resize work in place), so we file it under whatever it is now.
+     */
+    @Override
+    public void recycle(Mat mat) {
+        if (mat.empty()) {
+            mat.release();
+            return;
+        }
+
+        var free =
+                freeMats.computeIfAbsent(
+                        key(mat.rows(), mat.cols(), mat.type()),
+                        k -> new ArrayBlockingQueue<>(MAX_FREE_PER_KEY));
+        if (!free.offer(mat)) {
+            // Already holding plenty of these -- let this one go
+            mat.release();
+        }
+    }
+
+    /** Release every free Mat held by the pool, e.g. after a video mode change. */
+    public void clear() {
+        for (var free : freeMats.values()) {
+            Mat mat;
+            while ((mat = free.poll()) != null) {
+                mat.release();
+            }
+        }
+        logger.debug("Cleared Mat pool");
+    }
+
+    /** The number of Mats this pool has had to allocate. */
+    public long getAllocationCount() {
+        return allocationCount.get();
+    }
+
+    /** The number of times a Mat was handed out without allocating. */
+    public long getReuseCount() {
+        return reuseCount.get();
+    }
+}
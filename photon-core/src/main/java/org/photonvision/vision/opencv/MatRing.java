@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) Photon Vision.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.photonvision.vision.opencv;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.opencv.core.Mat;
+import org.photonvision.common.logging.LogGroup;
+import org.photonvision.common.logging.Logger;
+
+/**
+ * A fixed ring of preallocated Mats owned by a single capture source. Unlike the shared {@link
+ * MatPool}, a ring never grows: once every slot is out, extra frames get a temporary Mat that is
+ * freed instead of kept. In steady state this means capture does no native allocation and does not
+ * contend with other cameras, as long as nobody changes a slot's size or type in place; a slot that
+ * comes back a different shape is reallocated by its next capture. Pipes that change an image's
+ * shape, like rotation and resizing, write to a separate Mat for this reason.
+ *
+ * <p>Slots are handed out as {@link CVMat}s. Whoever keeps a frame past its producer (the vision
+ * thread, stream or snapshot threads) must {@link CVMat#retain()} it; the slot comes back to the
+ * ring when the last holder releases it.
+ */
+public class MatRing implements MatRecycler, Releasable {
+    private static final Logger logger = new Logger(MatRing.class, LogGroup.Camera);
+
+    private final int capacity;
+    private final ArrayBlockingQueue<Mat> free;
+    private volatile boolean closed = false;
+
+    private final AtomicLong takeCount = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    /**
+     * Create a ring of empty Mats. Each one is sized by whatever is first written into it (e.g.
+     * CvSink.grabFrame), and keeps that memory from then on.
+     *
+     * @param capacity The number of slots
+     */
+    public MatRing(int capacity) {
+        this.capacity = capacity;
+        this.free = new ArrayBlockingQueue<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            free.offer(new Mat());
+        }
+    }
+
+    /**
+     * Create a ring of Mats preallocated to the given size and type.
+     *
+     * @param capacity The number of slots
+     * @param rows The number of rows
+     * @param cols The number of columns
+     * @param type The OpenCV type, e.g. CvType.CV_8UC3
+     */
+    public MatRing(int capacity, int rows, int cols, int type) {
+        this.capacity = capacity;
+        this.free = new ArrayBlockingQueue<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            free.offer(new Mat(rows, cols, type));
+        }
+    }
+
+    /**
+     * Take the next free slot. If every slot is still held, a temporary Mat is allocated instead,
+     * which is freed rather than added to the ring once released.
+     *
+     * @return A CVMat that returns its Mat to this ring once released. Its contents are undefined.
+     */
+    public CVMat take() {
+        takeCount.incrementAndGet();
+        Mat mat = free.poll();
+        if (mat == null) {
+            // Consumers are holding on to every slot, so they're falling behind capture
+            if (overflowCount.getAndIncrement() == 0) {
+                logger.warn("All " + capacity + " capture buffers are in use, allocating more");
+            }
+            mat = new Mat();
+        }
+        return new CVMat(mat, this);
+    }
+
+    @Override
+    public void recycle(Mat mat) {
+        if (closed || !free.offer(mat)) {
+            mat.release();
+            return;
+        }
+        // The ring may have been released between checking and offering, after it had already
+        // drained the free slots, so nobody else would free this one
+        if (closed) drain();
+    }
+
+    /** Free every slot. Slots still held are freed as they come back. */
+    @Override
+    public void release() {
+        closed = true;
+        drain();
+    }
+
+    private void drain() {
+        Mat mat;
+        while ((mat = free.poll()) != null) {
+            mat.release();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** The number of slots not currently held by anyone. */
+    public int getFreeCount() {
+        return free.size();
+    }
+
+    /** The number of Mats handed out. */
+    public long getTakeCount() {
+        return takeCount.get();
+    }
+
+    /** The number of times every slot was in use and a temporary Mat had to be allocated. */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+}
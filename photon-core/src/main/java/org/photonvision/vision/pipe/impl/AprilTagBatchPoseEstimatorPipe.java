@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) Photon Vision.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.photonvision.vision.pipe.impl;
+
+import edu.wpi.first.apriltag.AprilTagDetection;
+import edu.wpi.first.apriltag.AprilTagPoseEstimate;
+import edu.wpi.first.apriltag.AprilTagPoseEstimator;
+import edu.wpi.first.apriltag.AprilTagPoseEstimator.Config;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import org.opencv.calib3d.Calib3d;
+import org.opencv.core.MatOfPoint2f;
+import org.photonvision.common.logging.LogGroup;
+import org.photonvision.common.logging.Logger;
+import org.photonvision.vision.calibration.CameraCalibrationCoefficients;
+import org.photonvision.vision.opencv.Releasable;
+import org.photonvision.vision.pipe.CVPipe;
+
+/**
+ * Estimates the pose of every detection in a list. All tag corners are undistorted in a single
+ * OpenCV call, and the orthogonal iteration solves are split across the common fork-join pool when
+ * there are enough tags to make it worthwhile. Estimates are returned in the same order as the
+ * input detections.
+ */
+public class AprilTagBatchPoseEstimatorPipe
+        extends CVPipe<
+                List<AprilTagDetection>,
+                List<AprilTagPoseEstimate>,
+                AprilTagBatchPoseEstimatorPipe.AprilTagPoseEstimatorPipeParams>
+        implements Releasable {
+    private static final Logger logger =
+            new Logger(AprilTagBatchPoseEstimatorPipe.class, LogGroup.VisionModule);
+
+    // Below this many tags, handing work to another thread costs more than it saves
+    private static final int MIN_PARALLEL_DETECTIONS = 4;
+
+    // The most chunks a batch is split into, this thread's included. The solves are short, so more
+    // would mostly add hand-off overhead, and leave less of the common pool for other cameras
+    private static final int MAX_CHUNKS = 4;
+
+    private final AprilTagPoseEstimator m_poseEstimator =
+            new AprilTagPoseEstimator(new AprilTagPoseEstimator.Config(0, 0, 0, 0, 0));
+
+    private final MatOfPoint2f cornerMat = new MatOfPoint2f();
+    private float[] cornerBuffer = new float[0];
+
+    private long lastUndistortNanos = 0;
+    private long lastSolveNanos = 0;
+
+    @Override
+    protected List<AprilTagPoseEstimate> process(List<AprilTagDetection> in) {
+        int count = in.size();
+        if (count == 0) {
+            lastUndistortNanos = 0;
+            lastSolveNanos = 0;
+            return List.of();
+        }
+
+        long undistortStart = System.nanoTime();
+        undistortCorners(in);
+        long solveStart = System.nanoTime();
+
+        var estimates = new AprilTagPoseEstimate[count];
+        if (count < MIN_PARALLEL_DETECTIONS) {
+            solveRange(in, estimates, 0, count);
+        } else {
+            solveParallel(in, estimates);
+        }
+
+        long solveEnd = System.nanoTime();
+        lastUndistortNanos = solveStart - undistortStart;
+        lastSolveNanos = solveEnd - solveStart;
+        logger.trace(
+                () ->
+                        "Solved "
+                                + count
+                                + " tags: undistort "
+                                + lastUndistortNanos / 1000
+                                + "us, solve "
+                                + lastSolveNanos / 1000
+                                + "us");
+
+        return Arrays.asList(estimates);
+    }
+
+    /** Undistorts the corners of every detection in place into {@link #cornerBuffer}. */
+    private void undistortCorners(List<AprilTagDetection> detections) {
+        int numPoints = detections.size() * 4;
+        if (cornerBuffer.length != numPoints * 2) {
+            cornerBuffer = new float[numPoints * 2];
+        }
+        if (cornerMat.rows() != numPoints) {
+            cornerMat.alloc(numPoints);
+        }
+
+        for (int i = 0; i < detections.size(); i++) {
+            var detection = detections.get(i);
+            for (int c = 0; c < 4; c++) {
+                cornerBuffer[i * 8 + c * 2] = (float) detection.getCornerX(c);
+                cornerBuffer[i * 8 + c * 2 + 1] = (float) detection.getCornerY(c);
+            }
+        }
+        cornerMat.put(0, 0, cornerBuffer);
+
+        Calib3d.undistortImagePoints(
+                cornerMat,
+                cornerMat,
+                params.calibration.getCameraIntrinsicsMat(),
+                params.calibration.getDistCoeffsMat());
+
+        cornerMat.get(0, 0, cornerBuffer);
+    }
+
+    private void solveParallel(
+            List<AprilTagDetection> detections, AprilTagPoseEstimate[] estimates) {
+        int count = detections.size();
+        // One chunk per worker we may use, plus one for this thread so it isn't just waiting
+        int workers = ForkJoinPool.getCommonPoolParallelism();
+        int chunks = Math.min(Math.min(MAX_CHUNKS, workers + 1), count);
+        var futures = new ArrayList<Future<?>>(chunks - 1);
+
+        for (int chunk = 1; chunk < chunks; chunk++) {
+            int start = chunk * count / chunks;
+            int end = (chunk + 1) * count / chunks;
+            futures.add(
+                    ForkJoinPool.commonPool()
+                            .submit(() -> solveRange(detections, estimates, start, end)));
+        }
+        solveRange(detections, estimates, 0, count / chunks);
+
+        for (var future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.error("Interrupted while waiting for AprilTag pose solves", e);
+            } catch (ExecutionException e) {
+                logger.error("AprilTag pose solve failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Solves detections in [start, end). Each call writes to disjoint slots of the output array,
+     * and the estimator only reads its config, so calls may run concurrently.
+     */
+    private void solveRange(
+            List<AprilTagDetection> detections,
+            AprilTagPoseEstimate[] estimates,
+            int start,
+            int end) {
+        for (int i = start; i < end; i++) {
+            // AprilTagPoseEstimator expects corners in the form [x1 y1 x2 y2 ...]
+            var fixedCorners = new double[8];
+            for (int j = 0; j < 8; j++) {
+                fixedCorners[j] = cornerBuffer[i * 8 + j];
+            }
+
+            estimates[i] =
+                    m_poseEstimator.estimateOrthogonalIteration(
+                            detections.get(i).getHomography(), fixedCorners, params.nIters);
+        }
+    }
+
+    /** Time spent undistorting corners on the last run, in nanoseconds. */
+    public long getLastUndistortNanos() {
+        return lastUndistortNanos;
+    }
+
+    /** Time spent in orthogonal iteration solves on the last run, in nanoseconds. */
+    public long getLastSolveNanos() {
+        return lastSolveNanos;
+    }
+
+    @Override
+    public void setParams(AprilTagPoseEstimatorPipeParams newParams) {
+        if (this.params == null || !this.params.equals(newParams)) {
+            m_poseEstimator.setConfig(newParams.config);
+        }
+
+        super.setParams(newParams);
+    }
+
+    @Override
+    public void release() {
+        cornerMat.release();
+    }
+
+    public static class AprilTagPoseEstimatorPipeParams {
+        final AprilTagPoseEstimator.Config config;
+        final CameraCalibrationCoefficients calibration;
+        final int nIters;
+
+        public AprilTagPoseEstimatorPipeParams(
+                Config config, CameraCalibrationCoefficients cal, int nIters) {
+            this.config = config;
+            this.nIters = nIters;
+            this.calibration = cal;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + ((config == null) ? 0 : config.hashCode());
+            result = prime * result + nIters;
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null) return false;
+            if (getClass() != obj.getClass()) return false;
+            AprilTagPoseEstimatorPipeParams other = (AprilTagPoseEstimatorPipeParams) obj;
+            if (config == null) {
+                if (other.config != null) return false;
+            } else if (!config.equals(other.config)) return false;
+            return nIters == other.nIters;
+        }
+    }
+}
@@ -19,15 +19,46 @@ package org.photonvision.vision.pipe.impl;
 
 import edu.wpi.first.apriltag.AprilTagDetection;
 import edu.wpi.first.apriltag.AprilTagDetector;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
 import org.photonvision.vision.opencv.CVMat;
 import org.photonvision.vision.opencv.Releasable;
 import org.photonvision.vision.pipe.CVPipe;
 
+/**
+ * Detects AprilTags in a greyscale image.
+ *
+ * <p>With ROI tracking enabled, frames after a full scan are only searched inside padded regions
+ * around the tags accepted on the previous frame (see {@link #setTrackedDetections}), shifted by
+ * each tag's last motion. These regions are searched without decimation. A full frame scan runs
+ * every {@link AprilTagDetectionPipeParams#fullScanInterval} frames, whenever a tracked tag is lost,
+ * and whenever nothing is being tracked, so new tags are still picked up.
+ */
 public class AprilTagDetectionPipe
         extends CVPipe<CVMat, List<AprilTagDetection>, AprilTagDetectionPipeParams>
         implements Releasable {
     private AprilTagDetector m_detector = new AprilTagDetector();
+    // Same config as m_detector but never decimated, for searching small regions
+    private AprilTagDetector m_roiDetector = new AprilTagDetector();
+
+    private final Mat roiMat = new Mat();
+
+    // Tag ID -> bounds from the last accepted detection, and that tag's center the frame before
+    private final Map<Integer, Rect> trackedBounds = new LinkedHashMap<>();
+    private final Map<Integer, Point> trackedCenters = new HashMap<>();
+    private final Map<Integer, Point> trackedVelocities = new HashMap<>();
+
+    private float currentDecimate = 1;
+
+    private int framesSinceFullScan = 0;
+    private boolean forceFullScan = true;
+    private boolean lastRunWasFullScan = true;
 
     public AprilTagDetectionPipe() {
         super();
@@ -46,7 +77,24 @@ public class AprilTagDetectionPipe
             throw new RuntimeException("Apriltag detector was released!");
         }
 
-        var ret = m_detector.detect(in.getMat());
+        var image = in.getMat();
+        if (!params.roiTracking
+                || forceFullScan
+                || trackedBounds.isEmpty()
+                || framesSinceFullScan >= params.fullScanInterval) {
+            framesSinceFullScan = 0;
+            forceFullScan = false;
+            lastRunWasFullScan = true;
+            return detectFull(image);
+        }
+
+        framesSinceFullScan++;
+        lastRunWasFullScan = false;
+        return detectInRegions(image);
+    }
+
+    private List<AprilTagDetection> detectFull(Mat image) {
+        var ret = m_detector.detect(image);
 
         if (ret == null) {
             return List.of();
@@ -55,6 +103,194 @@ public class AprilTagDetectionPipe
         return List.of(ret);
     }
 
+    private List<AprilTagDetection> detectInRegions(Mat image) {
+        var regions = predictRegions(image.cols(), image.rows());
+
+        // Keep the best detection of each ID in case a tag straddles two regions
+        var detectionsById = new LinkedHashMap<Integer, AprilTagDetection>();
+        for (var region : regions) {
+            // Copy out so the detector gets a contiguous buffer
+            var submat = image.submat(region);
+            submat.copyTo(roiMat);
+            submat.release();
+            var ret = m_roiDetector.detect(roiMat);
+            if (ret == null) continue;
+
+            for (var detection : ret) {
+                var shifted = offsetDetection(detection, region.x, region.y);
+                var existing = detectionsById.get(shifted.getId());
+                if (existing == null || existing.getDecisionMargin() < shifted.getDecisionMargin()) {
+                    detectionsById.put(shifted.getId(), shifted);
+                }
+            }
+        }
+
+        // Something we were tracking went missing, look over the whole frame next time
+        if (!detectionsById.keySet().containsAll(trackedBounds.keySet())) {
+            forceFullScan = true;
+        }
+
+        return new ArrayList<>(detectionsById.values());
+    }
+
+    /** Padded, motion-compensated regions around each tracked tag, merged where they overlap. */
+    private List<Rect> predictRegions(int imageWidth, int imageHeight) {
+        var regions = new ArrayList<Rect>();
+        for (var entry : trackedBounds.entrySet()) {
+            var bounds = entry.getValue();
+            var velocity = trackedVelocities.get(entry.getKey());
+            double dx = velocity != null ? velocity.x : 0;
+            double dy = velocity != null ? velocity.y : 0;
+            int pad = (int) Math.ceil(Math.max(bounds.width, bounds.height) * params.roiPadding);
+
+            int x0 = clamp((int) Math.floor(bounds.x + dx) - pad, 0, imageWidth);
+            int y0 = clamp((int) Math.floor(bounds.y + dy) - pad, 0, imageHeight);
+            int x1 = clamp((int) Math.ceil(bounds.x + bounds.width + dx) + pad, 0, imageWidth);
+            int y1 = clamp((int) Math.ceil(bounds.y + bounds.height + dy) + pad, 0, imageHeight);
+            if (x1 - x0 < 8 || y1 - y0 < 8) continue;
+
+            regions.add(new Rect(x0, y0, x1 - x0, y1 - y0));
+        }
+
+        // Merge overlapping regions until none overlap, so no area is searched twice
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            outer:
+            for (int i = 0; i < regions.size(); i++) {
+                for (int j = i + 1; j < regions.size(); j++) {
+                    var a = regions.get(i);
+                    var b = regions.get(j);
+                    if (a.x < b.x + b.width
+                            && b.x < a.x + a.width
+                            && a.y < b.y + b.height
+                            && b.y < a.y + a.height) {
+                        int x0 = Math.min(a.x, b.x);
+                        int y0 = Math.min(a.y, b.y);
+                        int x1 = Math.max(a.x + a.width, b.x + b.width);
+                        int y1 = Math.max(a.y + a.height, b.y + b.height);
+                        regions.set(i, new Rect(x0, y0, x1 - x0, y1 - y0));
+                        regions.remove(j);
+                        merged = true;
+                        break outer;
+                    }
+                }
+            }
+        }
+
+        return regions;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /** Moves a detection made in a sub-image back into full image coordinates. */
+    private static AprilTagDetection offsetDetection(AprilTagDetection in, int dx, int dy) {
+        if (dx == 0 && dy == 0) return in;
+
+        var corners = in.getCorners();
+        for (int i = 0; i < corners.length; i += 2) {
+            corners[i] += dx;
+            corners[i + 1] += dy;
+        }
+
+        // Translating the image is a left-multiply of the homography by [1 0 dx; 0 1 dy; 0 0 1]
+        var h = in.getHomography();
+        for (int col = 0; col < 3; col++) {
+            h[col] += dx * h[6 + col];
+            h[3 + col] += dy * h[6 + col];
+        }
+
+        return new AprilTagDetection(
+                in.getFamily(),
+                in.getId(),
+                in.getHamming(),
+                in.getDecisionMargin(),
+                h,
+                in.getCenterX() + dx,
+                in.getCenterY() + dy,
+                corners);
+    }
+
+    /**
+     * Sets the detections to track into the next frame. Callers should pass only the detections they
+     * accepted, so rejected false positives don't keep regions alive.
+     *
+     * @param detections Accepted detections from the frame just processed
+     */
+    public void setTrackedDetections(List<AprilTagDetection> detections) {
+        if (params == null || !params.roiTracking) return;
+
+        trackedBounds.clear();
+        var newCenters = new HashMap<Integer, Point>();
+        var newVelocities = new HashMap<Integer, Point>();
+        for (var detection : detections) {
+            double minX = Double.MAX_VALUE;
+            double minY = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE;
+            double maxY = -Double.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                minX = Math.min(minX, detection.getCornerX(i));
+                minY = Math.min(minY, detection.getCornerY(i));
+                maxX = Math.max(maxX, detection.getCornerX(i));
+                maxY = Math.max(maxY, detection.getCornerY(i));
+            }
+            int x = (int) Math.floor(minX);
+            int y = (int) Math.floor(minY);
+            trackedBounds.put(
+                    detection.getId(),
+                    new Rect(x, y, (int) Math.ceil(maxX) - x, (int) Math.ceil(maxY) - y));
+
+            var center = new Point(detection.getCenterX(), detection.getCenterY());
+            var lastCenter = trackedCenters.get(detection.getId());
+            if (lastCenter != null) {
+                newVelocities.put(
+                        detection.getId(), new Point(center.x - lastCenter.x, center.y - lastCenter.y));
+            }
+            newCenters.put(detection.getId(), center);
+        }
+
+        trackedCenters.clear();
+        trackedCenters.putAll(newCenters);
+        trackedVelocities.clear();
+        trackedVelocities.putAll(newVelocities);
+    }
+
+    /** Whether the last run searched the whole frame rather than just tracked regions. */
+    public boolean wasLastRunFullScan() {
+        return lastRunWasFullScan;
+    }
+
+    /**
+     * Changes the decimation used for full frame scans without touching anything else, so this is
+     * cheap to call every frame and doesn't reset ROI tracking.
+     */
+    public void setQuadDecimate(float decimate) {
+        if (params == null || m_detector == null || decimate == currentDecimate) return;
+
+        m_detector.setConfig(copyConfig(params.detectorParams, decimate));
+        currentDecimate = decimate;
+    }
+
+    private static AprilTagDetector.Config copyConfig(AprilTagDetector.Config in, float decimate) {
+        var config = new AprilTagDetector.Config();
+        config.numThreads = in.numThreads;
+        config.quadDecimate = decimate;
+        config.quadSigma = in.quadSigma;
+        config.refineEdges = in.refineEdges;
+        config.decodeSharpening = in.decodeSharpening;
+        config.debug = in.debug;
+        return config;
+    }
+
+    private void resetTracking() {
+        trackedBounds.clear();
+        trackedCenters.clear();
+        trackedVelocities.clear();
+        forceFullScan = true;
+    }
+
     @Override
     public void setParams(AprilTagDetectionPipeParams newParams) {
         if (this.params == null || !this.params.equals(newParams)) {
@@ -62,6 +298,14 @@ public class AprilTagDetectionPipe
 
             m_detector.clearFamilies();
             m_detector.addFamily(newParams.family.getNativeName());
+
+            currentDecimate = newParams.detectorParams.quadDecimate;
+            m_roiDetector.setConfig(copyConfig(newParams.detectorParams, 1));
+
+            m_roiDetector.clearFamilies();
+            m_roiDetector.addFamily(newParams.family.getNativeName());
+
+            resetTracking();
         }
 
         super.setParams(newParams);
@@ -71,5 +315,8 @@ public class AprilTagDetectionPipe
     public void release() {
         m_detector.close();
         m_detector = null;
+        m_roiDetector.close();
+        m_roiDetector = null;
+        roiMat.release();
     }
 }
@@ -24,9 +24,30 @@ public class AprilTagDetectionPipeParams {
     public final AprilTagFamily family;
     public final AprilTagDetector.Config detectorParams;
 
+    /** If true, detect only around previously tracked tags between full frame scans. */
+    public final boolean roiTracking;
+
+    /** Padding added on each side of a tracked tag's bounds, as a fraction of the tag's size. */
+    public final double roiPadding;
+
+    /** Maximum number of frames between full frame scans while tracking. */
+    public final int fullScanInterval;
+
     public AprilTagDetectionPipeParams(AprilTagFamily tagFamily, AprilTagDetector.Config config) {
+        this(tagFamily, config, false, 0, 1);
+    }
+
+    public AprilTagDetectionPipeParams(
+            AprilTagFamily tagFamily,
+            AprilTagDetector.Config config,
+            boolean roiTracking,
+            double roiPadding,
+            int fullScanInterval) {
         this.family = tagFamily;
         this.detectorParams = config;
+        this.roiTracking = roiTracking;
+        this.roiPadding = roiPadding;
+        this.fullScanInterval = fullScanInterval;
     }
 
     @Override
@@ -35,6 +56,10 @@ public class AprilTagDetectionPipeParams {
         int result = 1;
         result = prime * result + ((family == null) ? 0 : family.hashCode());
         result = prime * result + ((detectorParams == null) ? 0 : detectorParams.hashCode());
+        result = prime * result + (roiTracking ? 1231 : 1237);
+        long temp = Double.doubleToLongBits(roiPadding);
+        result = prime * result + (int) (temp ^ (temp >>> 32));
+        result = prime * result + fullScanInterval;
         return result;
     }
 
@@ -45,6 +70,10 @@ public class AprilTagDetectionPipeParams {
         if (getClass() != obj.getClass()) return false;
         AprilTagDetectionPipeParams other = (AprilTagDetectionPipeParams) obj;
         if (family != other.family) return false;
+        if (roiTracking != other.roiTracking) return false;
+        if (Double.doubleToLongBits(roiPadding) != Double.doubleToLongBits(other.roiPadding))
+            return false;
+        if (fullScanInterval != other.fullScanInterval) return false;
         if (detectorParams == null) {
             return other.detectorParams == null;
         } else return detectorParams.equals(other.detectorParams);
@@ -20,7 +20,10 @@ package org.photonvision.vision.pipe.impl;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.opencv.calib3d.Calib3d;
 import org.opencv.core.*;
 import org.photonvision.common.logging.LogGroup;
@@ -54,9 +57,23 @@ public class Calibrate3dPipe
         }
     }
 
+    /** Receives progress updates while calibrating. May be called from several threads at once. */
+    public interface ProgressListener {
+        /**
+         * @param stage What calibration is doing, e.g. {@link #STAGE_SOLVING}
+         * @param fraction How far through that stage it is, in [0, 1]
+         */
+        void onProgress(String stage, double fraction);
+    }
+
+    public static final String STAGE_SOLVING = "solving";
+    public static final String STAGE_REPROJECTING = "reprojecting";
+
     // For logging
     private static final Logger logger = new Logger(Calibrate3dPipe.class, LogGroup.General);
 
+    private volatile ProgressListener progressListener = (stage, fraction) -> {};
+
     // The Standard deviation of the estimated parameters
     private final Mat stdDeviationsIntrinsics = new Mat();
     private final Mat stdDeviationsExtrinsics = new Mat();
@@ -66,6 +83,10 @@ public class Calibrate3dPipe
     // finding the Euclidean distance between the actual corners.
     private final Mat perViewErrors = new Mat();
 
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
     /**
      * Runs the process for the pipe.
      *
@@ -86,6 +107,7 @@ public class Calibrate3dPipe
 
         CameraCalibrationCoefficients ret;
         var start = System.nanoTime();
+        progressListener.onProgress(STAGE_SOLVING, 0);
         if (MrCalJNILoader.getInstance().isLoaded() && params.useMrCal) {
             logger.debug("Calibrating with mrcal!");
             ret =
@@ -320,81 +342,121 @@ public class Calibrate3dPipe
             List<Mat> rvecs,
             List<Mat> tvecs,
             double[] calobject_warp) {
-        List<Mat> objPoints = in.stream().map(it -> it.objectPoints).collect(Collectors.toList());
-        List<Mat> imgPts = in.stream().map(it -> it.imagePoints).collect(Collectors.toList());
-
-        // For each observation, calc reprojection error
-        Mat jac_temp = new Mat();
-        List<BoardObservation> observations = new ArrayList<>();
-        for (int i = 0; i < objPoints.size(); i++) {
-            MatOfPoint3f i_objPtsNative = new MatOfPoint3f();
-            objPoints.get(i).copyTo(i_objPtsNative);
-            var i_objPts = i_objPtsNative.toList();
-            var i_imgPts = ((MatOfPoint2f) imgPts.get(i)).toList();
-
-            // Apply warp, if set
-            if (calobject_warp != null && calobject_warp.length == 2) {
-                // mrcal warp model!
-                // The chessboard spans [-1, 1] on the x and y axies. We then let
-                // z=k_x(1-x^2)+k_y(1-y^2)
-
-                double xmin = 0;
-                double ymin = 0;
-                double xmax = params.boardWidth * params.squareSize;
-                double ymax = params.boardHeight * params.squareSize;
-                double k_x = calobject_warp[0];
-                double k_y = calobject_warp[1];
-
-                // Convert to list, remap z, and back to cv::Mat
-                var list = i_objPtsNative.toArray();
-                for (var pt : list) {
-                    double x_norm = MathUtils.map(pt.x, xmin, xmax, -1, 1);
-                    double y_norm = MathUtils.map(pt.y, ymin, ymax, -1, 1);
-                    pt.z = k_x * (1 - x_norm * x_norm) + k_y * (1 - y_norm * y_norm);
-                }
-                i_objPtsNative.fromArray(list);
-            }
+        var listener = progressListener;
+        listener.onProgress(STAGE_SOLVING, 1);
+        listener.onProgress(STAGE_REPROJECTING, 0);
+
+        // Views are independent of each other, and encoding each one's image for the UI is the slow
+        // part, so they're done in parallel. The camera model is shared, but only read
+        int count = in.size();
+        var done = new AtomicInteger();
+        return IntStream.range(0, count)
+                .parallel()
+                .mapToObj(
+                        i -> {
+                            var observation =
+                                    createObservation(
+                                            in.get(i),
+                                            i,
+                                            cameraMatrix_,
+                                            distortionCoefficients_,
+                                            rvecs.get(i),
+                                            tvecs.get(i),
+                                            calobject_warp);
+                            listener.onProgress(
+                                    STAGE_REPROJECTING, done.incrementAndGet() / (double) count);
+                            return observation;
+                        })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
 
-            var img_pts_reprojected = new MatOfPoint2f();
-            try {
-                Calib3d.projectPoints(
-                        i_objPtsNative,
-                        rvecs.get(i),
-                        tvecs.get(i),
-                        cameraMatrix_,
-                        distortionCoefficients_,
-                        img_pts_reprojected,
-                        jac_temp,
-                        0.0);
-            } catch (Exception e) {
-                e.printStackTrace();
-                continue;
-            }
-            var img_pts_reprojected_list = img_pts_reprojected.toList();
-
-            var reprojectionError = new ArrayList<Point>();
-            for (int j = 0; j < img_pts_reprojected_list.size(); j++) {
-                // error = (measured - expected)
-                var measured = img_pts_reprojected_list.get(j);
-                var expected = i_imgPts.get(j);
-                var error = new Point(measured.x - expected.x, measured.y - expected.y);
-                reprojectionError.add(error);
+    /**
+     * Calculate the reprojection error of one view.
+     *
+     * @return The observation, or null if the board's points couldn't be projected
+     */
+    private BoardObservation createObservation(
+            FindBoardCornersPipe.FindBoardCornersPipeResult view,
+            int index,
+            Mat cameraMatrix_,
+            MatOfDouble distortionCoefficients_,
+            Mat rvec,
+            Mat tvec,
+            double[] calobject_warp) {
+        MatOfPoint3f i_objPtsNative = new MatOfPoint3f();
+        view.objectPoints.copyTo(i_objPtsNative);
+        var i_objPts = i_objPtsNative.toList();
+        var i_imgPts = view.imagePoints.toList();
+
+        // Apply warp, if set
+        if (calobject_warp != null && calobject_warp.length == 2) {
+            // mrcal warp model!
+            // The chessboard spans [-1, 1] on the x and y axies. We then let
+            // z=k_x(1-x^2)+k_y(1-y^2)
+
+            double xmin = 0;
+            double ymin = 0;
+            double xmax = params.boardWidth * params.squareSize;
+            double ymax = params.boardHeight * params.squareSize;
+            double k_x = calobject_warp[0];
+            double k_y = calobject_warp[1];
+
+            // Convert to list, remap z, and back to cv::Mat
+            var list = i_objPtsNative.toArray();
+            for (var pt : list) {
+                double x_norm = MathUtils.map(pt.x, xmin, xmax, -1, 1);
+                double y_norm = MathUtils.map(pt.y, ymin, ymax, -1, 1);
+                pt.z = k_x * (1 - x_norm * x_norm) + k_y * (1 - y_norm * y_norm);
             }
+            i_objPtsNative.fromArray(list);
+        }
 
-            var camToBoard = MathUtils.opencvRTtoPose3d(rvecs.get(i), tvecs.get(i));
-
-            JsonImageMat image = null;
-            var inputImage = in.get(i).inputImage;
-            if (inputImage != null) {
-                image = new JsonImageMat(inputImage);
-            }
-            observations.add(
-                    new BoardObservation(
-                            i_objPts, i_imgPts, reprojectionError, camToBoard, true, "img" + i + ".png", image));
+        var img_pts_reprojected = new MatOfPoint2f();
+        var jac_temp = new Mat();
+        try {
+            Calib3d.projectPoints(
+                    i_objPtsNative,
+                    rvec,
+                    tvec,
+                    cameraMatrix_,
+                    distortionCoefficients_,
+                    img_pts_reprojected,
+                    jac_temp,
+                    0.0);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            jac_temp.release();
+            i_objPtsNative.release();
         }
-        jac_temp.release();
+        var img_pts_reprojected_list = img_pts_reprojected.toList();
+        img_pts_reprojected.release();
+
+        var reprojectionError = new ArrayList<Point>();
+        for (int j = 0; j < img_pts_reprojected_list.size(); j++) {
+            // error = (measured - expected)
+            var measured = img_pts_reprojected_list.get(j);
+            var expected = i_imgPts.get(j);
+            var error = new Point(measured.x - expected.x, measured.y - expected.y);
+            reprojectionError.add(error);
+        }
+
+        var camToBoard = MathUtils.opencvRTtoPose3d(rvec, tvec);
 
-        return observations;
+        JsonImageMat image = null;
+        if (view.inputImage != null) {
+            image = new JsonImageMat(view.inputImage);
+        }
+        return new BoardObservation(
+                i_objPts,
+                i_imgPts,
+                reprojectionError,
+                camToBoard,
+                true,
+                "img" + index + ".png",
+                image);
     }
 
     /** Delete all rows of mats where level is < 0. Useful for opencv */
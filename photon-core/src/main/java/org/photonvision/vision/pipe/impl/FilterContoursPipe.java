@@ -44,36 +44,44 @@ public class FilterContoursPipe
     }
 
     private void rejectOutliers(List<Contour> list, double xTol, double yTol) {
-        if (list.size() < 2) return; // Must have at least 2 points to reject outliers
-
-        double meanX = list.stream().mapToDouble(it -> it.getCenterPoint().x).sum() / list.size();
-
-        double stdDevX =
-                list.stream().mapToDouble(it -> Math.pow(it.getCenterPoint().x - meanX, 2.0)).sum();
-        stdDevX /= (list.size() - 1);
-        stdDevX = Math.sqrt(stdDevX);
-
-        double meanY = list.stream().mapToDouble(it -> it.getCenterPoint().y).sum() / list.size();
-
-        double stdDevY =
-                list.stream().mapToDouble(it -> Math.pow(it.getCenterPoint().y - meanY, 2.0)).sum();
-        stdDevY /= (list.size() - 1);
-        stdDevY = Math.sqrt(stdDevY);
+        int count = list.size();
+        if (count < 2) return; // Must have at least 2 points to reject outliers
+
+        double sumX = 0;
+        double sumY = 0;
+        for (int i = 0; i < count; i++) {
+            var center = list.get(i).getCenterPoint();
+            sumX += center.x;
+            sumY += center.y;
+        }
+        double meanX = sumX / count;
+        double meanY = sumY / count;
+
+        double varX = 0;
+        double varY = 0;
+        for (int i = 0; i < count; i++) {
+            var center = list.get(i).getCenterPoint();
+            varX += (center.x - meanX) * (center.x - meanX);
+            varY += (center.y - meanY) * (center.y - meanY);
+        }
+        double stdDevX = Math.sqrt(varX / (count - 1));
+        double stdDevY = Math.sqrt(varY / (count - 1));
 
-        for (var it = list.iterator(); it.hasNext(); ) {
+        // Compact the list in place, keeping order, instead of removing one element at a time
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
             // Reject points more than N standard devs above/below median
             // That is, |point - median| > std dev * tol
-            Contour c = it.next();
-            double x = c.getCenterPoint().x;
-            double y = c.getCenterPoint().y;
-
-            if (Math.abs(x - meanX) > stdDevX * xTol) {
-                it.remove();
-            } else if (Math.abs(y - meanY) > stdDevY * yTol) {
-                it.remove();
-            }
+            Contour c = list.get(i);
+            var center = c.getCenterPoint();
+
+            if (Math.abs(center.x - meanX) > stdDevX * xTol) continue;
+            if (Math.abs(center.y - meanY) > stdDevY * yTol) continue;
+
             // Otherwise we're good! Keep it in
+            list.set(kept++, c);
         }
+        list.subList(kept, count).clear();
     }
 
     private void filterContour(Contour contour) {
@@ -93,8 +101,7 @@ public class FilterContoursPipe
         if (contourArea <= minFullness || contourArea >= maxFullness) return;
 
         // Aspect Ratio Filtering.
-        double aspectRatio =
-                TargetCalculations.getAspectRatio(contour.getMinAreaRect(), params.isLandscape);
+        double aspectRatio = TargetCalculations.getAspectRatio(minAreaRect, params.isLandscape);
         if (aspectRatio < params.getRatio().getFirst() || aspectRatio > params.getRatio().getSecond())
             return;
 
@@ -38,7 +38,6 @@ public class FilterShapesPipe
     protected List<CVShape> process(List<CVShape> in) {
         outputList.forEach(CVShape::release);
         outputList.clear();
-        outputList = new ArrayList<>();
 
         for (var shape : in) {
             if (!shouldRemove(shape)) outputList.add(shape);
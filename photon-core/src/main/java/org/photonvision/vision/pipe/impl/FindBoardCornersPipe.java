@@ -242,8 +242,9 @@ public class FindBoardCornersPipe
         var inFrame = in.getLeft();
         var outFrame = in.getRight();
 
-        // Convert the inFrame too grayscale to increase contrast
-        Imgproc.cvtColor(inFrame, inFrame, Imgproc.COLOR_BGR2GRAY);
+        // Convert the inFrame too grayscale to increase contrast. A preview pass may have already
+        // converted this frame
+        if (inFrame.channels() == 3) Imgproc.cvtColor(inFrame, inFrame, Imgproc.COLOR_BGR2GRAY);
         boolean boardFound = false;
 
         // Get the size of the inFrame
@@ -257,7 +258,18 @@ public class FindBoardCornersPipe
             // camera sensor frame posed relative to the target
             Mat detectedCorners = new Mat(); // currentCharucoCorners
             Mat detectedIds = new Mat(); // currentCharucoIds
-            detector.detectBoard(inFrame, detectedCorners, detectedIds);
+            if (!params.refine && params.divisor != FrameDivisor.NONE) {
+                // Previews only need to show roughly where the board is, so detect on a smaller
+                // image and scale the corners back up
+                Imgproc.resize(inFrame, smallerInFrame, getFindCornersImgSize(inFrame));
+                detector.detectBoard(smallerInFrame, detectedCorners, detectedIds);
+                double scale = 1.0 / getFindCornersScaleFactor(inFrame);
+                if (!detectedCorners.empty()) {
+                    Core.multiply(detectedCorners, new Scalar(scale, scale), detectedCorners);
+                }
+            } else {
+                detector.detectBoard(inFrame, detectedCorners, detectedIds);
+            }
 
             // reformat the Mat to a List<Mat> for matchImagePoints
             final List<Mat> detectedCornersList = new ArrayList<>();
@@ -324,16 +336,17 @@ public class FindBoardCornersPipe
             // this since we
             // don't need that copy. See:
             // https://github.com/opencv/opencv/blob/a8ec6586118c3f8e8f48549a85f2da7a5b78bcc9/modules/imgproc/src/resize.cpp#L4185
+            // We mustn't keep a reference to inFrame in smallerInFrame either, since it isn't ours
+            Mat searchFrame = inFrame;
             if (params.divisor != FrameDivisor.NONE) {
                 Imgproc.resize(inFrame, smallerInFrame, getFindCornersImgSize(inFrame));
-            } else {
-                smallerInFrame = inFrame;
+                searchFrame = smallerInFrame;
             }
 
             // Run the chessboard corner finder on the smaller image
             boardFound =
                     Calib3d.findChessboardCorners(
-                            smallerInFrame, patternSize, smallerBoardCorners, findChessboardFlags);
+                            searchFrame, patternSize, smallerBoardCorners, findChessboardFlags);
 
             if (!boardFound) {
                 return null;
@@ -345,9 +358,16 @@ public class FindBoardCornersPipe
 
             objectPoints.copyTo(objPts);
 
-            // Do sub corner pix for drawing chessboard when using OpenCV
-            Imgproc.cornerSubPix(
-                    inFrame, outBoardCorners, getWindowSize(outBoardCorners), zeroZone, criteria);
+            // Refine to sub-pixel accuracy at full resolution. Previews skip this, since it's the
+            // most expensive step and the corners are only drawn
+            if (params.refine) {
+                Imgproc.cornerSubPix(
+                        inFrame,
+                        outBoardCorners,
+                        getWindowSize(outBoardCorners),
+                        zeroZone,
+                        criteria);
+            }
 
             // draw the chessboard, doesn't have to be different for a dot board since it
             // just re projects
@@ -375,6 +395,7 @@ public class FindBoardCornersPipe
         final FrameDivisor divisor;
         final UICalibrationData.TagFamily tagFamily;
         final boolean useOldPattern;
+        final boolean refine;
 
         public FindCornersPipeParams(
                 int boardHeight,
@@ -385,6 +406,34 @@ public class FindBoardCornersPipe
                 double markerSize,
                 FrameDivisor divisor,
                 boolean useOldPattern) {
+            this(
+                    boardHeight,
+                    boardWidth,
+                    type,
+                    tagFamily,
+                    gridSize,
+                    markerSize,
+                    divisor,
+                    useOldPattern,
+                    true);
+        }
+
+        /**
+         * @param divisor How much to shrink the image by before searching for the board
+         * @param refine Whether to refine chessboard corners to sub-pixel accuracy at full
+         *     resolution, and detect ChArUco boards at full resolution. Corners used for
+         *     calibration must be refined; previews needn't be.
+         */
+        public FindCornersPipeParams(
+                int boardHeight,
+                int boardWidth,
+                UICalibrationData.BoardType type,
+                UICalibrationData.TagFamily tagFamily,
+                double gridSize,
+                double markerSize,
+                FrameDivisor divisor,
+                boolean useOldPattern,
+                boolean refine) {
             this.boardHeight = boardHeight;
             this.boardWidth = boardWidth;
             this.tagFamily = tagFamily;
@@ -393,6 +442,7 @@ public class FindBoardCornersPipe
             this.markerSize = markerSize; // meter
             this.divisor = divisor;
             this.useOldPattern = useOldPattern;
+            this.refine = refine;
         }
 
         @Override
@@ -419,6 +469,7 @@ public class FindBoardCornersPipe
             if (boardWidth != other.boardWidth) return false;
             if (tagFamily != other.tagFamily) return false;
             if (useOldPattern != other.useOldPattern) return false;
+            if (refine != other.refine) return false;
             if (type != other.type) return false;
             if (Double.doubleToLongBits(gridSize) != Double.doubleToLongBits(other.gridSize))
                 return false;
@@ -19,7 +19,6 @@ package org.photonvision.vision.pipe.impl;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 import org.opencv.core.Mat;
 import org.opencv.core.MatOfPoint;
 import org.opencv.imgproc.Imgproc;
@@ -29,6 +28,8 @@ import org.photonvision.vision.pipe.CVPipe;
 public class FindContoursPipe
         extends CVPipe<Mat, List<Contour>, FindContoursPipe.FindContoursParams> {
     private final List<MatOfPoint> m_foundContours = new ArrayList<>();
+    private final Mat m_hierarchy = new Mat();
+    private final List<Contour> m_contours = new ArrayList<>();
 
     @Override
     protected List<Contour> process(Mat in) {
@@ -38,9 +39,15 @@ public class FindContoursPipe
         m_foundContours.clear();
 
         Imgproc.findContours(
-                in, m_foundContours, new Mat(), Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_TC89_KCOS);
+                in, m_foundContours, m_hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_TC89_KCOS);
 
-        return m_foundContours.stream().map(Contour::new).collect(Collectors.toList());
+        // Reuse our output list rather than streaming into a new one every frame. Downstream pipes
+        // copy out what they keep, so it's fine to clear this next frame
+        m_contours.clear();
+        for (var m : m_foundContours) {
+            m_contours.add(new Contour(m));
+        }
+        return m_contours;
     }
 
     public static class FindContoursParams {}
@@ -19,7 +19,6 @@ package org.photonvision.vision.pipe.impl;
 
 import java.util.ArrayList;
 import java.util.List;
-import org.opencv.imgproc.Imgproc;
 import org.photonvision.vision.opencv.CVShape;
 import org.photonvision.vision.opencv.Contour;
 import org.photonvision.vision.opencv.ContourShape;
@@ -39,7 +38,6 @@ public class FindPolygonPipe
     protected List<CVShape> process(List<Contour> in) {
         shapeList.forEach(CVShape::release);
         shapeList.clear();
-        shapeList = new ArrayList<>();
 
         for (Contour contour : in) {
             shapeList.add(getShape(contour));
@@ -72,8 +70,7 @@ public class FindPolygonPipe
     private int getCorners(Contour contour) {
         var approx =
                 contour.getApproxPolyDp(
-                        (100 - params.accuracyPercentage) / 100.0 * Imgproc.arcLength(contour.getMat2f(), true),
-                        true);
+                        (100 - params.accuracyPercentage) / 100.0 * contour.getPerimeter(), true);
 
         // The height of the resultant approximation is the number of vertices
         return (int) approx.size().height;
@@ -17,19 +17,22 @@
 
 package org.photonvision.vision.pipe.impl;
 
+import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.imgproc.Imgproc;
+import org.photonvision.vision.opencv.CVMat;
+import org.photonvision.vision.opencv.MatPool;
 import org.photonvision.vision.pipe.CVPipe;
 
-public class GrayscalePipe extends CVPipe<Mat, Mat, GrayscalePipe.GrayscaleParams> {
+public class GrayscalePipe extends CVPipe<Mat, CVMat, GrayscalePipe.GrayscaleParams> {
     @Override
-    protected Mat process(Mat in) {
-        var outputMat = new Mat();
+    protected CVMat process(Mat in) {
+        var output = MatPool.getInstance().take(in.rows(), in.cols(), CvType.CV_8UC1);
         // We can save a copy here by sending the output of cvtcolor to outputMat directly
         // rather than copying. Free performance!
-        Imgproc.cvtColor(in, outputMat, Imgproc.COLOR_BGR2GRAY, 3);
+        Imgproc.cvtColor(in, output.getMat(), Imgproc.COLOR_BGR2GRAY, 3);
 
-        return outputMat;
+        return output;
     }
 
     public static class GrayscaleParams {
@@ -18,19 +18,26 @@
 package org.photonvision.vision.pipe.impl;
 
 import org.opencv.core.Core;
+import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.Scalar;
 import org.opencv.imgproc.Imgproc;
 import org.photonvision.common.util.numbers.IntegerCouple;
+import org.photonvision.vision.opencv.CVMat;
+import org.photonvision.vision.opencv.MatPool;
 import org.photonvision.vision.pipe.CVPipe;
 
-public class HSVPipe extends CVPipe<Mat, Mat, HSVPipe.HSVParams> {
+public class HSVPipe extends CVPipe<Mat, CVMat, HSVPipe.HSVParams> {
+    // Scratch Mats -- these are the same size every frame, so keep them around rather than
+    // reallocating
+    private final Mat hsvMat = new Mat();
+    private final Mat lowerThresholdMat = new Mat();
+
     @Override
-    protected Mat process(Mat in) {
-        var outputMat = new Mat();
-        // We can save a copy here by sending the output of cvtcolor to outputMat directly
-        // rather than copying. Free performance!
-        Imgproc.cvtColor(in, outputMat, Imgproc.COLOR_BGR2HSV, 3);
+    protected CVMat process(Mat in) {
+        var output = MatPool.getInstance().take(in.rows(), in.cols(), CvType.CV_8UC1);
+        var outputMat = output.getMat();
+        Imgproc.cvtColor(in, hsvMat, Imgproc.COLOR_BGR2HSV, 3);
 
         if (params.getHueInverted()) {
             // In Java code we do this by taking an image thresholded
@@ -42,8 +49,7 @@ public class HSVPipe extends CVPipe<Mat, Mat, HSVPipe.HSVParams> {
             firstLower.val[0] = params.getHsvUpper().val[0];
             firstUpper.val[0] = 180;
 
-            var lowerThresholdMat = new Mat();
-            Core.inRange(outputMat, firstLower, firstUpper, lowerThresholdMat);
+            Core.inRange(hsvMat, firstLower, firstUpper, lowerThresholdMat);
 
             // We want hue from 0 to the start of the slider
             var secondLower = params.getHsvLower().clone();
@@ -51,19 +57,16 @@ public class HSVPipe extends CVPipe<Mat, Mat, HSVPipe.HSVParams> {
             secondLower.val[0] = 0;
             secondUpper.val[0] = params.getHsvLower().val[0];
 
-            // Now that the output mat's been used by the first inRange, it's fine to mutate it
-            Core.inRange(outputMat, secondLower, secondUpper, outputMat);
+            Core.inRange(hsvMat, secondLower, secondUpper, outputMat);
 
             // Now OR the two images together to make a mat that combines the lower and upper bounds
             // outputMat holds the second half of the range
             Core.bitwise_or(lowerThresholdMat, outputMat, outputMat);
-
-            lowerThresholdMat.release();
         } else {
-            Core.inRange(outputMat, params.getHsvLower(), params.getHsvUpper(), outputMat);
+            Core.inRange(hsvMat, params.getHsvLower(), params.getHsvUpper(), outputMat);
         }
 
-        return outputMat;
+        return output;
     }
 
     public static class HSVParams {
@@ -22,21 +22,26 @@ import java.util.ArrayList;
 import java.util.List;
 import org.photonvision.common.logging.LogGroup;
 import org.photonvision.common.logging.Logger;
+import org.photonvision.estimation.PnPSolverContext;
 import org.photonvision.estimation.TargetModel;
-import org.photonvision.estimation.VisionEstimation;
 import org.photonvision.targeting.MultiTargetPNPResult;
 import org.photonvision.vision.calibration.CameraCalibrationCoefficients;
+import org.photonvision.vision.opencv.Releasable;
 import org.photonvision.vision.pipe.CVPipe;
 import org.photonvision.vision.target.TrackedTarget;
 
 /** Estimate the camera pose given multiple Apriltag observations */
 public class MultiTargetPNPPipe
         extends CVPipe<
-                List<TrackedTarget>, MultiTargetPNPResult, MultiTargetPNPPipe.MultiTargetPNPPipeParams> {
+                List<TrackedTarget>, MultiTargetPNPResult, MultiTargetPNPPipe.MultiTargetPNPPipeParams>
+        implements Releasable {
     private static final Logger logger = new Logger(MultiTargetPNPPipe.class, LogGroup.VisionModule);
 
     private boolean hasWarned = false;
 
+    // Keeps intrinsics, tag corners and point buffers around between frames
+    private final PnPSolverContext solverContext = new PnPSolverContext();
+
     @Override
     protected MultiTargetPNPResult process(List<TrackedTarget> targetList) {
         if (params == null
@@ -68,7 +73,7 @@ public class MultiTargetPNPPipe
         }
 
         var estimatedPose =
-                VisionEstimation.estimateCamPosePNP(
+                solverContext.estimateCamPose(
                         params.cameraCoefficients.cameraIntrinsics.getAsWpilibMat(),
                         params.cameraCoefficients.distCoeffs.getAsWpilibMat(),
                         TrackedTarget.simpleFromTrackedTargets(targetList),
@@ -78,6 +83,11 @@ public class MultiTargetPNPPipe
         return new MultiTargetPNPResult(estimatedPose, tagIDsUsed);
     }
 
+    @Override
+    public void release() {
+        solverContext.release();
+    }
+
     public static class MultiTargetPNPPipeParams {
         private final CameraCalibrationCoefficients cameraCoefficients;
         private final AprilTagFieldLayout atfl;
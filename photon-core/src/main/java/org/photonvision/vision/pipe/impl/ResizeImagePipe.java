@@ -17,26 +17,37 @@
 
 package org.photonvision.vision.pipe.impl;
 
-import org.opencv.core.Mat;
 import org.opencv.core.Size;
 import org.opencv.imgproc.Imgproc;
 import org.photonvision.vision.frame.FrameDivisor;
-import org.photonvision.vision.pipe.MutatingPipe;
+import org.photonvision.vision.opencv.CVMat;
+import org.photonvision.vision.opencv.MatPool;
+import org.photonvision.vision.pipe.CVPipe;
 
-/** Pipe that resizes an image to a given resolution */
-public class ResizeImagePipe extends MutatingPipe<Mat, ResizeImagePipe.ResizeImageParams> {
+/**
+ * Pipe that resizes an image to a given resolution. The input is left alone, so that capture
+ * buffers keep their shape; the resized image goes into a Mat from the {@link MatPool}.
+ */
+public class ResizeImagePipe extends CVPipe<CVMat, CVMat, ResizeImagePipe.ResizeImageParams> {
     /**
      * Process this pipe
      *
-     * @param in {@link Mat} to be resized
+     * @param in {@link CVMat} to be resized
+     * @return The resized image, which the caller must release. With no divisor (or an empty input)
+     *     this is the input itself, with an extra reference added
      */
     @Override
-    protected Void process(Mat in) {
-        int width = in.cols() / params.getDivisor().value;
-        int height = in.rows() / params.getDivisor().value;
-        Imgproc.resize(in, in, new Size(width, height));
+    protected CVMat process(CVMat in) {
+        var inMat = in.getMat();
+        int divisor = params.getDivisor().value;
+        if (divisor == 1 || inMat.empty()) return in.retain();
+
+        int width = inMat.cols() / divisor;
+        int height = inMat.rows() / divisor;
+        var out = MatPool.getInstance().take(height, width, inMat.type());
+        Imgproc.resize(inMat, out.getMat(), new Size(width, height));
 
-        return null;
+        return out;
     }
 
     public static class ResizeImageParams {
@@ -29,6 +29,9 @@ public class SortContoursPipe
         extends CVPipe<
                 List<PotentialTarget>, List<PotentialTarget>, SortContoursPipe.SortContoursParams> {
     private final List<PotentialTarget> m_sortedContours = new ArrayList<>();
+    private final List<PotentialTarget> m_outputTargets = new ArrayList<>();
+    private final Comparator<PotentialTarget> m_centermostComparator =
+            Comparator.comparingDouble(this::calcSquareCenterDistance);
 
     @Override
     protected List<PotentialTarget> process(List<PotentialTarget> in) {
@@ -43,18 +46,23 @@ public class SortContoursPipe
                 m_sortedContours.sort(params.getSortMode().getComparator());
             } else {
                 // we need knowledge of camera properties to calculate this distance -- do it ourselves
-                m_sortedContours.sort(Comparator.comparingDouble(this::calcSquareCenterDistance));
+                m_sortedContours.sort(m_centermostComparator);
             }
         }
 
-        return new ArrayList<>(
+        // Collect2dTargetsPipe copies out what it needs, so we can hand out the same list every frame
+        m_outputTargets.clear();
+        m_outputTargets.addAll(
                 m_sortedContours.subList(0, Math.min(in.size(), params.getMaxTargets())));
+        return m_outputTargets;
     }
 
     private double calcSquareCenterDistance(PotentialTarget tgt) {
-        return Math.sqrt(
-                Math.pow(params.getCamProperties().centerX - tgt.getMinAreaRect().center.x, 2)
-                        + Math.pow(params.getCamProperties().centerY - tgt.getMinAreaRect().center.y, 2));
+        // Only used for ordering, so skip the square root
+        var center = tgt.getMinAreaRect().center;
+        double dx = params.getCamProperties().centerX - center.x;
+        double dy = params.getCamProperties().centerY - center.y;
+        return dx * dx + dy * dy;
     }
 
     public static class SortContoursParams {
@@ -19,6 +19,7 @@ package org.photonvision.vision.pipeline;
 
 import edu.wpi.first.apriltag.AprilTagDetection;
 import edu.wpi.first.apriltag.AprilTagDetector;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
 import edu.wpi.first.apriltag.AprilTagPoseEstimate;
 import edu.wpi.first.apriltag.AprilTagPoseEstimator.Config;
 import edu.wpi.first.math.geometry.CoordinateSystem;
@@ -32,14 +33,15 @@ import org.photonvision.common.configuration.ConfigManager;
 import org.photonvision.common.util.math.MathUtils;
 import org.photonvision.estimation.TargetModel;
 import org.photonvision.targeting.MultiTargetPNPResult;
+import org.photonvision.vision.apriltag.AdaptiveDecimation;
 import org.photonvision.vision.apriltag.AprilTagFamily;
 import org.photonvision.vision.frame.Frame;
 import org.photonvision.vision.frame.FrameThresholdType;
 import org.photonvision.vision.pipe.CVPipe.CVPipeResult;
+import org.photonvision.vision.pipe.impl.AprilTagBatchPoseEstimatorPipe;
+import org.photonvision.vision.pipe.impl.AprilTagBatchPoseEstimatorPipe.AprilTagPoseEstimatorPipeParams;
 import org.photonvision.vision.pipe.impl.AprilTagDetectionPipe;
 import org.photonvision.vision.pipe.impl.AprilTagDetectionPipeParams;
-import org.photonvision.vision.pipe.impl.AprilTagPoseEstimatorPipe;
-import org.photonvision.vision.pipe.impl.AprilTagPoseEstimatorPipe.AprilTagPoseEstimatorPipeParams;
 import org.photonvision.vision.pipe.impl.CalculateFPSPipe;
 import org.photonvision.vision.pipe.impl.MultiTargetPNPPipe;
 import org.photonvision.vision.pipe.impl.MultiTargetPNPPipe.MultiTargetPNPPipeParams;
@@ -49,10 +51,14 @@ import org.photonvision.vision.target.TrackedTarget.TargetCalculationParameters;
 
 public class AprilTagPipeline extends CVPipeline<CVPipelineResult, AprilTagPipelineSettings> {
     private final AprilTagDetectionPipe aprilTagDetectionPipe = new AprilTagDetectionPipe();
-    private final AprilTagPoseEstimatorPipe singleTagPoseEstimatorPipe =
-            new AprilTagPoseEstimatorPipe();
+    private final AprilTagBatchPoseEstimatorPipe singleTagPoseEstimatorPipe =
+            new AprilTagBatchPoseEstimatorPipe();
     private final MultiTargetPNPPipe multiTagPNPPipe = new MultiTargetPNPPipe();
     private final CalculateFPSPipe calculateFPSPipe = new CalculateFPSPipe();
+    private final AdaptiveDecimation adaptiveDecimation = new AdaptiveDecimation();
+
+    // The field layout our multi-tag params were built with
+    private AprilTagFieldLayout fieldLayout;
 
     private static final FrameThresholdType PROCESSING_TYPE = FrameThresholdType.GREYSCALE;
 
@@ -66,6 +72,13 @@ public class AprilTagPipeline extends CVPipeline<CVPipelineResult, AprilTagPipel
         this.settings = settings;
     }
 
+    @Override
+    protected boolean arePipeParamsStale() {
+        // The field layout lives in global config, so we won't otherwise notice it changing
+        return fieldLayout != null
+                && fieldLayout != ConfigManager.getInstance().getConfig().getApriltagFieldLayout();
+    }
+
     @Override
     protected void setPipeParamsImpl() {
         // Sanitize thread count - not supported to have fewer than 1 threads
@@ -86,7 +99,20 @@ public class AprilTagPipeline extends CVPipeline<CVPipelineResult, AprilTagPipel
         config.refineEdges = settings.refineEdges;
         config.quadSigma = (float) settings.blur;
         config.quadDecimate = settings.decimate;
-        aprilTagDetectionPipe.setParams(new AprilTagDetectionPipeParams(settings.tagFamily, config));
+        aprilTagDetectionPipe.setParams(
+                new AprilTagDetectionPipeParams(
+                        settings.tagFamily,
+                        config,
+                        settings.roiTracking,
+                        Math.max(0, settings.roiPadding),
+                        Math.max(1, settings.roiFullScanInterval)));
+        if (settings.adaptiveDecimation) {
+            adaptiveDecimation.configure(settings.decimate, settings.adaptiveMaxDecimate);
+            aprilTagDetectionPipe.setQuadDecimate(adaptiveDecimation.getDecimation());
+        } else {
+            // Undo anything adaptive decimation left behind
+            aprilTagDetectionPipe.setQuadDecimate(settings.decimate);
+        }
 
         if (frameStaticProperties.cameraCalibration != null) {
             var cameraMatrix = frameStaticProperties.cameraCalibration.getCameraIntrinsicsMat();
@@ -104,6 +130,7 @@ public class AprilTagPipeline extends CVPipeline<CVPipelineResult, AprilTagPipel
 
                 // TODO global state ew
                 var atfl = ConfigManager.getInstance().getConfig().getApriltagFieldLayout();
+                fieldLayout = atfl;
                 multiTagPNPPipe.setParams(
                         new MultiTargetPNPPipeParams(frameStaticProperties.cameraCalibration, atfl, tagModel));
             }
@@ -148,6 +175,14 @@ public class AprilTagPipeline extends CVPipeline<CVPipelineResult, AprilTagPipel
             targetList.add(target);
         }
 
+        // Search around the tags we kept on the next frame (no-op unless ROI tracking is on)
+        aprilTagDetectionPipe.setTrackedDetections(usedDetections);
+
+        if (settings.adaptiveDecimation) {
+            aprilTagDetectionPipe.setQuadDecimate(
+                    adaptiveDecimation.update(usedDetections, tagDetectionPipeResult.nanosElapsed));
+        }
+
         // Do multi-tag pose estimation
         MultiTargetPNPResult multiTagResult = new MultiTargetPNPResult();
         if (settings.solvePNPEnabled && settings.doMultiTarget) {
@@ -163,14 +198,31 @@ public class AprilTagPipeline extends CVPipeline<CVPipelineResult, AprilTagPipel
             // TODO global state again ew
             var atfl = ConfigManager.getInstance().getConfig().getApriltagFieldLayout();
 
-            for (AprilTagDetection detection : usedDetections) {
+            // Do single-tag estimation when "always enabled" or if a tag was not used for multitag.
+            // All of these are solved as one batch, which keeps the input order.
+            var needsSingleTag = new boolean[usedDetections.size()];
+            var singleTagDetections = new ArrayList<AprilTagDetection>();
+            for (int i = 0; i < usedDetections.size(); i++) {
+                var detection = usedDetections.get(i);
+                needsSingleTag[i] =
+                        settings.doSingleTargetAlways
+                                || !multiTagResult.fiducialIDsUsed.contains(Integer.valueOf(detection.getId()));
+                if (needsSingleTag[i]) singleTagDetections.add(detection);
+            }
+
+            List<AprilTagPoseEstimate> singleTagEstimates = List.of();
+            if (!singleTagDetections.isEmpty()) {
+                var poseResult = singleTagPoseEstimatorPipe.run(singleTagDetections);
+                sumPipeNanosElapsed += poseResult.nanosElapsed;
+                singleTagEstimates = poseResult.output;
+            }
+
+            int singleTagIndex = 0;
+            for (int i = 0; i < usedDetections.size(); i++) {
+                var detection = usedDetections.get(i);
                 AprilTagPoseEstimate tagPoseEstimate = null;
-                // Do single-tag estimation when "always enabled" or if a tag was not used for multitag
-                if (settings.doSingleTargetAlways
-                        || !multiTagResult.fiducialIDsUsed.contains(Integer.valueOf(detection.getId()))) {
-                    var poseResult = singleTagPoseEstimatorPipe.run(detection);
-                    sumPipeNanosElapsed += poseResult.nanosElapsed;
-                    tagPoseEstimate = poseResult.output;
+                if (needsSingleTag[i]) {
+                    tagPoseEstimate = singleTagEstimates.get(singleTagIndex++);
                 }
 
                 // If single-tag estimation was not done, this is a multi-target tag from the layout
@@ -223,10 +275,21 @@ public class AprilTagPipeline extends CVPipeline<CVPipelineResult, AprilTagPipel
                 frame.sequenceID, sumPipeNanosElapsed, fps, targetList, multiTagResult, frame);
     }
 
+    /** Whether the last frame was searched in full, rather than only around tracked tags. */
+    public boolean wasLastRunFullScan() {
+        return aprilTagDetectionPipe.wasLastRunFullScan();
+    }
+
+    /** Decimation and detection time of recent frames while adaptive decimation is enabled. */
+    public List<AdaptiveDecimation.Sample> getDecimationTrace() {
+        return adaptiveDecimation.getTrace();
+    }
+
     @Override
     public void release() {
         aprilTagDetectionPipe.release();
         singleTagPoseEstimatorPipe.release();
+        multiTagPNPPipe.release();
         super.release();
     }
 }
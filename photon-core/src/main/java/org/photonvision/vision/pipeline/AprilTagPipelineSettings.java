@@ -34,6 +34,11 @@ public class AprilTagPipelineSettings extends AdvancedPipelineSettings {
     public int decisionMargin = 35;
     public boolean doMultiTarget = false;
     public boolean doSingleTargetAlways = false;
+    public boolean roiTracking = false;
+    public double roiPadding = 0.5; // fraction of tag size added on each side
+    public int roiFullScanInterval = 10;
+    public boolean adaptiveDecimation = false;
+    public int adaptiveMaxDecimate = 4;
 
     // 3d settings
 
@@ -64,6 +69,12 @@ public class AprilTagPipelineSettings extends AdvancedPipelineSettings {
         result = prime * result + decisionMargin;
         result = prime * result + (doMultiTarget ? 1231 : 1237);
         result = prime * result + (doSingleTargetAlways ? 1231 : 1237);
+        result = prime * result + (roiTracking ? 1231 : 1237);
+        temp = Double.doubleToLongBits(roiPadding);
+        result = prime * result + (int) (temp ^ (temp >>> 32));
+        result = prime * result + roiFullScanInterval;
+        result = prime * result + (adaptiveDecimation ? 1231 : 1237);
+        result = prime * result + adaptiveMaxDecimate;
         return result;
     }
 
@@ -84,6 +95,12 @@ public class AprilTagPipelineSettings extends AdvancedPipelineSettings {
         if (decisionMargin != other.decisionMargin) return false;
         if (doMultiTarget != other.doMultiTarget) return false;
         if (doSingleTargetAlways != other.doSingleTargetAlways) return false;
+        if (roiTracking != other.roiTracking) return false;
+        if (Double.doubleToLongBits(roiPadding) != Double.doubleToLongBits(other.roiPadding))
+            return false;
+        if (roiFullScanInterval != other.roiFullScanInterval) return false;
+        if (adaptiveDecimation != other.adaptiveDecimation) return false;
+        if (adaptiveMaxDecimate != other.adaptiveMaxDecimate) return false;
         return true;
     }
 }
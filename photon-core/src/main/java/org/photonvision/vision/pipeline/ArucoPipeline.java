@@ -34,6 +34,7 @@
 
 package org.photonvision.vision.pipeline;
 
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
 import edu.wpi.first.apriltag.AprilTagPoseEstimate;
 import edu.wpi.first.math.geometry.CoordinateSystem;
 import edu.wpi.first.math.geometry.Pose3d;
@@ -65,6 +66,9 @@ public class ArucoPipeline extends CVPipeline<CVPipelineResult, ArucoPipelineSet
     private final MultiTargetPNPPipe multiTagPNPPipe = new MultiTargetPNPPipe();
     private final CalculateFPSPipe calculateFPSPipe = new CalculateFPSPipe();
 
+    // The field layout our multi-tag params were built with
+    private AprilTagFieldLayout fieldLayout;
+
     public ArucoPipeline() {
         super(FrameThresholdType.GREYSCALE);
         settings = new ArucoPipelineSettings();
@@ -75,6 +79,13 @@ public class ArucoPipeline extends CVPipeline<CVPipelineResult, ArucoPipelineSet
         this.settings = settings;
     }
 
+    @Override
+    protected boolean arePipeParamsStale() {
+        // The field layout lives in global config, so we won't otherwise notice it changing
+        return fieldLayout != null
+                && fieldLayout != ConfigManager.getInstance().getConfig().getApriltagFieldLayout();
+    }
+
     @Override
     protected void setPipeParamsImpl() {
         var params = new ArucoDetectionPipeParams();
@@ -126,6 +137,7 @@ public class ArucoPipeline extends CVPipeline<CVPipelineResult, ArucoPipelineSet
 
                 // TODO global state ew
                 var atfl = ConfigManager.getInstance().getConfig().getApriltagFieldLayout();
+                fieldLayout = atfl;
                 multiTagPNPPipe.setParams(
                         new MultiTargetPNPPipeParams(frameStaticProperties.cameraCalibration, atfl, tagModel));
             }
@@ -256,6 +268,7 @@ public class ArucoPipeline extends CVPipeline<CVPipelineResult, ArucoPipelineSet
     public void release() {
         arucoDetectionPipe.release();
         singleTagPoseEstimatorPipe.release();
+        multiTagPNPPipe.release();
         arucoDetectionPipe = null;
         singleTagPoseEstimatorPipe = null;
         super.release();
@@ -17,6 +17,7 @@
 
 package org.photonvision.vision.pipeline;
 
+import java.util.concurrent.atomic.AtomicLong;
 import org.photonvision.vision.camera.QuirkyCamera;
 import org.photonvision.vision.frame.Frame;
 import org.photonvision.vision.frame.FrameStaticProperties;
@@ -34,6 +35,14 @@ public abstract class CVPipeline<R extends CVPipelineResult, S extends CVPipelin
 
     private final FrameThresholdType thresholdType;
 
+    // What setPipeParamsImpl was last run with, so we only re-run it when something changes
+    private S lastSettings;
+    private int lastSettingsRevision;
+    private FrameStaticProperties lastFrameStaticProperties;
+    private QuirkyCamera lastCameraQuirks;
+
+    private static final AtomicLong reconfigurationCount = new AtomicLong();
+
     // So releaseable doesn't keep track of if we double-free something. so (ew) remember that here
     protected volatile boolean released = false;
 
@@ -51,11 +60,44 @@ public abstract class CVPipeline<R extends CVPipelineResult, S extends CVPipelin
         this.frameStaticProperties = frameStaticProperties;
         this.cameraQuirks = cameraQuirks;
 
+        // Frame static properties are replaced, never edited, whenever the video mode or calibration
+        // changes, so checking identity is enough for them
+        boolean changed =
+                settings != lastSettings
+                        || settings.getRevision() != lastSettingsRevision
+                        || frameStaticProperties != lastFrameStaticProperties
+                        || cameraQuirks != lastCameraQuirks
+                        || arePipeParamsStale();
+        if (!changed) return;
+
+        lastSettings = settings;
+        lastSettingsRevision = settings.getRevision();
+        lastFrameStaticProperties = frameStaticProperties;
+        lastCameraQuirks = cameraQuirks;
+        reconfigurationCount.incrementAndGet();
+
         setPipeParamsImpl();
     }
 
+    /**
+     * Rebuild the params of every pipe from the current settings and frame static properties. Only
+     * called when one of those has changed, or {@link #arePipeParamsStale()} says to.
+     */
     protected abstract void setPipeParamsImpl();
 
+    /**
+     * Override to ask for pipe params to be rebuilt because of a change that isn't to our settings or
+     * frame static properties, e.g. to global config. Called every frame, so keep it cheap.
+     */
+    protected boolean arePipeParamsStale() {
+        return false;
+    }
+
+    /** How many times any pipeline has had to rebuild its pipe params, since startup. */
+    public static long getReconfigurationCount() {
+        return reconfigurationCount.get();
+    }
+
     protected abstract R process(Frame frame, S settings);
 
     public S getSettings() {
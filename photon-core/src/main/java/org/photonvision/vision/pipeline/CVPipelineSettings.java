@@ -17,6 +17,7 @@
 
 package org.photonvision.vision.pipeline;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import java.util.Objects;
@@ -59,6 +60,23 @@ public class CVPipelineSettings implements Cloneable {
     public boolean inputShouldShow = false;
     public boolean outputShouldShow = true;
 
+    // Bumped by markChanged(), so pipelines know when to recompute their pipe params
+    @JsonIgnore private transient volatile int revision = 0;
+
+    /**
+     * Call after changing any setting in place, so that pipelines using these settings pick up the
+     * change. Pipelines only rebuild their pipe params when this (or the settings object itself, or
+     * the frame static properties) changes.
+     */
+    public void markChanged() {
+        revision++;
+    }
+
+    @JsonIgnore
+    public int getRevision() {
+        return revision;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -19,7 +19,11 @@ package org.photonvision.vision.pipeline;
 
 import edu.wpi.first.math.util.Units;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.tuple.Pair;
 import org.opencv.core.Mat;
@@ -32,6 +36,7 @@ import org.photonvision.common.util.SerializationUtils;
 import org.photonvision.vision.calibration.BoardObservation;
 import org.photonvision.vision.calibration.CameraCalibrationCoefficients;
 import org.photonvision.vision.frame.Frame;
+import org.photonvision.vision.frame.FrameDivisor;
 import org.photonvision.vision.frame.FrameThresholdType;
 import org.photonvision.vision.opencv.CVMat;
 import org.photonvision.vision.opencv.ImageRotationMode;
@@ -49,23 +54,39 @@ public class Calibrate3dPipeline
     // For logging
     private static final Logger logger = new Logger(Calibrate3dPipeline.class, LogGroup.General);
 
-    // Find board corners decides internally between opencv and mrgingham
+    // Preview detection runs on every frame, so it's done on an image no wider than this
+    private static final int PREVIEW_MAX_WIDTH = 640;
+
+    // Solves are rare and slow, so one thread shared by every camera is plenty
+    private static final ExecutorService calibrationExecutor =
+            Executors.newSingleThreadExecutor(
+                    r -> {
+                        var thread = new Thread(r, "CalibrationSolver");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    // Find board corners decides internally between opencv and mrgingham. The preview pipe finds
+    // the board on a downscaled image every frame, just to draw it; the full pipe runs only on
+    // snapshots, and refines the corners at full resolution
+    private final FindBoardCornersPipe previewCornersPipe = new FindBoardCornersPipe();
     private final FindBoardCornersPipe findBoardCornersPipe = new FindBoardCornersPipe();
     private final Calibrate3dPipe calibrate3dPipe = new Calibrate3dPipe();
     private final CalculateFPSPipe calculateFPSPipe = new CalculateFPSPipe();
 
     // Getter methods have been set for calibrate and takeSnapshot
-    private boolean takeSnapshot = false;
+    private volatile boolean takeSnapshot = false;
 
-    // Output of the corners
+    // Output of the corners. Guarded by this pipeline's lock, as solves copy it on other threads
     public final List<FindBoardCornersPipeResult> foundCornersList;
 
     /// Output of the calibration, getter method is set for this.
-    private CVPipeResult<CameraCalibrationCoefficients> calibrationOutput;
+    private volatile CVPipeResult<CameraCalibrationCoefficients> calibrationOutput;
 
     private final int minSnapshots;
 
-    private boolean calibrating = false;
+    private volatile boolean calibrating = false;
+    private CompletableFuture<CameraCalibrationCoefficients> calibrationFuture;
 
     private static final FrameThresholdType PROCESSING_TYPE = FrameThresholdType.NONE;
 
@@ -78,6 +99,8 @@ public class Calibrate3dPipeline
         this.settings = new Calibration3dPipelineSettings();
         this.foundCornersList = new ArrayList<>();
         this.minSnapshots = minSnapshots;
+
+        calibrate3dPipe.setProgressListener(this::broadcastProgress);
     }
 
     @Override
@@ -94,17 +117,44 @@ public class Calibrate3dPipeline
                         settings.useOldPattern);
         findBoardCornersPipe.setParams(findCornersPipeParams);
 
+        previewCornersPipe.setParams(
+                new FindBoardCornersPipe.FindCornersPipeParams(
+                        settings.boardHeight,
+                        settings.boardWidth,
+                        settings.boardType,
+                        settings.tagFamily,
+                        settings.gridSize,
+                        settings.markerSize,
+                        getPreviewDivisor(),
+                        settings.useOldPattern,
+                        false));
+
         Calibrate3dPipe.CalibratePipeParams calibratePipeParams =
                 new Calibrate3dPipe.CalibratePipeParams(
                         settings.boardHeight, settings.boardWidth, settings.gridSize, settings.useMrCal);
         calibrate3dPipe.setParams(calibratePipeParams);
     }
 
+    /**
+     * The divisor for preview detection: at least the stream's, and enough to bring the image down
+     * to {@link #PREVIEW_MAX_WIDTH}.
+     */
+    FrameDivisor getPreviewDivisor() {
+        int width = frameStaticProperties != null ? frameStaticProperties.imageWidth : 0;
+        for (var divisor : FrameDivisor.values()) {
+            if (divisor.value >= settings.streamingFrameDivisor.value
+                    && width / divisor.value <= PREVIEW_MAX_WIDTH) {
+                return divisor;
+            }
+        }
+        return FrameDivisor.SIXTH;
+    }
+
     @Override
     protected CVPipelineResult process(Frame frame, Calibration3dPipelineSettings settings) {
         Mat inputColorMat = frame.colorImage.getMat();
 
-        if (this.calibrating || inputColorMat.empty()) {
+        if (inputColorMat.empty()) {
             return new CVPipelineResult(frame.sequenceID, 0, 0, null, frame);
         }
 
@@ -124,24 +174,30 @@ public class Calibrate3dPipeline
         var outputColorCVMat = new CVMat();
         inputColorMat.copyTo(outputColorCVMat.getMat());
 
-        FindBoardCornersPipeResult findBoardResult;
-
-        findBoardResult =
-                findBoardCornersPipe.run(Pair.of(inputColorMat, outputColorCVMat.getMat())).output;
-
-        if (takeSnapshot) {
+        // Snapshots can't be taken while a solve is using them
+        boolean snapshot;
+        synchronized (this) {
+            snapshot = takeSnapshot && !calibrating;
             // Set snapshot to false even if we don't find a board
-            takeSnapshot = false;
-
-            if (findBoardResult != null) {
-                // Only copy the image into the result when we absolutely must
-                findBoardResult.inputImage = inputColorMat.clone();
+            if (snapshot) takeSnapshot = false;
+        }
 
-                foundCornersList.add(findBoardResult);
+        if (snapshot) {
+            var findBoardResult =
+                    findBoardCornersPipe.run(Pair.of(inputColorMat, outputColorCVMat.getMat()));
+            sumPipeNanosElapsed += findBoardResult.nanosElapsed;
 
-                // update the UI
-                broadcastState();
+            if (findBoardResult.output != null) {
+                // Only copy the image into the result when we absolutely must
+                findBoardResult.output.inputImage = inputColorMat.clone();
+                addSnapshot(findBoardResult.output);
             }
+        } else {
+            var previewResult =
+                    previewCornersPipe.run(Pair.of(inputColorMat, outputColorCVMat.getMat()));
+            sumPipeNanosElapsed += previewResult.nanosElapsed;
+            // All we want from a preview is the corners drawn on the output
+            if (previewResult.output != null) previewResult.output.release();
         }
 
         var fpsResult = calculateFPSPipe.run(null);
@@ -164,17 +220,40 @@ public class Calibrate3dPipeline
                 getCornersList());
     }
 
-    List<List<Point>> getCornersList() {
+    /** Keep a snapshot, unless a solve started while its corners were being found. */
+    private synchronized void addSnapshot(FindBoardCornersPipeResult snapshot) {
+        if (calibrating) {
+            logger.warn("Calibration started while taking a snapshot, dropping it");
+            snapshot.release();
+            return;
+        }
+        foundCornersList.add(snapshot);
+
+        // update the UI
+        broadcastState();
+    }
+
+    synchronized List<List<Point>> getCornersList() {
         return foundCornersList.stream()
                 .map(it -> it.imagePoints.toList())
                 .collect(Collectors.toList());
     }
 
-    public boolean hasEnough() {
+    public synchronized boolean hasEnough() {
         return foundCornersList.size() >= minSnapshots;
     }
 
-    public CameraCalibrationCoefficients tryCalibration() {
+    /**
+     * Start solving for the camera's calibration from the snapshots taken so far. The solve runs on
+     * a worker thread, and progress is sent to the UI as it goes. Frames keep being processed
+     * meanwhile, but snapshots can't be taken or removed until it's done.
+     *
+     * @return The calibration, or null if it failed or there weren't enough snapshots. If a solve
+     *     is already running, that solve's result.
+     */
+    public synchronized CompletableFuture<CameraCalibrationCoefficients> calibrateAsync() {
+        if (calibrating) return calibrationFuture;
+
         if (!hasEnough()) {
             logger.info(
                     "Not enough snapshots! Only got "
@@ -182,7 +261,7 @@ public class Calibrate3dPipeline
                             + " of "
                             + minSnapshots
                             + " -- returning null..");
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
 
         this.calibrating = true;
@@ -192,15 +271,36 @@ public class Calibrate3dPipeline
          * boards are valid
          * and returns the corresponding image and object points
          */
-        calibrationOutput =
-                calibrate3dPipe.run(new CalibrationInput(foundCornersList, frameStaticProperties));
-
-        this.calibrating = false;
+        var input = new CalibrationInput(new ArrayList<>(foundCornersList), frameStaticProperties);
+        calibrationFuture =
+                CompletableFuture.supplyAsync(
+                        () -> {
+                            try {
+                                calibrationOutput = calibrate3dPipe.run(input);
+                                return calibrationOutput.output;
+                            } catch (Exception e) {
+                                logger.error("Calibration failed!", e);
+                                return null;
+                            } finally {
+                                this.calibrating = false;
+                            }
+                        },
+                        calibrationExecutor);
+        calibrationFuture.thenAccept(
+                result -> broadcastProgress(result != null ? "done" : "failed", 1));
+
+        return calibrationFuture;
+    }
 
-        return calibrationOutput.output;
+    public boolean isCalibrating() {
+        return calibrating;
     }
 
-    public void takeSnapshot() {
+    public synchronized void takeSnapshot() {
+        if (calibrating) {
+            logger.warn("Can't take a snapshot while calibrating");
+            return;
+        }
         takeSnapshot = true;
     }
 
@@ -208,14 +308,18 @@ public class Calibrate3dPipeline
         return calibrationOutput.output.observations;
     }
 
-    public void finishCalibration() {
+    public synchronized void finishCalibration() {
+        if (calibrating) {
+            logger.warn("Can't clear snapshots while calibrating");
+            return;
+        }
         foundCornersList.forEach(it -> it.release());
         foundCornersList.clear();
 
         broadcastState();
     }
 
-    private void broadcastState() {
+    private synchronized void broadcastState() {
         var state =
                 SerializationUtils.objectToHashMap(
                         new UICalibrationData(
@@ -236,7 +340,20 @@ public class Calibrate3dPipeline
                 .publishEvent(OutgoingUIEvent.wrappedOf("calibrationData", state));
     }
 
-    public boolean removeSnapshot(int index) {
+    private void broadcastProgress(String stage, double fraction) {
+        var progress = new HashMap<String, Object>();
+        progress.put("stage", stage);
+        progress.put("progress", fraction);
+
+        DataChangeService.getInstance()
+                .publishEvent(OutgoingUIEvent.wrappedOf("calibrationProgress", progress));
+    }
+
+    public synchronized boolean removeSnapshot(int index) {
+        if (calibrating) {
+            logger.warn("Can't remove a snapshot while calibrating");
+            return false;
+        }
         try {
             foundCornersList.remove(index);
             return true;
@@ -60,14 +60,15 @@ public class DriverModePipeline
     public DriverModePipelineResult process(Frame frame, DriverModePipelineSettings settings) {
         long totalNanos = 0;
 
-        // apply pipes
-        var inputMat = frame.colorImage.getMat();
-
-        boolean emptyIn = inputMat.empty();
-
-        if (!emptyIn) {
-            totalNanos += resizeImagePipe.run(inputMat).nanosElapsed;
-
+        // apply pipes. The color image is a capture buffer, so it's resized into a pooled Mat
+        // rather than in place, and our result holds that instead
+        var resizeResult = resizeImagePipe.run(frame.colorImage);
+        totalNanos += resizeResult.nanosElapsed;
+        var colorImage = resizeResult.output;
+        frame.colorImage.release();
+
+        var inputMat = colorImage.getMat();
+        if (!inputMat.empty()) {
             var draw2dCrosshairResult = draw2dCrosshairPipe.run(Pair.of(inputMat, List.of()));
 
             // calculate elapsed nanoseconds
@@ -85,7 +86,7 @@ public class DriverModePipeline
                 new Frame(
                         frame.sequenceID,
                         frame.processedImage,
-                        frame.colorImage,
+                        colorImage,
                         frame.type,
                         frame.frameStaticProperties));
     }
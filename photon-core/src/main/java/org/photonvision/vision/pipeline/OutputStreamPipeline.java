@@ -47,8 +47,22 @@ public class OutputStreamPipeline {
 
     private final long[] pipeProfileNanos = new long[12];
 
+    // What the pipe params were last built from, same as CVPipeline
+    private AdvancedPipelineSettings lastSettings;
+    private int lastSettingsRevision;
+    private FrameStaticProperties lastFrameStaticProperties;
+
     protected void setPipeParams(
             FrameStaticProperties frameStaticProperties, AdvancedPipelineSettings settings) {
+        if (settings == lastSettings
+                && settings.getRevision() == lastSettingsRevision
+                && frameStaticProperties == lastFrameStaticProperties) {
+            return;
+        }
+        lastSettings = settings;
+        lastSettingsRevision = settings.getRevision();
+        lastFrameStaticProperties = frameStaticProperties;
+
         var dualOffsetValues =
                 new DualOffsetValues(
                         settings.offsetDualPointA,
@@ -119,24 +133,33 @@ public class OutputStreamPipeline {
                 new DrawCalibrationPipe.DrawCalibrationPipeParams(settings.streamingFrameDivisor));
     }
 
+    /**
+     * Resize and draw on a frame for streaming.
+     *
+     * @return A result whose frame holds the resized images. That frame has its own references, so
+     *     both it and the input frame must be released
+     */
     public CVPipelineResult process(
             Frame inputAndOutputFrame,
             AdvancedPipelineSettings settings,
             List<TrackedTarget> targetsToDraw) {
         setPipeParams(inputAndOutputFrame.frameStaticProperties, settings);
-        var inMat = inputAndOutputFrame.colorImage.getMat();
-        var outMat = inputAndOutputFrame.processedImage.getMat();
 
         long sumPipeNanosElapsed = 0L;
 
-        // Resize both in place before doing any conversion
-        boolean inEmpty = inMat.empty();
-        if (!inEmpty)
-            sumPipeNanosElapsed += pipeProfileNanos[0] = resizeImagePipe.run(inMat).nanosElapsed;
+        // Resize both before doing any conversion. The color image is usually a capture buffer, so
+        // it's resized into a pooled Mat rather than in place, which would reallocate the buffer
+        var resizedIn = resizeImagePipe.run(inputAndOutputFrame.colorImage);
+        sumPipeNanosElapsed += pipeProfileNanos[0] = resizedIn.nanosElapsed;
+        var inImage = resizedIn.output;
+
+        var resizedOut = resizeImagePipe.run(inputAndOutputFrame.processedImage);
+        sumPipeNanosElapsed += pipeProfileNanos[1] = resizedOut.nanosElapsed;
+        var outImage = resizedOut.output;
 
+        var inMat = inImage.getMat();
+        var outMat = outImage.getMat();
         boolean outEmpty = outMat.empty();
-        if (!outEmpty)
-            sumPipeNanosElapsed += pipeProfileNanos[1] = resizeImagePipe.run(outMat).nanosElapsed;
 
         // Only attempt drawing on a non-empty frame
         if (!outEmpty) {
@@ -237,6 +260,12 @@ public class OutputStreamPipeline {
                 sumPipeNanosElapsed,
                 fps, // Unused but here just in case
                 targetsToDraw,
-                inputAndOutputFrame);
+                new Frame(
+                        inputAndOutputFrame.sequenceID,
+                        inImage,
+                        outImage,
+                        inputAndOutputFrame.type,
+                        inputAndOutputFrame.timestampNanos,
+                        inputAndOutputFrame.frameStaticProperties));
     }
 }
@@ -28,6 +28,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import java.util.zip.ZipInputStream;
@@ -52,8 +53,11 @@ import org.photonvision.vision.camera.LibcameraGpuSource;
 import org.photonvision.vision.camera.QuirkyCamera;
 import org.photonvision.vision.frame.Frame;
 import org.photonvision.vision.frame.consumer.FileSaveFrameConsumer;
+import org.photonvision.vision.frame.consumer.FrameRecorder;
 import org.photonvision.vision.frame.consumer.MJPGFrameConsumer;
+import org.photonvision.vision.frame.consumer.SnapshotWriter;
 import org.photonvision.vision.pipeline.AdvancedPipelineSettings;
+import org.photonvision.vision.pipeline.AprilTagPipeline;
 import org.photonvision.vision.pipeline.OutputStreamPipeline;
 import org.photonvision.vision.pipeline.ReflectivePipelineSettings;
 import org.photonvision.vision.pipeline.UICalibrationData;
@@ -85,6 +89,10 @@ public class VisionModule {
 
     protected TrackedTarget lastPipelineResultBestTarget;
 
+    // The trace covers the last few hundred frames, so it only needs sending every so often
+    private static final long DECIMATION_TRACE_PERIOD_NANOS = 1_000_000_000L;
+    private long lastDecimationTraceNanos = 0;
+
     private int inputStreamPort = -1;
     private int outputStreamPort = -1;
 
@@ -94,6 +102,8 @@ public class VisionModule {
     MJPGFrameConsumer inputVideoStreamer;
     MJPGFrameConsumer outputVideoStreamer;
 
+    FrameRecorder frameRecorder;
+
     public VisionModule(PipelineManager pipelineManager, VisionSource visionSource, int index) {
         logger =
                 new Logger(
@@ -129,7 +139,8 @@ public class VisionModule {
                         this.visionSource.getFrameProvider(),
                         this.pipelineManager::getCurrentPipeline,
                         this::consumeResult,
-                        this.cameraQuirks);
+                        this.cameraQuirks,
+                        visionSource.getCameraConfiguration().pipelineDepth);
         this.streamRunnable = new StreamRunnable(new OutputStreamPipeline());
         this.moduleIndex = index;
 
@@ -147,13 +158,26 @@ public class VisionModule {
                         pipelineManager::getDriverMode,
                         this::setDriverMode);
         uiDataConsumer = new UIDataPublisher(index);
+        uiDataConsumer.addMetric("captureDroppedFrames", visionRunner::getDroppedFrameCount);
+        uiDataConsumer.addMetric("streamDroppedFrames", streamRunnable::getDroppedFrameCount);
+        uiDataConsumer.addMetric("ntPublishMicros", ntConsumer::getAveragePublishMicros);
+        uiDataConsumer.addMetric("ntFieldsWritten", ntConsumer::getLastFieldsWritten);
+        // Snapshots from every camera share one writer, so these counts are for all of them
+        var snapshotWriter = SnapshotWriter.getInstance();
+        uiDataConsumer.addMetric("snapshotsWritten", snapshotWriter::getWrittenCount);
+        uiDataConsumer.addMetric("snapshotsDropped", snapshotWriter::getDroppedCount);
+        uiDataConsumer.addMetric("snapshotsFailed", snapshotWriter::getFailedCount);
+        uiDataConsumer.setRateHz(visionSource.getCameraConfiguration().uiResultRateHz);
         statusLEDsConsumer = new StatusLEDConsumer(index);
         addResultConsumer(ntConsumer);
         addResultConsumer(uiDataConsumer);
         addResultConsumer(statusLEDsConsumer);
+        // Runs on the vision thread, before the stream thread starts drawing on the frame
+        addResultConsumer(frameRecorder);
         addResultConsumer(
                 (result) ->
                         lastPipelineResultBestTarget = result.hasTargets() ? result.targets.get(0) : null);
+        addResultConsumer((result) -> publishDecimationTrace());
 
         // Sync VisionModule state with the first pipeline index
         setPipeline(visionSource.getSettables().getConfiguration().currentPipelineIndex);
@@ -200,6 +224,27 @@ public class VisionModule {
         outputVideoStreamer =
                 new MJPGFrameConsumer(
                         camHostname + "_Port_" + outputStreamPort + "_Output_MJPEG_Server", outputStreamPort);
+
+        var config = visionSource.getCameraConfiguration();
+        inputVideoStreamer.setMaxFramerate(config.streamMaxFps);
+        outputVideoStreamer.setMaxFramerate(config.streamMaxFps);
+        inputFrameSaver.setFormat(config.snapshotFormat, config.snapshotQuality);
+        outputFrameSaver.setFormat(config.snapshotFormat, config.snapshotQuality);
+
+        frameRecorder =
+                new FrameRecorder(
+                        ConfigManager.getInstance().getRecordingsPath().resolve(config.uniqueName),
+                        config.nickname);
+        frameRecorder.setEncoding(config.recordingEncoding, config.recordingQuality);
+        frameRecorder.setSegmentMegabytes(config.recordingSegmentMegabytes);
+        frameRecorder.setMaxTotalMegabytes(config.recordingMaxMegabytes);
+        frameRecorder.setStopListener(
+                () -> {
+                    // Hit the size cap or ran low on disk; don't start again on the next boot
+                    visionSource.getCameraConfiguration().recordingEnabled = false;
+                    saveAndBroadcastAll();
+                });
+        frameRecorder.setEnabled(config.recordingEnabled);
     }
 
     private void recreateStreamResultConsumers() {
@@ -221,6 +266,11 @@ public class VisionModule {
                 });
     }
 
+    /**
+     * Runs the output stream pipeline and stream consumers on its own thread. The vision thread hands
+     * frames over through a single slot holding only the latest frame; if the stream thread hasn't
+     * picked up the previous frame by the time a new one arrives, the old one is dropped.
+     */
     private class StreamRunnable extends Thread {
         private final OutputStreamPipeline outputStreamPipeline;
 
@@ -229,7 +279,7 @@ public class VisionModule {
         private AdvancedPipelineSettings settings = new AdvancedPipelineSettings();
         private List<TrackedTarget> targets = new ArrayList<>();
 
-        private boolean shouldRun = false;
+        private volatile long droppedFrameCount = 0;
 
         public StreamRunnable(OutputStreamPipeline outputStreamPipeline) {
             this.outputStreamPipeline = outputStreamPipeline;
@@ -238,66 +288,90 @@ public class VisionModule {
         public void updateData(
                 Frame inputOutputFrame, AdvancedPipelineSettings settings, List<TrackedTarget> targets) {
             synchronized (frameLock) {
-                if (shouldRun && this.latestFrame != null) {
+                if (this.latestFrame != null) {
                     logger.trace("Fell behind; releasing last unused Mats");
                     this.latestFrame.release();
+                    droppedFrameCount++;
                 }
 
                 this.latestFrame = inputOutputFrame;
                 this.settings = settings;
                 this.targets = targets;
 
-                shouldRun = inputOutputFrame != null;
-                // && inputOutputFrame.colorImage != null
-                // && !inputOutputFrame.colorImage.getMat().empty()
-                // && inputOutputFrame.processedImage != null
-                // && !inputOutputFrame.processedImage.getMat().empty();
+                if (inputOutputFrame != null) frameLock.notify();
             }
         }
 
+        /** The number of frames dropped because this thread hadn't finished the previous one. */
+        public long getDroppedFrameCount() {
+            return droppedFrameCount;
+        }
+
         @Override
         public void run() {
             while (true) {
                 final Frame m_frame;
                 final AdvancedPipelineSettings settings;
                 final List<TrackedTarget> targets;
-                final boolean shouldRun;
                 synchronized (frameLock) {
+                    // Sleep until the vision thread hands us a frame
+                    while (this.latestFrame == null) {
+                        try {
+                            frameLock.wait();
+                        } catch (InterruptedException e) {
+                            logger.warn("Stream thread interrupted, exiting");
+                            return;
+                        }
+                    }
+
                     m_frame = this.latestFrame;
                     this.latestFrame = null;
 
                     settings = this.settings;
                     targets = this.targets;
-                    shouldRun = this.shouldRun;
-
-                    this.shouldRun = false;
                 }
-                if (shouldRun) {
-                    try {
-                        CVPipelineResult osr = outputStreamPipeline.process(m_frame, settings, targets);
-                        consumeResults(m_frame, targets);
-
-                    } catch (Exception e) {
-                        // Never die
-                        logger.error("Exception while running stream runnable!", e);
-                    }
-                    try {
-                        m_frame.release();
-                    } catch (Exception e) {
-                        logger.error("Exception freeing frames", e);
-                    }
-                } else {
-                    // busy wait! hurray!
-                    try {
-                        Thread.sleep(1);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
+
+                Frame streamFrame = m_frame;
+                try {
+                    // Resizing and drawing is only worth it if someone's going to see the result.
+                    // The input stream is resized and gets the crosshair too, so it counts
+                    if (outputVideoStreamer.hasClients()
+                            || outputFrameSaver.isSaveRequested()
+                            || inputVideoStreamer.hasClients()
+                            || inputFrameSaver.isSaveRequested()) {
+                        var streamResult = outputStreamPipeline.process(m_frame, settings, targets);
+                        streamFrame = streamResult.inputAndOutputFrame;
                     }
+                    consumeResults(streamFrame, targets);
+
+                } catch (Exception e) {
+                    // Never die
+                    logger.error("Exception while running stream runnable!", e);
+                }
+                try {
+                    if (streamFrame != m_frame) streamFrame.release();
+                    m_frame.release();
+                } catch (Exception e) {
+                    logger.error("Exception freeing frames", e);
                 }
             }
         }
     }
 
+    private void publishDecimationTrace() {
+        var pipeline = pipelineManager.getCurrentPipeline();
+        if (!(pipeline instanceof AprilTagPipeline)) return;
+
+        var aprilTagPipeline = (AprilTagPipeline) pipeline;
+        if (!aprilTagPipeline.getSettings().adaptiveDecimation) return;
+
+        long now = System.nanoTime();
+        if (now - lastDecimationTraceNanos < DECIMATION_TRACE_PERIOD_NANOS) return;
+        lastDecimationTraceNanos = now;
+
+        ntConsumer.publishDecimationTrace(aprilTagPipeline.getDecimationTrace());
+    }
+
     public void start() {
         visionRunner.startProcess();
         streamRunnable.start();
@@ -366,6 +440,7 @@ public class VisionModule {
         }
 
         settings.cameraAutoExposure = true;
+        settings.markChanged();
 
         setPipeline(PipelineManager.CAL_3D_INDEX);
     }
@@ -378,24 +453,46 @@ public class VisionModule {
         outputFrameSaver.overrideTakeSnapshot();
     }
 
-    public void takeCalibrationSnapshot() {
-        pipelineManager.calibration3dPipeline.takeSnapshot();
+    /** Start or stop recording every frame this camera processes to disk. */
+    public void setRecording(boolean recording) {
+        visionSource.getCameraConfiguration().recordingEnabled = recording;
+        frameRecorder.setEnabled(recording);
+        saveAndBroadcastAll();
     }
 
-    public CameraCalibrationCoefficients endCalibration() {
-        var ret = pipelineManager.calibration3dPipeline.tryCalibration();
-        pipelineManager.setCalibrationMode(false);
+    public boolean isRecording() {
+        return frameRecorder.isEnabled();
+    }
 
-        setPipeline(pipelineManager.getRequestedIndex());
+    public void takeCalibrationSnapshot() {
+        pipelineManager.calibration3dPipeline.takeSnapshot();
+    }
 
-        if (ret != null) {
-            logger.debug("Saving calibration...");
-            visionSource.getSettables().addCalibration(ret);
-        } else {
-            logger.error("Calibration failed...");
-        }
-        saveAndBroadcastAll();
-        return ret;
+    /**
+     * Solve for this camera's calibration in the background, then leave calibration mode and save
+     * the result. The stream keeps running while the solve does.
+     *
+     * @return The calibration, or null if it failed
+     */
+    public CompletableFuture<CameraCalibrationCoefficients> endCalibrationAsync() {
+        return pipelineManager
+                .calibration3dPipeline
+                .calibrateAsync()
+                .thenApply(
+                        ret -> {
+                            pipelineManager.setCalibrationMode(false);
+
+                            setPipeline(pipelineManager.getRequestedIndex());
+
+                            if (ret != null) {
+                                logger.debug("Saving calibration...");
+                                visionSource.getSettables().addCalibration(ret);
+                            } else {
+                                logger.error("Calibration failed...");
+                            }
+                            saveAndBroadcastAll();
+                            return ret;
+                        });
     }
 
     boolean setPipeline(int index) {
@@ -571,6 +668,7 @@ public class VisionModule {
         ret.cameraQuirks = visionSource.getSettables().getConfiguration().cameraQuirks;
         ret.availableModels = getAvailableModels();
         ret.maxExposureRaw = visionSource.getSettables().getMaxExposureRaw();
+        ret.isRecording = isRecording();
         ret.minExposureRaw = visionSource.getSettables().getMinExposureRaw();
 
         // TODO refactor into helper method
@@ -174,6 +174,7 @@ public class VisionModuleChangeSubscriber extends DataChangeSubscriber {
                                     default:
                                         break;
                                 }
+                                curAdvSettings.markChanged();
                             }
                         }
                         return;
@@ -231,6 +232,7 @@ public class VisionModuleChangeSubscriber extends DataChangeSubscriber {
                     } else {
                         propField.set(newPropValue, newPropValue);
                     }
+                    currentSettings.markChanged();
                     logger.trace("Set prop " + propName + " to value " + newPropValue);
                 } catch (NoSuchFieldException | IllegalAccessException e) {
                     logger.error(
@@ -17,6 +17,8 @@
 
 package org.photonvision.vision.processes;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import org.photonvision.common.logging.LogGroup;
@@ -29,17 +31,29 @@ import org.photonvision.vision.pipeline.AdvancedPipelineSettings;
 import org.photonvision.vision.pipeline.CVPipeline;
 import org.photonvision.vision.pipeline.result.CVPipelineResult;
 
-/** VisionRunner has a frame supplier, a pipeline supplier, and a result consumer */
+/**
+ * VisionRunner has a frame supplier, a pipeline supplier, and a result consumer.
+ *
+ * <p>By default, capture and processing happen serially on one thread. With a pipeline depth
+ * greater than zero, capture (and CPU preprocessing) runs on its own thread and hands frames to the
+ * processing thread through a bounded queue, so frame N+1 can be captured while frame N is being
+ * processed. If the processing thread falls behind, the oldest queued frame is dropped.
+ */
 @SuppressWarnings("rawtypes")
 public class VisionRunner {
     private final Logger logger;
     private final Thread visionProcessThread;
+    private final Thread captureThread;
     private final FrameProvider frameSupplier;
     private final Supplier<CVPipeline> pipelineSupplier;
     private final Consumer<CVPipelineResult> pipelineResultConsumer;
     private final QuirkyCamera cameraQuirks;
 
+    // Hand-off slots between the capture and processing threads, or null if running serially
+    private final BlockingQueue<Frame> frameQueue;
+
     private long loopCount;
+    private volatile long droppedFrameCount;
 
     /**
      * VisionRunner contains a thread to run a pipeline, given a frame, and will give the result to
@@ -54,63 +68,154 @@ public class VisionRunner {
             Supplier<CVPipeline> pipelineSupplier,
             Consumer<CVPipelineResult> pipelineResultConsumer,
             QuirkyCamera cameraQuirks) {
+        this(frameSupplier, pipelineSupplier, pipelineResultConsumer, cameraQuirks, 0);
+    }
+
+    /**
+     * VisionRunner contains a thread to run a pipeline, given a frame, and will give the result to
+     * the consumer.
+     *
+     * @param frameSupplier The supplier of the latest frame.
+     * @param pipelineSupplier The supplier of the current pipeline.
+     * @param pipelineResultConsumer The consumer of the latest result.
+     * @param pipelineDepth The number of captured frames that may wait for processing. Zero (or
+     *     less) captures and processes serially on a single thread.
+     */
+    public VisionRunner(
+            FrameProvider frameSupplier,
+            Supplier<CVPipeline> pipelineSupplier,
+            Consumer<CVPipelineResult> pipelineResultConsumer,
+            QuirkyCamera cameraQuirks,
+            int pipelineDepth) {
         this.frameSupplier = frameSupplier;
         this.pipelineSupplier = pipelineSupplier;
         this.pipelineResultConsumer = pipelineResultConsumer;
         this.cameraQuirks = cameraQuirks;
+        logger = new Logger(VisionRunner.class, frameSupplier.getName(), LogGroup.VisionModule);
 
-        visionProcessThread = new Thread(this::update);
+        if (pipelineDepth > 0) {
+            frameQueue = new ArrayBlockingQueue<>(pipelineDepth);
+
+            captureThread = new Thread(this::captureLoop);
+            captureThread.setName("VisionRunner Capture - " + frameSupplier.getName());
+            visionProcessThread = new Thread(this::processLoop);
+
+            logger.info("Using pipelined capture with depth " + pipelineDepth);
+        } else {
+            frameQueue = null;
+            captureThread = null;
+            visionProcessThread = new Thread(this::update);
+        }
         visionProcessThread.setName("VisionRunner - " + frameSupplier.getName());
-        logger = new Logger(VisionRunner.class, frameSupplier.getName(), LogGroup.VisionModule);
     }
 
     public void startProcess() {
         visionProcessThread.start();
+        if (captureThread != null) captureThread.start();
+    }
+
+    /** The number of captured frames dropped because processing fell behind capture. */
+    public long getDroppedFrameCount() {
+        return droppedFrameCount;
     }
 
     private void update() {
         while (!Thread.interrupted()) {
-            var pipeline = pipelineSupplier.get();
-
-            // Tell our camera implementation here what kind of pre-processing we need it to be doing
-            // (pipeline-dependent). I kinda hate how much leak this has...
-            // TODO would a callback object be a better fit?
-            var wantedProcessType = pipeline.getThresholdType();
-
-            frameSupplier.requestFrameThresholdType(wantedProcessType);
-            var settings = pipeline.getSettings();
-            if (settings instanceof AdvancedPipelineSettings) {
-                var advanced = (AdvancedPipelineSettings) settings;
-                var hsvParams =
-                        new HSVPipe.HSVParams(
-                                advanced.hsvHue, advanced.hsvSaturation, advanced.hsvValue, advanced.hueInverted);
-                // TODO who should deal with preventing this from happening _every single loop_?
-                frameSupplier.requestHsvSettings(hsvParams);
-            }
-            frameSupplier.requestFrameRotation(settings.inputImageRotationMode);
-            frameSupplier.requestFrameCopies(settings.inputShouldShow, settings.outputShouldShow);
-
-            // Grab the new camera frame
-            var frame = frameSupplier.get();
-
-            // Frame empty -- no point in trying to do anything more?
-            if (frame.processedImage.getMat().empty() && frame.colorImage.getMat().empty()) {
-                // give up without increasing loop count
-                // Still feed with blank frames just dont run any pipelines
-                pipelineResultConsumer.accept(new CVPipelineResult(0l, 0, 0, null, new Frame()));
-                continue;
+            var frame = captureFrame();
+            processFrame(frame);
+        }
+
+        frameSupplier.release();
+    }
+
+    private void captureLoop() {
+        while (!Thread.interrupted()) {
+            var frame = captureFrame();
+
+            // Drop-oldest: we'd rather process the newest frame than fall further behind the camera.
+            // We're the only producer, so the queue can only get emptier between these calls
+            while (!frameQueue.offer(frame)) {
+                var stale = frameQueue.poll();
+                if (stale != null) {
+                    stale.release();
+                    droppedFrameCount++;
+                }
             }
+        }
+
+        // Only this thread grabs frames, so nothing else can be using the provider by now
+        frameSupplier.release();
+    }
 
-            // There's no guarantee the processing type change will occur this tick, so pipelines should
-            // check themselves
+    private void processLoop() {
+        while (!Thread.interrupted()) {
+            Frame frame;
             try {
-                var pipelineResult = pipeline.run(frame, cameraQuirks);
-                pipelineResultConsumer.accept(pipelineResult);
-            } catch (Exception ex) {
-                logger.error("Exception on loop " + loopCount, ex);
+                frame = frameQueue.take();
+            } catch (InterruptedException e) {
+                break;
             }
+            processFrame(frame);
+        }
+
+        captureThread.interrupt();
+    }
+
+    /**
+     * Configure the frame provider for the current pipeline and grab the next frame from it.
+     *
+     * @return The latest frame
+     */
+    private Frame captureFrame() {
+        var pipeline = pipelineSupplier.get();
 
-            loopCount++;
+        // Tell our camera implementation here what kind of pre-processing we need it to be doing
+        // (pipeline-dependent). I kinda hate how much leak this has...
+        // TODO would a callback object be a better fit?
+        var wantedProcessType = pipeline.getThresholdType();
+
+        frameSupplier.requestFrameThresholdType(wantedProcessType);
+        var settings = pipeline.getSettings();
+        if (settings instanceof AdvancedPipelineSettings) {
+            var advanced = (AdvancedPipelineSettings) settings;
+            var hsvParams =
+                    new HSVPipe.HSVParams(
+                            advanced.hsvHue, advanced.hsvSaturation, advanced.hsvValue, advanced.hueInverted);
+            // TODO who should deal with preventing this from happening _every single loop_?
+            frameSupplier.requestHsvSettings(hsvParams);
         }
+        frameSupplier.requestFrameRotation(settings.inputImageRotationMode);
+        frameSupplier.requestFrameCopies(settings.inputShouldShow, settings.outputShouldShow);
+
+        // Grab the new camera frame
+        return frameSupplier.get();
+    }
+
+    /**
+     * Run the current pipeline on a frame and hand the result off to our consumer.
+     *
+     * @param frame The frame to process
+     */
+    private void processFrame(Frame frame) {
+        // Frame empty -- no point in trying to do anything more?
+        if (frame.processedImage.getMat().empty() && frame.colorImage.getMat().empty()) {
+            // give up without increasing loop count
+            // Still feed with blank frames just dont run any pipelines
+            pipelineResultConsumer.accept(new CVPipelineResult(0l, 0, 0, null, frame));
+            return;
+        }
+
+        // The pipeline may have changed since this frame was captured. There's no guarantee the
+        // processing type change will occur this tick anyways, so pipelines should check themselves
+        var pipeline = pipelineSupplier.get();
+        try {
+            var pipelineResult = pipeline.run(frame, cameraQuirks);
+            pipelineResultConsumer.accept(pipelineResult);
+            frameSupplier.onFrameProcessed(frame);
+        } catch (Exception ex) {
+            logger.error("Exception on loop " + loopCount, ex);
+        }
+
+        loopCount++;
     }
 }
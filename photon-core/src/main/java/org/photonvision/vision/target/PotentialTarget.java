@@ -45,7 +45,8 @@ public class PotentialTarget implements Releasable {
 
     public PotentialTarget(Contour inputContour, List<Contour> subContours, CVShape shape) {
         m_mainContour = inputContour;
-        m_subContours = new ArrayList<>(subContours);
+        // Most targets are single contours -- don't allocate a list for those
+        m_subContours = subContours.isEmpty() ? List.of() : new ArrayList<>(subContours);
         this.shape = shape;
         this.clsId = -1;
         this.confidence = -1;
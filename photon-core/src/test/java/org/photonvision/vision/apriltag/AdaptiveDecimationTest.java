@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) Photon Vision.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.photonvision.vision.apriltag;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.wpi.first.apriltag.AprilTagDetection;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.photonvision.common.util.TestUtils;
+
+public class AdaptiveDecimationTest {
+    @BeforeAll
+    public static void init() {
+        TestUtils.loadLibraries();
+    }
+
+    private static List<AprilTagDetection> squareTag(double edge) {
+        return List.of(
+                new AprilTagDetection(
+                        "tag36h11",
+                        1,
+                        0,
+                        100,
+                        new double[9],
+                        edge / 2,
+                        edge / 2,
+                        new double[] {0, 0, edge, 0, edge, edge, 0, edge}));
+    }
+
+    @Test
+    public void followsTagSizeWithHysteresis() {
+        var decimation = new AdaptiveDecimation();
+        decimation.configure(2, 4);
+        assertEquals(2, decimation.getDecimation());
+
+        // Big tag, decimate as much as allowed
+        assertEquals(4, decimation.update(squareTag(200), 0));
+        // Still 25px per edge at 4x, stay
+        assertEquals(4, decimation.update(squareTag(100), 0));
+        // Too small at 4x, back off immediately
+        assertEquals(3, decimation.update(squareTag(90), 0));
+        // Growing back isn't enough to clear the hysteresis band
+        assertEquals(3, decimation.update(squareTag(100), 0));
+        assertEquals(4, decimation.update(squareTag(130), 0));
+    }
+
+    @Test
+    public void fallsBackToSearchDecimation() {
+        var decimation = new AdaptiveDecimation();
+        decimation.configure(1, 4);
+        assertEquals(4, decimation.update(squareTag(400), 0));
+
+        for (int i = 1; i < AdaptiveDecimation.FRAMES_BEFORE_SEARCH; i++) {
+            assertEquals(4, decimation.update(List.of(), 0));
+        }
+        assertEquals(1, decimation.update(List.of(), 0));
+
+        var trace = decimation.getTrace();
+        assertEquals(AdaptiveDecimation.FRAMES_BEFORE_SEARCH + 1, trace.size());
+        assertEquals(1, trace.get(0).decimation);
+        assertEquals(4, trace.get(trace.size() - 1).decimation);
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) Photon Vision.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.photonvision.vision.frame.consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.photonvision.common.dataflow.structures.Packet;
+import org.photonvision.common.util.TestUtils;
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.vision.frame.Frame;
+import org.photonvision.vision.frame.FrameStaticProperties;
+import org.photonvision.vision.frame.FrameThresholdType;
+import org.photonvision.vision.frame.recording.FrameRecording;
+import org.photonvision.vision.frame.recording.FrameRecordingReader;
+import org.photonvision.vision.opencv.CVMat;
+import org.photonvision.vision.pipeline.result.CVPipelineResult;
+
+public class FrameRecorderTest {
+    private static Mat image;
+
+    @BeforeAll
+    public static void init() {
+        TestUtils.loadLibraries();
+        var path = TestUtils.getWPIImagePath(TestUtils.WPI2020Image.kBlueGoal_084in_Center, false);
+        image = Imgcodecs.imread(path.toString());
+    }
+
+    private static CVPipelineResult resultFor(long sequenceID, long timestampNanos) {
+        var color = new CVMat();
+        image.copyTo(color.getMat());
+        var frame =
+                new Frame(
+                        sequenceID,
+                        color,
+                        new CVMat(),
+                        FrameThresholdType.NONE,
+                        timestampNanos,
+                        new FrameStaticProperties(image.width(), image.height(), 68.5, null));
+        var result = new CVPipelineResult(sequenceID, 0, 0, List.of(), frame);
+        result.setImageCaptureTimestampNanos(timestampNanos);
+        return result;
+    }
+
+    private static void awaitRecorded(FrameRecorder recorder, long count)
+            throws InterruptedException {
+        for (int i = 0; i < 200 && recorder.getRecordedCount() < count; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void recordsFramesAndResults(@TempDir Path dir) throws Exception {
+        var recorder = new FrameRecorder(dir, "test");
+        recorder.setEncoding(FrameRecording.Encoding.RAW, 0);
+
+        // Nothing is recorded until recording is turned on
+        var ignored = resultFor(1, 1000);
+        recorder.accept(ignored);
+        ignored.release();
+
+        recorder.setEnabled(true);
+        for (int i = 0; i < 3; i++) {
+            // Offer them slowly enough that none get dropped
+            var result = resultFor(10 + i, 1000 * (i + 1));
+            recorder.accept(result);
+            result.release();
+            awaitRecorded(recorder, i + 1);
+        }
+        recorder.setEnabled(false);
+
+        assertEquals(3, recorder.getRecordedCount());
+        assertEquals(0, recorder.getFailedCount());
+
+        var reader = new FrameRecordingReader(recorder.getRecordingDirectory());
+        assertEquals(3, reader.getFrameCount());
+        var read = new Mat();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(10 + i, reader.getSequenceID(i));
+            assertEquals(1000 * (i + 1), reader.getTimestampNanos(i));
+
+            reader.readImage(i, read, null);
+            assertEquals(image.size(), read.size());
+
+            var result = PhotonPipelineResult.serde.unpack(new Packet(reader.getMetadata(i)));
+            assertEquals(10 + i, result.getSequenceID());
+            assertFalse(result.hasTargets());
+        }
+        read.release();
+    }
+
+    @Test
+    public void rollsOverToNewSegments(@TempDir Path dir) throws IOException, InterruptedException {
+        var recorder = new FrameRecorder(dir, "test");
+        // A raw 640x480 frame is ~900KB, so every frame needs its own 1MB segment
+        recorder.setEncoding(FrameRecording.Encoding.RAW, 0);
+        recorder.setSegmentMegabytes(1);
+
+        recorder.setEnabled(true);
+        for (int i = 0; i < 3; i++) {
+            var result = resultFor(i, i);
+            recorder.accept(result);
+            result.release();
+            awaitRecorded(recorder, i + 1);
+        }
+        recorder.setEnabled(false);
+
+        var segments = recorder.getRecordingDirectory().toFile().list();
+        assertNotNull(segments);
+        assertEquals(3, segments.length);
+        assertEquals(3, new FrameRecordingReader(recorder.getRecordingDirectory()).getFrameCount());
+    }
+
+    @Test
+    public void stopsAtSizeCap(@TempDir Path dir) throws InterruptedException {
+        var recorder = new FrameRecorder(dir, "test");
+        // Two ~900KB raw frames fit in 2MB, the third doesn't
+        recorder.setEncoding(FrameRecording.Encoding.RAW, 0);
+        recorder.setSegmentMegabytes(1);
+        recorder.setMaxTotalMegabytes(2);
+        var stopped = new AtomicBoolean();
+        recorder.setStopListener(() -> stopped.set(true));
+
+        recorder.setEnabled(true);
+        for (int i = 0; i < 3; i++) {
+            var result = resultFor(i, i);
+            recorder.accept(result);
+            result.release();
+            awaitRecorded(recorder, Math.min(i + 1, 2));
+        }
+        for (int i = 0; i < 200 && !stopped.get(); i++) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(stopped.get());
+        assertFalse(recorder.isEnabled());
+        assertEquals(2, recorder.getRecordedCount());
+
+        // Frames offered after stopping are ignored
+        var result = resultFor(3, 3);
+        recorder.accept(result);
+        result.release();
+        assertEquals(2, recorder.getRecordedCount());
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) Photon Vision.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.photonvision.vision.frame.consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.photonvision.common.configuration.SnapshotFormat;
+import org.photonvision.common.util.TestUtils;
+import org.photonvision.vision.opencv.MatPool;
+
+public class SnapshotWriterTest {
+    @TempDir Path dir;
+
+    @BeforeAll
+    public static void init() {
+        TestUtils.loadLibraries();
+    }
+
+    private static Mat randomImage(int rows, int cols) {
+        var image = new Mat(rows, cols, CvType.CV_8UC3);
+        Core.randu(image, 0, 256);
+        return image;
+    }
+
+    private static void awaitFinished(SnapshotWriter writer, long count)
+            throws InterruptedException {
+        for (int i = 0;
+                i < 200 && writer.getWrittenCount() + writer.getFailedCount() < count;
+                i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void dropsWhenQueueFull() throws InterruptedException {
+        // Not started yet, so nothing leaves the queue until we say so
+        var writer = new SnapshotWriter(2);
+        var image = randomImage(48, 64);
+
+        assertNotNull(writer.offer(image, dir.toString(), "a", SnapshotFormat.PNG, 1));
+        assertNotNull(writer.offer(image, dir.toString(), "b", SnapshotFormat.PNG, 1));
+        assertNull(writer.offer(image, dir.toString(), "c", SnapshotFormat.PNG, 1));
+        assertEquals(1, writer.getDroppedCount());
+        assertEquals(2, writer.getQueuedCount());
+
+        writer.start();
+        awaitFinished(writer, 2);
+
+        assertEquals(2, writer.getWrittenCount());
+        assertEquals(0, writer.getFailedCount());
+        assertEquals(0, writer.getQueuedCount());
+        assertTrue(dir.resolve("a.png").toFile().isFile());
+        assertTrue(dir.resolve("b.png").toFile().isFile());
+        assertFalse(dir.resolve("c.png").toFile().exists());
+        image.release();
+    }
+
+    @ParameterizedTest
+    @EnumSource(SnapshotFormat.class)
+    public void writesEachFormat(SnapshotFormat format) throws InterruptedException {
+        var writer = new SnapshotWriter(1);
+        writer.start();
+        var image = randomImage(48, 64);
+
+        var path = writer.offer(image, dir.toString(), "snapshot", format, 95);
+        assertNotNull(path);
+        assertTrue(path.endsWith(format.extension));
+        awaitFinished(writer, 1);
+        assertEquals(1, writer.getWrittenCount());
+
+        var read = Imgcodecs.imread(path);
+        assertEquals(image.size(), read.size());
+        assertEquals(image.type(), read.type());
+        if (format != SnapshotFormat.JPEG) {
+            // Only JPEG is lossy
+            assertEquals(0, Core.norm(image, read, Core.NORM_INF));
+        }
+        read.release();
+        image.release();
+    }
+
+    @Test
+    public void returnsCopiesToThePool() throws InterruptedException {
+        var writer = new SnapshotWriter(4);
+        writer.start();
+        // A size nothing else uses, so only our copies can be in the pool under it
+        var image = randomImage(37, 53);
+
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(writer.offer(image, dir.toString(), "pooled" + i, SnapshotFormat.BMP, 0));
+            awaitFinished(writer, i + 1);
+        }
+        assertEquals(3, writer.getWrittenCount());
+
+        // Once written, the copy went back to the pool, so taking one of the same size reuses it
+        var pool = MatPool.getInstance();
+        long allocations = pool.getAllocationCount();
+        var reused = pool.take(image.rows(), image.cols(), image.type());
+        assertEquals(allocations, pool.getAllocationCount());
+        reused.release();
+        image.release();
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) Photon Vision.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.photonvision.vision.frame.provider;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.photonvision.common.util.TestUtils;
+import org.photonvision.vision.frame.recording.FrameRecording;
+import org.photonvision.vision.frame.recording.FrameRecordingReader;
+
+public class ReplayFrameProviderTest {
+    private static final long FRAME_GAP_NANOS = 50_000_000;
+
+    private static Mat[] images;
+
+    @BeforeAll
+    public static void init() {
+        TestUtils.loadLibraries();
+        images =
+                new Mat[] {
+                    load(TestUtils.WPI2020Image.kBlueGoal_084in_Center),
+                    load(TestUtils.WPI2020Image.kBlueGoal_108in_Center),
+                    load(TestUtils.WPI2020Image.kBlueGoal_156in_Left)
+                };
+    }
+
+    private static Mat load(TestUtils.WPI2020Image image) {
+        return Imgcodecs.imread(TestUtils.getWPIImagePath(image, false).toString());
+    }
+
+    /** Record the test images FRAME_GAP_NANOS apart, alternating raw and JPEG. */
+    private static Path writeRecording(Path dir) throws IOException {
+        var file = dir.resolve("replay" + FrameRecording.SEGMENT_EXTENSION);
+        try (var out =
+                new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            FrameRecording.writeFileHeader(out);
+            for (int i = 0; i < images.length; i++) {
+                var encoding =
+                        i % 2 == 0 ? FrameRecording.Encoding.RAW : FrameRecording.Encoding.JPEG;
+                var bytes = FrameRecording.encodeImage(images[i], encoding, 95);
+                var metadata = ("frame " + i).getBytes();
+                FrameRecording.writeFrame(
+                        out, i * FRAME_GAP_NANOS, 100 + i, images[i], encoding, bytes, metadata);
+            }
+        }
+        return file;
+    }
+
+    @Test
+    public void readsRecordingBackInOrder(@TempDir Path dir) throws IOException {
+        var reader = new FrameRecordingReader(writeRecording(dir));
+        assertEquals(images.length, reader.getFrameCount());
+
+        var image = new Mat();
+        byte[] scratch = null;
+        for (int i = 0; i < images.length; i++) {
+            assertEquals(i * FRAME_GAP_NANOS, reader.getTimestampNanos(i));
+            assertEquals(100 + i, reader.getSequenceID(i));
+            assertEquals("frame " + i, new String(reader.getMetadata(i)));
+
+            scratch = reader.readImage(i, image, scratch);
+            assertEquals(images[i].size(), image.size());
+            assertEquals(images[i].type(), image.type());
+            if (i % 2 == 0) {
+                // Raw frames come back exactly
+                var diff = new Mat();
+                Core.absdiff(images[i], image, diff);
+                assertEquals(0, Core.countNonZero(diff.reshape(1)));
+                diff.release();
+            }
+        }
+        image.release();
+    }
+
+    @Test
+    public void skipsPartialLastFrame(@TempDir Path dir) throws IOException {
+        var file = writeRecording(dir);
+        try (var raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(raf.length() - 10);
+        }
+
+        var reader = new FrameRecordingReader(file);
+        assertEquals(images.length - 1, reader.getFrameCount());
+    }
+
+    @Test
+    public void stopsAtCorruptFrame(@TempDir Path dir) throws IOException {
+        // Where the second frame's header starts, and its encoding and image length within it
+        var firstImage = FrameRecording.encodeImage(images[0], FrameRecording.Encoding.RAW, 95);
+        long secondFrame =
+                FrameRecording.FILE_HEADER_BYTES
+                        + FrameRecording.RECORD_HEADER_BYTES
+                        + firstImage.length
+                        + "frame 0".getBytes().length;
+        int encodingOffset = 32;
+        int imageLengthOffset = 36;
+
+        var badEncoding = writeRecording(Files.createDirectory(dir.resolve("encoding")));
+        try (var raf = new RandomAccessFile(badEncoding.toFile(), "rw")) {
+            raf.seek(secondFrame + encodingOffset);
+            raf.writeInt(FrameRecording.Encoding.values().length);
+        }
+        assertEquals(1, new FrameRecordingReader(badEncoding).getFrameCount());
+
+        var badLength = writeRecording(Files.createDirectory(dir.resolve("length")));
+        try (var raf = new RandomAccessFile(badLength.toFile(), "rw")) {
+            raf.seek(secondFrame + imageLengthOffset);
+            raf.writeInt(-1000);
+        }
+        assertEquals(1, new FrameRecordingReader(badLength).getFrameCount());
+    }
+
+    @Test
+    public void stopsAtRawFrameNotMatchingItsHeader(@TempDir Path dir) throws IOException {
+        // Where the third frame's header starts, and its width and type within it. It's raw
+        var firstImage = FrameRecording.encodeImage(images[0], FrameRecording.Encoding.RAW, 95);
+        var secondImage = FrameRecording.encodeImage(images[1], FrameRecording.Encoding.JPEG, 95);
+        long thirdFrame =
+                FrameRecording.FILE_HEADER_BYTES
+                        + 2 * FrameRecording.RECORD_HEADER_BYTES
+                        + firstImage.length
+                        + secondImage.length
+                        + "frame 0".getBytes().length
+                        + "frame 1".getBytes().length;
+        int widthOffset = 20;
+        int typeOffset = 28;
+
+        // Sizes that don't add up to the image length
+        var badWidth = writeRecording(Files.createDirectory(dir.resolve("width")));
+        try (var raf = new RandomAccessFile(badWidth.toFile(), "rw")) {
+            raf.seek(thirdFrame + widthOffset);
+            raf.writeInt(images[2].cols() + 1);
+        }
+        assertEquals(2, new FrameRecordingReader(badWidth).getFrameCount());
+
+        var fewerChannels = writeRecording(Files.createDirectory(dir.resolve("channels")));
+        try (var raf = new RandomAccessFile(fewerChannels.toFile(), "rw")) {
+            raf.seek(thirdFrame + typeOffset);
+            raf.writeInt(CvType.CV_8UC1);
+        }
+        assertEquals(2, new FrameRecordingReader(fewerChannels).getFrameCount());
+
+        // Types a raw frame's bytes can't be put into
+        var wideType = writeRecording(Files.createDirectory(dir.resolve("wide")));
+        try (var raf = new RandomAccessFile(wideType.toFile(), "rw")) {
+            raf.seek(thirdFrame + typeOffset);
+            raf.writeInt(CvType.CV_16UC3);
+        }
+        assertEquals(2, new FrameRecordingReader(wideType).getFrameCount());
+
+        var negativeType = writeRecording(Files.createDirectory(dir.resolve("negative")));
+        try (var raf = new RandomAccessFile(negativeType.toFile(), "rw")) {
+            raf.seek(thirdFrame + typeOffset);
+            raf.writeInt(-1);
+        }
+        assertEquals(2, new FrameRecordingReader(negativeType).getFrameCount());
+    }
+
+    @Test
+    public void playsEveryFrameAsFastAsPossible(@TempDir Path dir) throws IOException {
+        var provider = new ReplayFrameProvider(writeRecording(dir), 68.5);
+        provider.setTiming(ReplayFrameProvider.ReplayTiming.AS_FAST_AS_POSSIBLE);
+        provider.setLooping(false);
+
+        for (var image : images) {
+            var frame = provider.get();
+            assertEquals(image.size(), frame.colorImage.getMat().size());
+            frame.release();
+        }
+        assertFalse(provider.isFinished());
+
+        var frame = provider.get();
+        assertTrue(frame.colorImage.getMat().empty());
+        assertTrue(provider.isFinished());
+        assertEquals(1, provider.getPassCount());
+        frame.release();
+    }
+
+    @Test
+    public void keepsOriginalTiming(@TempDir Path dir) throws IOException {
+        var provider = new ReplayFrameProvider(writeRecording(dir), 68.5);
+        provider.setTiming(ReplayFrameProvider.ReplayTiming.ORIGINAL);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < images.length; i++) {
+            provider.get().release();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // The first frame is handed out immediately, then each later one after its recorded gap
+        assertTrue(elapsed >= (images.length - 1) * FRAME_GAP_NANOS * 0.9, "Elapsed " + elapsed);
+    }
+
+    @Test
+    public void reportsLatencyPerPass(@TempDir Path dir) throws IOException {
+        var provider = new ReplayFrameProvider(writeRecording(dir), 68.5);
+        provider.setTiming(ReplayFrameProvider.ReplayTiming.AS_FAST_AS_POSSIBLE);
+        assertNull(provider.getLastPassLatency());
+
+        // Stand in for VisionRunner, reporting back each frame as it's processed
+        for (int i = 0; i < images.length; i++) {
+            var frame = provider.get();
+            provider.onFrameProcessed(frame);
+            frame.release();
+        }
+        assertEquals(images.length, provider.getCurrentPassLatency().count);
+
+        // Looping back to the start closes out the first pass
+        provider.get().release();
+        assertEquals(1, provider.getPassCount());
+        var latency = provider.getLastPassLatency();
+        assertEquals(images.length, latency.count);
+        assertTrue(latency.minMillis >= 0);
+        assertTrue(latency.maxMillis >= latency.p50Millis);
+        assertFalse(provider.isFinished());
+    }
+}
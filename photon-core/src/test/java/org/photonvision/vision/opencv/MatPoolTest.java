@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) Photon Vision.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.photonvision.vision.opencv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.photonvision.common.util.TestUtils;
+
+public class MatPoolTest {
+    @BeforeEach
+    public void Init() {
+        TestUtils.loadLibraries();
+    }
+
+    @Test
+    public void reusesReleasedMats() {
+        var pool = new MatPool();
+
+        var first = pool.take(480, 640, CvType.CV_8UC1);
+        var firstMat = first.getMat();
+        first.release();
+
+        var second = pool.take(480, 640, CvType.CV_8UC1);
+        assertSame(firstMat, second.getMat());
+        assertEquals(1, pool.getAllocationCount());
+        assertEquals(1, pool.getReuseCount());
+
+        // Different type, so this one can't come from the same bucket
+        var third = pool.take(480, 640, CvType.CV_8UC3);
+        assertNotSame(firstMat, third.getMat());
+        assertEquals(2, pool.getAllocationCount());
+
+        second.release();
+        third.release();
+        pool.clear();
+    }
+
+    @Test
+    public void onlyLastReferenceReturnsMat() {
+        var pool = new MatPool();
+
+        var mat = pool.take(240, 320, CvType.CV_8UC3);
+        mat.retain();
+        mat.release();
+
+        // Still referenced, so the pool has to allocate a fresh one
+        var other = pool.take(240, 320, CvType.CV_8UC3);
+        assertNotSame(mat.getMat(), other.getMat());
+        assertFalse(mat.getMat().empty());
+
+        mat.release();
+        // A stray extra release must not hand the same Mat out twice
+        mat.release();
+
+        var a = pool.take(240, 320, CvType.CV_8UC3);
+        var b = pool.take(240, 320, CvType.CV_8UC3);
+        assertNotSame(a.getMat(), b.getMat());
+
+        other.release();
+        a.release();
+        b.release();
+        pool.clear();
+    }
+}
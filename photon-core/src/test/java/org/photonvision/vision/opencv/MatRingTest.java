@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) Photon Vision.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.photonvision.vision.opencv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.photonvision.common.util.TestUtils;
+
+public class MatRingTest {
+    @BeforeEach
+    public void Init() {
+        TestUtils.loadLibraries();
+    }
+
+    @Test
+    public void cyclesThroughFixedSlots() {
+        var ring = new MatRing(3, 480, 640, CvType.CV_8UC3);
+
+        // Keep handing frames off and releasing them, like a camera loop would
+        var seen = new HashSet<Long>();
+        for (int i = 0; i < 30; i++) {
+            var frame = ring.take();
+            assertEquals(480, frame.getMat().rows());
+            seen.add(frame.getMat().getNativeObjAddr());
+            frame.release();
+        }
+        assertEquals(3, ring.getFreeCount());
+        assertEquals(0, ring.getOverflowCount());
+        assertEquals(30, ring.getTakeCount());
+        // Never more than the ring's own Mats
+        assertTrue(seen.size() <= 3);
+
+        ring.release();
+    }
+
+    @Test
+    public void heldSlotsAreNotReused() {
+        var ring = new MatRing(2);
+
+        var held = ring.take();
+        // Another thread (e.g. a stream) keeps the frame after the vision thread is done with it
+        held.retain();
+        held.release();
+
+        var next = ring.take();
+        assertNotSame(held.getMat(), next.getMat());
+        assertEquals(0, ring.getFreeCount());
+
+        // Every slot is out, so this has to be a temporary Mat
+        var overflow = ring.take();
+        assertEquals(1, ring.getOverflowCount());
+
+        held.release();
+        next.release();
+        overflow.release();
+        // The temporary one is freed, not added to the ring
+        assertEquals(2, ring.getFreeCount());
+
+        var heldMat = held.getMat();
+        var taken = new ArrayList<CVMat>();
+        taken.add(ring.take());
+        taken.add(ring.take());
+        assertTrue(taken.get(0).getMat() == heldMat || taken.get(1).getMat() == heldMat);
+        assertEquals(0, ring.getFreeCount());
+
+        taken.forEach(CVMat::release);
+        ring.release();
+    }
+
+    @Test
+    public void slotsReturnedAfterReleaseAreFreed() {
+        var ring = new MatRing(2, 48, 64, CvType.CV_8UC1);
+        var held = ring.take();
+
+        // The camera goes away while a stream still holds a frame
+        ring.release();
+        assertEquals(0, ring.getFreeCount());
+
+        held.release();
+        assertEquals(0, ring.getFreeCount());
+        assertTrue(held.getMat().empty());
+    }
+
+    @Test
+    public void releaseRacingRecycleFreesEverySlot() throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            var ring = new MatRing(4, 48, 64, CvType.CV_8UC1);
+            var held = new ArrayList<CVMat>();
+            for (int j = 0; j < 4; j++) held.add(ring.take());
+
+            var start = new CountDownLatch(1);
+            var returner =
+                    new Thread(
+                            () -> {
+                                try {
+                                    start.await();
+                                } catch (InterruptedException e) {
+                                    return;
+                                }
+                                held.forEach(CVMat::release);
+                            });
+            returner.start();
+            start.countDown();
+            ring.release();
+            returner.join();
+
+            // However the two interleaved, nothing is left sitting in a released ring
+            assertEquals(0, ring.getFreeCount());
+            for (var mat : held) assertTrue(mat.getMat().empty());
+        }
+    }
+}
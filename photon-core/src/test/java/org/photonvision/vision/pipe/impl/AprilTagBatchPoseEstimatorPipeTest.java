@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) Photon Vision.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.photonvision.vision.pipe.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.wpi.first.apriltag.AprilTagDetection;
+import edu.wpi.first.apriltag.AprilTagPoseEstimate;
+import edu.wpi.first.apriltag.AprilTagPoseEstimator;
+import edu.wpi.first.math.geometry.Transform3d;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.calib3d.Calib3d;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.photonvision.common.util.TestUtils;
+import org.photonvision.vision.calibration.CameraCalibrationCoefficients;
+import org.photonvision.vision.pipe.impl.AprilTagBatchPoseEstimatorPipe.AprilTagPoseEstimatorPipeParams;
+
+public class AprilTagBatchPoseEstimatorPipeTest {
+    private static final double TAG_WIDTH = 0.1651;
+    private static final int ITERATIONS = 40;
+
+    private static CameraCalibrationCoefficients calibration;
+    private static AprilTagPoseEstimator.Config config;
+
+    @BeforeAll
+    public static void init() {
+        TestUtils.loadLibraries();
+        calibration = TestUtils.get2020LifeCamCoeffs(true);
+
+        var cameraMatrix = calibration.getCameraIntrinsicsMat();
+        config =
+                new AprilTagPoseEstimator.Config(
+                        TAG_WIDTH,
+                        cameraMatrix.get(0, 0)[0],
+                        cameraMatrix.get(1, 1)[0],
+                        cameraMatrix.get(0, 2)[0],
+                        cameraMatrix.get(1, 2)[0]);
+    }
+
+    /**
+     * A detection of a tag at the given position in the camera frame, turned by yaw about the
+     * camera's vertical axis. The homography maps tag coordinates, from -1 to 1, to pixels.
+     */
+    private static AprilTagDetection detection(int id, double x, double y, double z, double yaw) {
+        double s = TAG_WIDTH / 2;
+        double[][] rt = {
+            {Math.cos(yaw) * s, 0, x},
+            {0, s, y},
+            {-Math.sin(yaw) * s, 0, z}
+        };
+        double[] k = {config.fx, 0, config.cx, 0, config.fy, config.cy, 0, 0, 1};
+
+        var homography = new double[9];
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                for (int i = 0; i < 3; i++) {
+                    homography[row * 3 + col] += k[row * 3 + i] * rt[i][col];
+                }
+            }
+        }
+
+        double[][] tagCorners = {{-1, 1}, {1, 1}, {1, -1}, {-1, -1}};
+        var corners = new double[8];
+        for (int c = 0; c < 4; c++) {
+            double u = tagCorners[c][0];
+            double v = tagCorners[c][1];
+            double w = homography[6] * u + homography[7] * v + homography[8];
+            corners[c * 2] = (homography[0] * u + homography[1] * v + homography[2]) / w;
+            corners[c * 2 + 1] = (homography[3] * u + homography[4] * v + homography[5]) / w;
+        }
+
+        return new AprilTagDetection(
+                "tag36h11",
+                id,
+                0,
+                100,
+                homography,
+                homography[2] / homography[8],
+                homography[5] / homography[8],
+                corners);
+    }
+
+    /** Estimate one tag at a time, the way poses were estimated before batching. */
+    private static AprilTagPoseEstimate estimateSerially(AprilTagDetection detection) {
+        var corners = new Point[4];
+        for (int c = 0; c < 4; c++) {
+            corners[c] = new Point(detection.getCornerX(c), detection.getCornerY(c));
+        }
+        var cornerMat = new MatOfPoint2f(corners);
+        Calib3d.undistortImagePoints(
+                cornerMat,
+                cornerMat,
+                calibration.getCameraIntrinsicsMat(),
+                calibration.getDistCoeffsMat());
+        corners = cornerMat.toArray();
+        cornerMat.release();
+
+        var fixedCorners = new double[8];
+        for (int c = 0; c < 4; c++) {
+            fixedCorners[c * 2] = corners[c].x;
+            fixedCorners[c * 2 + 1] = corners[c].y;
+        }
+
+        var estimator = new AprilTagPoseEstimator(config);
+        return estimator.estimateOrthogonalIteration(
+                detection.getHomography(), fixedCorners, ITERATIONS);
+    }
+
+    private static void assertPoseEquals(Transform3d expected, Transform3d actual, String message) {
+        assertEquals(expected.getX(), actual.getX(), 1e-9, message);
+        assertEquals(expected.getY(), actual.getY(), 1e-9, message);
+        assertEquals(expected.getZ(), actual.getZ(), 1e-9, message);
+        assertEquals(expected.getRotation().getX(), actual.getRotation().getX(), 1e-9, message);
+        assertEquals(expected.getRotation().getY(), actual.getRotation().getY(), 1e-9, message);
+        assertEquals(expected.getRotation().getZ(), actual.getRotation().getZ(), 1e-9, message);
+    }
+
+    @Test
+    public void batchMatchesSerialInOrder() {
+        // Enough tags to be split across threads, each somewhere different so a mix-up would show
+        var detections = new ArrayList<AprilTagDetection>();
+        for (int i = 0; i < 24; i++) {
+            double x = -0.6 + 0.05 * i;
+            double y = 0.3 * Math.sin(i);
+            double z = 1.5 + 0.2 * (i % 7);
+            double yaw = Math.toRadians(-40 + 3.5 * i);
+            detections.add(detection(i, x, y, z, yaw));
+        }
+
+        var pipe = new AprilTagBatchPoseEstimatorPipe();
+        pipe.setParams(new AprilTagPoseEstimatorPipeParams(config, calibration, ITERATIONS));
+        List<AprilTagPoseEstimate> batch = pipe.run(detections).output;
+        pipe.release();
+
+        assertEquals(detections.size(), batch.size());
+        for (int i = 0; i < detections.size(); i++) {
+            var serial = estimateSerially(detections.get(i));
+            var message = "Estimate " + i + " doesn't match its detection";
+            assertPoseEquals(serial.pose1, batch.get(i).pose1, message);
+            assertPoseEquals(serial.pose2, batch.get(i).pose2, message);
+            assertEquals(serial.error1, batch.get(i).error1, 1e-9, message);
+            assertEquals(serial.error2, batch.get(i).error2, 1e-9, message);
+        }
+    }
+
+    @Test
+    public void emptyBatch() {
+        var pipe = new AprilTagBatchPoseEstimatorPipe();
+        pipe.setParams(new AprilTagPoseEstimatorPipeParams(config, calibration, ITERATIONS));
+        assertTrue(pipe.run(List.of()).output.isEmpty());
+        pipe.release();
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) Photon Vision.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.photonvision.vision.pipe.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.wpi.first.math.util.Units;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.photonvision.common.util.TestUtils;
+import org.photonvision.vision.frame.FrameDivisor;
+import org.photonvision.vision.pipeline.UICalibrationData.BoardType;
+import org.photonvision.vision.pipeline.UICalibrationData.TagFamily;
+
+public class FindBoardCornersPipeTest {
+    @BeforeAll
+    public static void init() {
+        TestUtils.loadLibraries();
+    }
+
+    private static Point[] findCorners(
+            Mat image, BoardType type, int boardSize, FrameDivisor divisor, boolean refine) {
+        var pipe = new FindBoardCornersPipe();
+        pipe.setParams(
+                new FindBoardCornersPipe.FindCornersPipeParams(
+                        boardSize,
+                        boardSize,
+                        type,
+                        TagFamily.Dict_4X4_1000,
+                        Units.inchesToMeters(1),
+                        Units.inchesToMeters(0.75),
+                        divisor,
+                        false,
+                        refine));
+
+        // The pipe converts its input to grayscale in place, so each run gets its own copy
+        var in = image.clone();
+        var out = image.clone();
+        var result = pipe.run(Pair.of(in, out)).output;
+        in.release();
+        out.release();
+
+        if (result == null) return null;
+        var corners = result.imagePoints.toArray();
+        result.release();
+        return corners;
+    }
+
+    private static double distanceToNearest(Point point, Point[] others) {
+        return Arrays.stream(others)
+                .mapToDouble(it -> Math.hypot(it.x - point.x, it.y - point.y))
+                .min()
+                .orElse(Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Find a board in the first image in the directory where both a downscaled, unrefined preview
+     * and a full resolution, refined search find it, and check they agree.
+     */
+    private static void checkPreviewMatchesFull(File directory, BoardType type, int boardSize) {
+        var files = directory.listFiles(File::isFile);
+        assertNotNull(files);
+        Arrays.sort(files);
+
+        for (var file : files) {
+            var image = Imgcodecs.imread(file.getAbsolutePath());
+            var full = findCorners(image, type, boardSize, FrameDivisor.NONE, true);
+            var preview = findCorners(image, type, boardSize, FrameDivisor.HALF, false);
+            image.release();
+            if (full == null || preview == null || preview.length == 0) continue;
+
+            // Preview corners are found at half resolution, but must come back in full resolution
+            // coordinates, where they're at most a couple of pixels from the refined ones
+            for (var corner : preview) {
+                assertTrue(
+                        distanceToNearest(corner, full) < 3,
+                        "Preview corner " + corner + " isn't near any full resolution corner");
+            }
+            return;
+        }
+        fail("No image in " + directory + " had a board both searches found");
+    }
+
+    @Test
+    public void previewChessboardCornersAreFullResolution() {
+        checkPreviewMatchesFull(
+                Path.of(
+                                TestUtils.getSquaresBoardImagesPath().toString(),
+                                "lifecam/2024-01-02_lifecam_1280")
+                        .toFile(),
+                BoardType.CHESSBOARD,
+                11);
+    }
+
+    @Test
+    public void previewCharucoCornersAreFullResolution() {
+        checkPreviewMatchesFull(
+                Path.of(
+                                TestUtils.getCharucoBoardImagesPath().toString(),
+                                "lifecam/2024-05-07_lifecam_1280")
+                        .toFile(),
+                BoardType.CHARUCOBOARD,
+                8);
+    }
+
+    @Test
+    public void unrefinedCornersAreNearRefined() {
+        var directory =
+                Path.of(
+                                TestUtils.getSquaresBoardImagesPath().toString(),
+                                "lifecam/2024-01-02_lifecam_1280")
+                        .toFile();
+        var files = directory.listFiles(File::isFile);
+        assertNotNull(files);
+        Arrays.sort(files);
+
+        for (var file : files) {
+            var image = Imgcodecs.imread(file.getAbsolutePath());
+            var refined = findCorners(image, BoardType.CHESSBOARD, 11, FrameDivisor.NONE, true);
+            var unrefined = findCorners(image, BoardType.CHESSBOARD, 11, FrameDivisor.NONE, false);
+            image.release();
+            if (refined == null) continue;
+
+            // Skipping refinement mustn't lose the board, or move its corners far
+            assertNotNull(unrefined);
+            assertEquals(refined.length, unrefined.length);
+            for (int i = 0; i < refined.length; i++) {
+                assertEquals(refined[i].x, unrefined[i].x, 2);
+                assertEquals(refined[i].y, unrefined[i].y, 2);
+            }
+            return;
+        }
+        fail("No image in " + directory + " had a chessboard");
+    }
+}
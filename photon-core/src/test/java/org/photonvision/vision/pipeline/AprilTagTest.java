@@ -141,6 +141,46 @@ public class AprilTagTest {
         Assertions.assertEquals(0.0, pose.getTranslation().getZ(), 0.2);
     }
 
+    @Test
+    public void testApriltagRoiTracking() {
+        var pipeline = new AprilTagPipeline();
+
+        pipeline.getSettings().solvePNPEnabled = true;
+        pipeline.getSettings().targetModel = TargetModel.kAprilTag6p5in_36h11;
+        pipeline.getSettings().tagFamily = AprilTagFamily.kTag36h11;
+        pipeline.getSettings().roiTracking = true;
+        pipeline.getSettings().roiFullScanInterval = 10;
+
+        var frameProvider =
+                new FileFrameProvider(
+                        TestUtils.getApriltagImagePath(TestUtils.ApriltagTestImages.kTag1_640_480, false),
+                        TestUtils.WPI2020Image.FOV,
+                        TestUtils.get2020LifeCamCoeffs(false));
+        frameProvider.requestFrameThresholdType(pipeline.getThresholdType());
+
+        // First frame is a full scan, the second only searches around the tag it found
+        var fullScan = pipeline.run(frameProvider.get(), QuirkyCamera.DefaultCamera);
+        Assertions.assertTrue(pipeline.wasLastRunFullScan());
+        var tracked = pipeline.run(frameProvider.get(), QuirkyCamera.DefaultCamera);
+        Assertions.assertFalse(pipeline.wasLastRunFullScan());
+        printTestResults(tracked);
+
+        Assertions.assertEquals(1, fullScan.targets.size());
+        Assertions.assertEquals(1, tracked.targets.size());
+
+        var fullCorners = fullScan.targets.get(0).getTargetCorners();
+        var trackedCorners = tracked.targets.get(0).getTargetCorners();
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertEquals(fullCorners.get(i).x, trackedCorners.get(i).x, 1);
+            Assertions.assertEquals(fullCorners.get(i).y, trackedCorners.get(i).y, 1);
+        }
+
+        var fullPose = fullScan.targets.get(0).getBestCameraToTarget3d();
+        var trackedPose = tracked.targets.get(0).getBestCameraToTarget3d();
+        Assertions.assertEquals(
+                0, fullPose.getTranslation().getDistance(trackedPose.getTranslation()), 0.05);
+    }
+
     private static void printTestResults(CVPipelineResult pipelineResult) {
         double fps = 1000 / pipelineResult.getLatencyMillis();
         System.out.println(
@@ -17,7 +17,10 @@
 
 package org.photonvision.vision.pipeline;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import edu.wpi.first.math.util.Units;
@@ -25,6 +28,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
 import org.junitpioneer.jupiter.cartesian.CartesianTest;
 import org.junitpioneer.jupiter.cartesian.CartesianTest.Enum;
 import org.junitpioneer.jupiter.cartesian.CartesianTest.Values;
@@ -253,7 +257,9 @@ public class Calibrate3dPipeTest {
                         .map(it -> it.imagePoints)
                         .allMatch(it -> it.width() > 0 && it.height() > 0));
 
-        var cal = calibration3dPipeline.tryCalibration();
+        var future = calibration3dPipeline.calibrateAsync();
+        var cal = future.join();
+        assertFalse(calibration3dPipeline.isCalibrating());
         calibration3dPipeline.finishCalibration();
 
         // visuallyDebugDistortion(directoryListing, imgRes, cal );
@@ -283,6 +289,48 @@ public class Calibrate3dPipeTest {
         System.out.println("CVMats left: " + CVMat.getMatCount() + " Start: " + startMatCount);
     }
 
+    @Test
+    public void previewDivisorShrinksLargeImages() {
+        var pipeline = new Calibrate3dPipeline("test_preview_divisor");
+        pipeline.getSettings().streamingFrameDivisor = FrameDivisor.NONE;
+
+        pipeline.setPipeParams(
+                new FrameStaticProperties(640, 480, 67, null),
+                pipeline.getSettings(),
+                QuirkyCamera.DefaultCamera);
+        assertEquals(FrameDivisor.NONE, pipeline.getPreviewDivisor());
+
+        pipeline.setPipeParams(
+                new FrameStaticProperties(1280, 720, 67, null),
+                pipeline.getSettings(),
+                QuirkyCamera.DefaultCamera);
+        assertEquals(FrameDivisor.HALF, pipeline.getPreviewDivisor());
+
+        pipeline.setPipeParams(
+                new FrameStaticProperties(1920, 1080, 67, null),
+                pipeline.getSettings(),
+                QuirkyCamera.DefaultCamera);
+        assertEquals(FrameDivisor.QUARTER, pipeline.getPreviewDivisor());
+
+        // Never less than the stream's divisor
+        pipeline.getSettings().streamingFrameDivisor = FrameDivisor.QUARTER;
+        pipeline.setPipeParams(
+                new FrameStaticProperties(1280, 720, 67, null),
+                pipeline.getSettings(),
+                QuirkyCamera.DefaultCamera);
+        assertEquals(FrameDivisor.QUARTER, pipeline.getPreviewDivisor());
+    }
+
+    @Test
+    public void calibrateAsyncWithoutEnoughSnapshots() {
+        var pipeline = new Calibrate3dPipeline(10, "test_calibrate_async");
+
+        var future = pipeline.calibrateAsync();
+        assertTrue(future.isDone());
+        assertNull(future.join());
+        assertFalse(pipeline.isCalibrating());
+    }
+
     /**
      * Uses a given camera coefficents matrix set to "undistort" every image file found in a given
      * directory and display them. Provides an easy way to visually debug the results of the
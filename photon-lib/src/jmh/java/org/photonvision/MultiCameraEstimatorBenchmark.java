@@ -0,0 +1,150 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) PhotonVision
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.photonvision;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.cscore.OpenCvLoader;
+import edu.wpi.first.math.MatBuilder;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.math.numbers.N8;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.photonvision.PhotonPoseEstimator.PoseStrategy;
+import org.photonvision.estimation.OpenCVHelp;
+import org.photonvision.estimation.RotTrlTransform3d;
+import org.photonvision.estimation.TargetModel;
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+
+/**
+ * Compares one {@link MultiCameraPoseEstimator} against a {@link PhotonPoseEstimator} per camera
+ * running {@link PoseStrategy#MULTI_TAG_PNP_ON_RIO}, with four cameras that each see two tags.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MultiCameraEstimatorBenchmark {
+    private static final int CAMERA_COUNT = 4;
+
+    private final Matrix<N3, N3> cameraMatrix =
+            MatBuilder.fill(Nat.N3(), Nat.N3(), 900, 0, 640, 0, 900, 400, 0, 0, 1);
+    private final Matrix<N8, N1> distCoeffs =
+            MatBuilder.fill(Nat.N8(), Nat.N1(), 0.05, -0.1, 0, 0, 0.02, 0, 0, 0);
+
+    private List<PhotonPipelineResult> results;
+    private List<PhotonPoseEstimator> independentEstimators;
+    private MultiCameraPoseEstimator fusedEstimator;
+    private long timestampMicros = 1_000_000;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        OpenCvLoader.forceLoad();
+
+        // Cameras facing out of each side of the robot, with two tags in front of each
+        var robotPose = new Pose3d(8, 4, 0, new Rotation3d(0, 0, 0.2));
+        var robotToCameras = new ArrayList<Transform3d>();
+        var tags = new ArrayList<AprilTag>();
+        for (int i = 0; i < CAMERA_COUNT; i++) {
+            var robotToCamera =
+                    new Transform3d(
+                            new Translation3d(0.3, 0, 0.5).rotateBy(new Rotation3d(0, 0, i * Math.PI / 2)),
+                            new Rotation3d(0, -0.2, i * Math.PI / 2));
+            robotToCameras.add(robotToCamera);
+            var cameraPose = robotPose.transformBy(robotToCamera);
+            for (int j = 0; j < 2; j++) {
+                var cameraToTag =
+                        new Transform3d(
+                                new Translation3d(3, j - 0.5, 0.2 * j), new Rotation3d(0, 0, Math.PI));
+                tags.add(new AprilTag(tags.size() + 1, cameraPose.transformBy(cameraToTag)));
+            }
+        }
+        var layout = new AprilTagFieldLayout(tags, 16, 8);
+
+        results = new ArrayList<>();
+        independentEstimators = new ArrayList<>();
+        fusedEstimator = new MultiCameraPoseEstimator(layout);
+        for (var robotToCamera : robotToCameras) {
+            var camRt = RotTrlTransform3d.makeRelativeTo(robotPose.transformBy(robotToCamera));
+            var targets = new ArrayList<PhotonTrackedTarget>();
+            for (var tag : layout.getTags()) {
+                if (camRt.apply(tag.pose).getX() < 0.5) continue;
+                var vertices = TargetModel.kAprilTag36h11.getFieldVertices(tag.pose);
+                var points = OpenCVHelp.projectPoints(cameraMatrix, distCoeffs, camRt, vertices);
+                var corners = OpenCVHelp.pointsToCorners(points);
+                targets.add(
+                        new PhotonTrackedTarget(
+                                0, 0, 0, 0, tag.ID, -1, -1, new Transform3d(), new Transform3d(), 0, corners,
+                                corners));
+            }
+            results.add(new PhotonPipelineResult(0, 0, 0, targets));
+
+            independentEstimators.add(
+                    new PhotonPoseEstimator(layout, PoseStrategy.MULTI_TAG_PNP_ON_RIO, robotToCamera));
+            fusedEstimator.addCamera(robotToCamera, cameraMatrix, distCoeffs);
+        }
+    }
+
+    /** Both estimators skip results they've already used, so make every result look new. */
+    private void advanceTimestamps() {
+        timestampMicros += 20_000;
+        for (var result : results) result.setRecieveTimestampMicros(timestampMicros);
+    }
+
+    @Benchmark
+    public void independentEstimators(Blackhole bh) {
+        advanceTimestamps();
+        for (int i = 0; i < CAMERA_COUNT; i++) {
+            bh.consume(
+                    independentEstimators
+                            .get(i)
+                            .update(results.get(i), Optional.of(cameraMatrix), Optional.of(distCoeffs)));
+        }
+    }
+
+    @Benchmark
+    public Optional<EstimatedRobotPose> fusedEstimator() {
+        advanceTimestamps();
+        return fusedEstimator.update(results);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) PhotonVision
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.photonvision.simulation;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.photonvision.PhotonCamera;
+
+/**
+ * Time for one {@link VisionSystemSim#update(Pose2d)} with several cameras looking around the field
+ * at the full AprilTag layout. Every camera has a frame due on every update.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VisionSystemSimBenchmark {
+    @Param({"1", "4", "6"})
+    public int cameraCount;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    @Param({"false", "true"})
+    public boolean video;
+
+    private VisionSystemSim visionSysSim;
+    private final List<PhotonCameraSim> cameraSims = new ArrayList<>();
+    private int frame = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        PhotonCamera.setVersionCheckEnabled(false);
+
+        visionSysSim = new VisionSystemSim("Benchmark");
+        visionSysSim.setParallelProcessing(parallel);
+        visionSysSim.addAprilTags(AprilTagFieldLayout.loadField(AprilTagFields.kDefaultField));
+
+        for (int i = 0; i < cameraCount; i++) {
+            var prop = new SimCameraProperties();
+            prop.setCalibration(1280, 800, Rotation2d.fromDegrees(90));
+            prop.setCalibError(0.35, 0.10);
+            prop.setRandomSeed(i);
+
+            var cameraSim = new PhotonCameraSim(new PhotonCamera("bench" + i), prop);
+            cameraSim.enableRawStream(video);
+            cameraSim.enableProcessedStream(video);
+            cameraSims.add(cameraSim);
+
+            // Spread the cameras evenly around the robot
+            double yaw = 2 * Math.PI * i / cameraCount;
+            visionSysSim.addCamera(
+                    cameraSim,
+                    new Transform3d(
+                            new Translation3d(0.3, 0, 0.5).rotateBy(new Rotation3d(0, 0, yaw)),
+                            new Rotation3d(0, -0.15, yaw)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (var cameraSim : cameraSims) cameraSim.close();
+    }
+
+    @Benchmark
+    public void update() {
+        // Drive in a slow circle around the middle of the field
+        double t = frame++ * 0.02;
+        visionSysSim.update(
+                new Pose2d(8.27 + 2 * Math.cos(t * 0.5), 4.1 + 2 * Math.sin(t * 0.5), new Rotation2d(t)));
+    }
+}
@@ -0,0 +1,523 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) PhotonVision
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.photonvision;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Twist3d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.math.numbers.N8;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import org.ejml.simple.SimpleMatrix;
+import org.opencv.core.Point;
+import org.photonvision.PhotonPoseEstimator.PoseStrategy;
+import org.photonvision.estimation.OpenCVHelp;
+import org.photonvision.estimation.PnPSolverContext;
+import org.photonvision.estimation.TargetModel;
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+
+/**
+ * Estimates one robot pose from the AprilTags seen by several cameras at once. Rather than solving
+ * each camera separately and averaging, this minimizes the reprojection error of every observed tag
+ * corner, in every camera, over a single robot pose. Cameras that can only see one tag each still
+ * constrain each other, which removes most single-tag ambiguity.
+ *
+ * <p>The solve is seeded with a multi-tag PnP solve from the camera that sees the most tags, then
+ * refined with Levenberg-Marquardt until it converges, hits {@link #setMaxIterations the iteration
+ * limit}, or runs out of {@link #setSolveBudgetSeconds time}. If the budget runs out, the best pose
+ * found so far is returned.
+ *
+ * <p>Like {@link PhotonPoseEstimator}, this is not thread safe.
+ */
+public class MultiCameraPoseEstimator {
+    private static class CameraEntry {
+        final PhotonCamera camera;
+        Transform3d robotToCamera;
+        Matrix<N3, N3> cameraMatrix;
+        Matrix<N8, N1> distCoeffs;
+        PnPSolverContext pnpContext;
+
+        // Filled in for each update
+        final List<PhotonTrackedTarget> knownTargets = new ArrayList<>();
+        double[] fieldPoints = new double[0];
+        double[] imagePoints = new double[0];
+        int numPoints = 0;
+
+        CameraEntry(
+                PhotonCamera camera,
+                Transform3d robotToCamera,
+                Matrix<N3, N3> cameraMatrix,
+                Matrix<N8, N1> distCoeffs) {
+            this.camera = camera;
+            this.robotToCamera = robotToCamera;
+            this.cameraMatrix = cameraMatrix;
+            this.distCoeffs = distCoeffs;
+        }
+    }
+
+    private static final double JACOBIAN_STEP = 1e-6;
+
+    private final List<CameraEntry> cameras = new ArrayList<>();
+    private AprilTagFieldLayout fieldTags;
+    private TargetModel tagModel = TargetModel.kAprilTag36h11;
+
+    private double maxTimestampSkewSeconds = 0.02;
+    private double solveBudgetSeconds = 0.002;
+    private int maxIterations = 10;
+
+    // Tag corners indexed by ID, rebuilt when the layout or its origin changes
+    private double[][] tagCornerCache = new double[0][];
+    private AprilTagFieldLayout tagCacheLayout;
+    private Pose3d tagCacheOrigin;
+    private TargetModel tagCacheModel;
+
+    private double lastTimestampSeconds = -1;
+    private double lastReprojectionErrorPixels = Double.NaN;
+    private int lastIterations = 0;
+    private long lastSolveNanos = 0;
+
+    // Scratch space for the solve
+    private double[] residuals = new double[0];
+    private double[] perturbedResiduals = new double[0];
+    private double[] jacobian = new double[0];
+    private final double[] rotation = new double[9];
+
+    /**
+     * @param fieldTags The layout of the tags on the field
+     */
+    public MultiCameraPoseEstimator(AprilTagFieldLayout fieldTags) {
+        this.fieldTags = fieldTags;
+    }
+
+    /**
+     * Adds a camera whose latest result and calibration are read by {@link #update()}.
+     *
+     * @param camera The camera
+     * @param robotToCamera Transform3d from the center of the robot to the camera mount position
+     * @return The index of this camera, for {@link #update(List)} and {@link
+     *     #setRobotToCameraTransform}
+     */
+    public int addCamera(PhotonCamera camera, Transform3d robotToCamera) {
+        cameras.add(new CameraEntry(camera, robotToCamera, null, null));
+        return cameras.size() - 1;
+    }
+
+    /**
+     * Adds a camera with a known calibration, for results passed to {@link #update(List)}.
+     *
+     * @param robotToCamera Transform3d from the center of the robot to the camera mount position
+     * @param cameraMatrix The camera intrinsics matrix in standard opencv form
+     * @param distCoeffs The camera distortion matrix in standard opencv form
+     * @return The index of this camera, for {@link #update(List)} and {@link
+     *     #setRobotToCameraTransform}
+     */
+    public int addCamera(
+            Transform3d robotToCamera, Matrix<N3, N3> cameraMatrix, Matrix<N8, N1> distCoeffs) {
+        cameras.add(new CameraEntry(null, robotToCamera, cameraMatrix, distCoeffs));
+        return cameras.size() - 1;
+    }
+
+    /** Useful for pan and tilt mechanisms and such. */
+    public void setRobotToCameraTransform(int cameraIndex, Transform3d robotToCamera) {
+        cameras.get(cameraIndex).robotToCamera = robotToCamera;
+    }
+
+    public void setFieldTags(AprilTagFieldLayout fieldTags) {
+        this.fieldTags = fieldTags;
+    }
+
+    /** By default, this is {@link TargetModel#kAprilTag36h11}. */
+    public void setTagModel(TargetModel tagModel) {
+        this.tagModel = tagModel;
+    }
+
+    /**
+     * Results more than this much older than the newest result are left out of the solve, since the
+     * robot will have moved in between. Defaults to 20ms.
+     */
+    public void setMaxTimestampSkewSeconds(double seconds) {
+        this.maxTimestampSkewSeconds = seconds;
+    }
+
+    /** Time after which refinement stops and the best pose so far is used. Defaults to 2ms. */
+    public void setSolveBudgetSeconds(double seconds) {
+        this.solveBudgetSeconds = seconds;
+    }
+
+    /** Maximum number of refinement iterations. Defaults to 10. */
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    /** RMS reprojection error of the last estimate, in pixels. */
+    public double getLastReprojectionErrorPixels() {
+        return lastReprojectionErrorPixels;
+    }
+
+    /** Number of refinement iterations the last estimate took. */
+    public int getLastIterations() {
+        return lastIterations;
+    }
+
+    /** Total time the last estimate took, in nanoseconds. */
+    public long getLastSolveNanos() {
+        return lastSolveNanos;
+    }
+
+    /** Frees the native memory held by each camera's PnP solver. */
+    public void release() {
+        for (var entry : cameras) {
+            if (entry.pnpContext != null) {
+                entry.pnpContext.release();
+                entry.pnpContext = null;
+            }
+        }
+    }
+
+    /**
+     * Estimates the robot pose from the latest result of every camera added with {@link
+     * #addCamera(PhotonCamera, Transform3d)}.
+     *
+     * @return The estimate, or empty if no known tags were seen or the results were already used
+     */
+    public Optional<EstimatedRobotPose> update() {
+        var results = new ArrayList<PhotonPipelineResult>(cameras.size());
+        for (var entry : cameras) {
+            results.add(entry.camera != null ? entry.camera.getLatestResult() : null);
+        }
+        return update(results);
+    }
+
+    /**
+     * Estimates the robot pose from one result per camera.
+     *
+     * @param results The latest result from each camera, in the order they were added. Entries
+     *     may be null.
+     * @return The estimate, or empty if no known tags were seen or the results were already used
+     */
+    public Optional<EstimatedRobotPose> update(List<PhotonPipelineResult> results) {
+        if (results.size() != cameras.size()) {
+            throw new IllegalArgumentException(
+                    "Expected " + cameras.size() + " results but got " + results.size());
+        }
+        if (fieldTags == null) return Optional.empty();
+
+        long startNanos = System.nanoTime();
+        updateTagCache();
+
+        // Align to the newest result
+        double newestTimestamp = -1;
+        for (var result : results) {
+            if (result != null && result.hasTargets()) {
+                newestTimestamp = Math.max(newestTimestamp, result.getTimestampSeconds());
+            }
+        }
+        if (newestTimestamp < 0 || Math.abs(newestTimestamp - lastTimestampSeconds) < 1e-6) {
+            return Optional.empty();
+        }
+        lastTimestampSeconds = newestTimestamp;
+
+        var targetsUsed = new ArrayList<PhotonTrackedTarget>();
+        double timestampSum = 0;
+        int resultsUsed = 0;
+        int totalPoints = 0;
+        CameraEntry seed = null;
+        for (int i = 0; i < cameras.size(); i++) {
+            var entry = cameras.get(i);
+            var result = results.get(i);
+            entry.knownTargets.clear();
+            entry.numPoints = 0;
+
+            if (result == null
+                    || !result.hasTargets()
+                    || newestTimestamp - result.getTimestampSeconds() > maxTimestampSkewSeconds
+                    || !loadCalibration(entry)) {
+                continue;
+            }
+
+            collectObservations(entry, result);
+            if (entry.numPoints == 0) continue;
+
+            targetsUsed.addAll(entry.knownTargets);
+            timestampSum += result.getTimestampSeconds();
+            resultsUsed++;
+            totalPoints += entry.numPoints;
+            if (seed == null || entry.knownTargets.size() > seed.knownTargets.size()) seed = entry;
+        }
+        if (seed == null) return Optional.empty();
+
+        var initialPose = seedPose(seed);
+        if (initialPose == null) return Optional.empty();
+
+        var pose = refine(initialPose, totalPoints, startNanos);
+        lastSolveNanos = System.nanoTime() - startNanos;
+
+        return Optional.of(
+                new EstimatedRobotPose(
+                        pose,
+                        timestampSum / resultsUsed,
+                        targetsUsed,
+                        PoseStrategy.MULTI_TAG_PNP_ON_RIO));
+    }
+
+    private boolean loadCalibration(CameraEntry entry) {
+        // Calibration only has to be fetched once
+        if (entry.cameraMatrix == null && entry.camera != null) {
+            var cameraMatrix = entry.camera.getCameraMatrix();
+            var distCoeffs = entry.camera.getDistCoeffs();
+            if (cameraMatrix.isPresent() && distCoeffs.isPresent()) {
+                entry.cameraMatrix = cameraMatrix.get();
+                entry.distCoeffs = distCoeffs.get();
+            }
+        }
+        return entry.cameraMatrix != null && entry.distCoeffs != null;
+    }
+
+    /** Fills in the field and undistorted image points of the known tags this camera sees. */
+    private void collectObservations(CameraEntry entry, PhotonPipelineResult result) {
+        for (var target : result.getTargets()) {
+            int id = target.getFiducialId();
+            if (id < 0 || id >= tagCornerCache.length || tagCornerCache[id] == null) continue;
+            if (target.getDetectedCorners().size() != 4) continue;
+            entry.knownTargets.add(target);
+        }
+
+        int numPoints = entry.knownTargets.size() * 4;
+        if (numPoints == 0) return;
+        if (entry.fieldPoints.length < numPoints * 3) {
+            entry.fieldPoints = new double[numPoints * 3];
+            entry.imagePoints = new double[numPoints * 2];
+        }
+
+        var distorted = new Point[numPoints];
+        for (int t = 0; t < entry.knownTargets.size(); t++) {
+            var target = entry.knownTargets.get(t);
+            System.arraycopy(
+                    tagCornerCache[target.getFiducialId()], 0, entry.fieldPoints, t * 12, 12);
+            var corners = target.getDetectedCorners();
+            for (int c = 0; c < 4; c++) {
+                distorted[t * 4 + c] = new Point(corners.get(c).x, corners.get(c).y);
+            }
+        }
+
+        // Undistort once here so the solve can use a plain pinhole model
+        var undistorted =
+                OpenCVHelp.undistortPoints(entry.cameraMatrix, entry.distCoeffs, distorted);
+        for (int i = 0; i < numPoints; i++) {
+            entry.imagePoints[i * 2] = undistorted[i].x;
+            entry.imagePoints[i * 2 + 1] = undistorted[i].y;
+        }
+        entry.numPoints = numPoints;
+    }
+
+    /** Solves the seed camera on its own and converts that to a robot pose. */
+    private Pose3d seedPose(CameraEntry entry) {
+        if (entry.pnpContext == null) entry.pnpContext = new PnPSolverContext();
+
+        var pnpResult =
+                entry.pnpContext.estimateCamPose(
+                        entry.cameraMatrix,
+                        entry.distCoeffs,
+                        entry.knownTargets,
+                        fieldTags,
+                        tagModel);
+        if (!pnpResult.isPresent) return null;
+
+        return new Pose3d()
+                .plus(pnpResult.best) // field-to-camera
+                .plus(entry.robotToCamera.inverse()); // field-to-robot
+    }
+
+    /** Levenberg-Marquardt over the robot pose, using a numerical Jacobian. */
+    private Pose3d refine(Pose3d pose, int totalPoints, long startNanos) {
+        int numResiduals = totalPoints * 2;
+        if (residuals.length < numResiduals) {
+            residuals = new double[numResiduals];
+            perturbedResiduals = new double[numResiduals];
+            jacobian = new double[numResiduals * 6];
+        }
+        long budgetNanos = (long) (solveBudgetSeconds * 1e9);
+
+        double cost = computeResiduals(pose, residuals);
+        double lambda = 1e-3;
+        int iterations = 0;
+        var delta = new double[6];
+        while (iterations < maxIterations && System.nanoTime() - startNanos < budgetNanos) {
+            iterations++;
+
+            // Jacobian of the residuals with respect to a twist applied to the pose
+            for (int k = 0; k < 6; k++) {
+                delta[k] = JACOBIAN_STEP;
+                computeResiduals(pose.exp(toTwist(delta)), perturbedResiduals);
+                delta[k] = 0;
+                for (int r = 0; r < numResiduals; r++) {
+                    jacobian[r * 6 + k] = (perturbedResiduals[r] - residuals[r]) / JACOBIAN_STEP;
+                }
+            }
+
+            // Normal equations: (JᵀJ + λ diag(JᵀJ)) δ = -Jᵀr
+            var jtj = new SimpleMatrix(6, 6);
+            var jtr = new SimpleMatrix(6, 1);
+            for (int r = 0; r < numResiduals; r++) {
+                for (int a = 0; a < 6; a++) {
+                    double ja = jacobian[r * 6 + a];
+                    jtr.set(a, 0, jtr.get(a, 0) - ja * residuals[r]);
+                    for (int b = a; b < 6; b++) {
+                        jtj.set(a, b, jtj.get(a, b) + ja * jacobian[r * 6 + b]);
+                    }
+                }
+            }
+            for (int a = 0; a < 6; a++) {
+                for (int b = 0; b < a; b++) jtj.set(a, b, jtj.get(b, a));
+                jtj.set(a, a, jtj.get(a, a) * (1 + lambda) + 1e-12);
+            }
+
+            var step = jtj.solve(jtr);
+            for (int k = 0; k < 6; k++) delta[k] = step.get(k, 0);
+            var candidate = pose.exp(toTwist(delta));
+            double candidateCost = computeResiduals(candidate, perturbedResiduals);
+            Arrays.fill(delta, 0);
+
+            if (candidateCost < cost) {
+                double improvement = cost - candidateCost;
+                pose = candidate;
+                cost = candidateCost;
+                System.arraycopy(perturbedResiduals, 0, residuals, 0, numResiduals);
+                lambda = Math.max(lambda / 10, 1e-9);
+                // Converged once the error stops moving
+                if (improvement < 1e-9 * (1 + cost)) break;
+            } else {
+                lambda *= 10;
+                if (lambda > 1e6) break;
+            }
+        }
+
+        lastIterations = iterations;
+        lastReprojectionErrorPixels = Math.sqrt(cost / totalPoints);
+        return pose;
+    }
+
+    private static Twist3d toTwist(double[] delta) {
+        return new Twist3d(delta[0], delta[1], delta[2], delta[3], delta[4], delta[5]);
+    }
+
+    /**
+     * Projects every observed corner through its camera with the robot at this pose.
+     *
+     * @return The sum of squared residuals, in pixels
+     */
+    private double computeResiduals(Pose3d robotPose, double[] out) {
+        double cost = 0;
+        int r = 0;
+        for (var entry : cameras) {
+            if (entry.numPoints == 0) continue;
+
+            var cameraPose = robotPose.transformBy(entry.robotToCamera);
+            var q = cameraPose.getRotation().getQuaternion();
+            toRotationMatrix(q.getW(), q.getX(), q.getY(), q.getZ(), rotation);
+            double tx = cameraPose.getX();
+            double ty = cameraPose.getY();
+            double tz = cameraPose.getZ();
+
+            double fx = entry.cameraMatrix.get(0, 0);
+            double fy = entry.cameraMatrix.get(1, 1);
+            double cx = entry.cameraMatrix.get(0, 2);
+            double cy = entry.cameraMatrix.get(1, 2);
+
+            for (int i = 0; i < entry.numPoints; i++) {
+                double dx = entry.fieldPoints[i * 3] - tx;
+                double dy = entry.fieldPoints[i * 3 + 1] - ty;
+                double dz = entry.fieldPoints[i * 3 + 2] - tz;
+                // Into the camera frame (NWU, X forward) with the transposed rotation
+                double x = rotation[0] * dx + rotation[3] * dy + rotation[6] * dz;
+                double y = rotation[1] * dx + rotation[4] * dy + rotation[7] * dz;
+                double z = rotation[2] * dx + rotation[5] * dy + rotation[8] * dz;
+                x = Math.max(x, 1e-3);
+
+                // Pinhole projection in OpenCV's EDN image convention
+                double u = fx * (-y / x) + cx;
+                double v = fy * (-z / x) + cy;
+                out[r] = u - entry.imagePoints[i * 2];
+                out[r + 1] = v - entry.imagePoints[i * 2 + 1];
+                cost += out[r] * out[r] + out[r + 1] * out[r + 1];
+                r += 2;
+            }
+        }
+        return cost;
+    }
+
+    /** Row-major rotation matrix of a unit quaternion. */
+    private static void toRotationMatrix(double w, double x, double y, double z, double[] out) {
+        out[0] = 1 - 2 * (y * y + z * z);
+        out[1] = 2 * (x * y - w * z);
+        out[2] = 2 * (x * z + w * y);
+        out[3] = 2 * (x * y + w * z);
+        out[4] = 1 - 2 * (x * x + z * z);
+        out[5] = 2 * (y * z - w * x);
+        out[6] = 2 * (x * z - w * y);
+        out[7] = 2 * (y * z + w * x);
+        out[8] = 1 - 2 * (x * x + y * y);
+    }
+
+    private void updateTagCache() {
+        // The origin can be changed in place, which moves every tag
+        if (fieldTags == tagCacheLayout
+                && tagModel == tagCacheModel
+                && fieldTags.getOrigin().equals(tagCacheOrigin)) {
+            return;
+        }
+
+        int maxId = -1;
+        for (var tag : fieldTags.getTags()) maxId = Math.max(maxId, tag.ID);
+
+        var corners = new double[maxId + 1][];
+        for (var tag : fieldTags.getTags()) {
+            if (tag.ID < 0) continue;
+            var pose = fieldTags.getTagPose(tag.ID);
+            if (pose.isEmpty()) continue;
+
+            var vertices = tagModel.getFieldVertices(pose.get());
+            var tagCorners = new double[12];
+            for (int i = 0; i < 4; i++) {
+                tagCorners[i * 3] = vertices.get(i).getX();
+                tagCorners[i * 3 + 1] = vertices.get(i).getY();
+                tagCorners[i * 3 + 2] = vertices.get(i).getZ();
+            }
+            corners[tag.ID] = tagCorners;
+        }
+
+        tagCornerCache = corners;
+        tagCacheLayout = fieldTags;
+        tagCacheOrigin = fieldTags.getOrigin();
+        tagCacheModel = tagModel;
+    }
+}
@@ -53,6 +53,7 @@ import java.util.stream.Collectors;
 import org.photonvision.common.hardware.VisionLEDMode;
 import org.photonvision.common.networktables.PacketSubscriber;
 import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonPipelineResultView;
 
 /** Represents a camera that is connected to PhotonVision. */
 public class PhotonCamera implements AutoCloseable {
@@ -61,6 +62,7 @@ public class PhotonCamera implements AutoCloseable {
 
     private final NetworkTable cameraTable;
     PacketSubscriber<PhotonPipelineResult> resultSubscriber;
+    private final PhotonPipelineResultView resultView = new PhotonPipelineResultView();
     BooleanPublisher driverModePublisher;
     BooleanSubscriber driverModeSubscriber;
     DoublePublisher latencyMillisEntry;
@@ -200,6 +202,27 @@ public class PhotonCamera implements AutoCloseable {
         return ret;
     }
 
+    /**
+     * Returns a view of the latest pipeline result, read directly out of the bytes recieved via NT
+     * instead of being unpacked into a new PhotonPipelineResult. The same view object is returned
+     * (and overwritten) on every call, so don't hold onto it between loops.
+     *
+     * <p>Like {@link #getLatestResult()}, this can miss results or provide duplicate ones.
+     */
+    public PhotonPipelineResultView getLatestResultView() {
+        verifyVersion();
+
+        var ret = resultSubscriber.subscriber.getAtomic();
+
+        if (ret.timestamp == 0 || !resultView.wrap(ret.value)) {
+            resultView.clear();
+            return resultView;
+        }
+
+        resultView.setRecieveTimestampMicros(ret.timestamp);
+        return resultView;
+    }
+
     /**
      * Returns the latest pipeline result. This is simply the most recent result recieved via NT.
      * Calling this multiple times will always return the most recent result.
@@ -43,8 +43,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import org.photonvision.estimation.PnPSolverContext;
 import org.photonvision.estimation.TargetModel;
-import org.photonvision.estimation.VisionEstimation;
 import org.photonvision.targeting.PhotonPipelineResult;
 import org.photonvision.targeting.PhotonTrackedTarget;
 
@@ -91,11 +91,20 @@ public class PhotonPoseEstimator {
     private PoseStrategy primaryStrategy;
     private PoseStrategy multiTagFallbackStrategy = PoseStrategy.LOWEST_AMBIGUITY;
     private Transform3d robotToCamera;
+    // robotToCamera.inverse(), which every strategy needs
+    private Transform3d cameraToRobot;
+
+    // Tag poses indexed by ID, rebuilt when the layout or its origin changes
+    private Pose3d[] tagPoseCache = new Pose3d[0];
+    private AprilTagFieldLayout tagPoseCacheLayout;
+    private Pose3d tagPoseCacheOrigin;
 
     private Pose3d lastPose;
     private Pose3d referencePose;
     protected double poseCacheTimestampSeconds = -1;
     private final Set<Integer> reportedErrors = new HashSet<>();
+    // Created on first use so OpenCV is only needed for MULTI_TAG_PNP_ON_RIO
+    private PnPSolverContext pnpSolverContext;
 
     /**
      * Create a new PhotonPoseEstimator.
@@ -116,6 +125,7 @@ public class PhotonPoseEstimator {
         this.fieldTags = fieldTags;
         this.primaryStrategy = strategy;
         this.robotToCamera = robotToCamera;
+        this.cameraToRobot = robotToCamera.inverse();
 
         HAL.report(tResourceType.kResourceType_PhotonPoseEstimator, InstanceCount);
         InstanceCount++;
@@ -126,6 +136,35 @@ public class PhotonPoseEstimator {
         poseCacheTimestampSeconds = -1;
     }
 
+    /**
+     * Gets the pose of a tag in the field layout, or null if it isn't in the layout. This is an array
+     * lookup rather than the list scan {@link AprilTagFieldLayout#getTagPose} does.
+     */
+    private Pose3d getTagPose(int id) {
+        // The origin can be changed in place, which moves every tag
+        if (fieldTags != tagPoseCacheLayout || !fieldTags.getOrigin().equals(tagPoseCacheOrigin)) {
+            int maxId = -1;
+            for (var tag : fieldTags.getTags()) maxId = Math.max(maxId, tag.ID);
+
+            var poses = new Pose3d[maxId + 1];
+            for (var tag : fieldTags.getTags()) {
+                if (tag.ID >= 0) poses[tag.ID] = fieldTags.getTagPose(tag.ID).orElse(null);
+            }
+
+            tagPoseCache = poses;
+            tagPoseCacheLayout = fieldTags;
+            tagPoseCacheOrigin = fieldTags.getOrigin();
+        }
+
+        if (id < 0 || id >= tagPoseCache.length) return null;
+        return tagPoseCache[id];
+    }
+
+    /** The robot's field pose from a tag's field pose and the camera-to-tag transform. */
+    private Pose3d robotPoseFromTag(Pose3d tagPose, Transform3d cameraToTarget) {
+        return tagPose.transformBy(cameraToTarget.inverse()).transformBy(cameraToRobot);
+    }
+
     private void checkUpdate(Object oldObj, Object newObj) {
         if (oldObj != newObj && oldObj != null && !oldObj.equals(newObj)) {
             invalidatePoseCache();
@@ -274,6 +313,7 @@ public class PhotonPoseEstimator {
      */
     public void setRobotToCameraTransform(Transform3d robotToCamera) {
         this.robotToCamera = robotToCamera;
+        this.cameraToRobot = robotToCamera.inverse();
     }
 
     /**
@@ -400,7 +440,7 @@ public class PhotonPoseEstimator {
                     new Pose3d()
                             .plus(best_tf) // field-to-camera
                             .relativeTo(fieldTags.getOrigin())
-                            .plus(robotToCamera.inverse()); // field-to-robot
+                            .plus(cameraToRobot); // field-to-robot
             return Optional.of(
                     new EstimatedRobotPose(
                             best,
@@ -423,8 +463,9 @@ public class PhotonPoseEstimator {
             return update(result, cameraMatrixOpt, distCoeffsOpt, this.multiTagFallbackStrategy);
         }
 
+        if (pnpSolverContext == null) pnpSolverContext = new PnPSolverContext();
         var pnpResult =
-                VisionEstimation.estimateCamPosePNP(
+                pnpSolverContext.estimateCamPose(
                         cameraMatrixOpt.get(), distCoeffsOpt.get(), result.getTargets(), fieldTags, tagModel);
         // try fallback strategy if solvePNP fails for some reason
         if (!pnpResult.isPresent)
@@ -432,7 +473,7 @@ public class PhotonPoseEstimator {
         var best =
                 new Pose3d()
                         .plus(pnpResult.best) // field-to-camera
-                        .plus(robotToCamera.inverse()); // field-to-robot
+                        .plus(cameraToRobot); // field-to-robot
 
         return Optional.of(
                 new EstimatedRobotPose(
@@ -470,19 +511,17 @@ public class PhotonPoseEstimator {
 
         int targetFiducialId = lowestAmbiguityTarget.getFiducialId();
 
-        Optional<Pose3d> targetPosition = fieldTags.getTagPose(targetFiducialId);
+        Pose3d targetPosition = getTagPose(targetFiducialId);
 
-        if (targetPosition.isEmpty()) {
+        if (targetPosition == null) {
             reportFiducialPoseError(targetFiducialId);
             return Optional.empty();
         }
 
         return Optional.of(
                 new EstimatedRobotPose(
-                        targetPosition
-                                .get()
-                                .transformBy(lowestAmbiguityTarget.getBestCameraToTarget().inverse())
-                                .transformBy(robotToCamera.inverse()),
+                        robotPoseFromTag(
+                                targetPosition, lowestAmbiguityTarget.getBestCameraToTarget()),
                         result.getTimestampSeconds(),
                         result.getTargets(),
                         PoseStrategy.LOWEST_AMBIGUITY));
@@ -508,36 +547,27 @@ public class PhotonPoseEstimator {
             // the initial HashSet.
             if (targetFiducialId == -1) continue;
 
-            Optional<Pose3d> targetPosition = fieldTags.getTagPose(target.getFiducialId());
+            Pose3d targetPosition = getTagPose(target.getFiducialId());
 
-            if (targetPosition.isEmpty()) {
+            if (targetPosition == null) {
                 reportFiducialPoseError(target.getFiducialId());
                 continue;
             }
 
-            double alternateTransformDelta =
-                    Math.abs(
-                            robotToCamera.getZ()
-                                    - targetPosition
-                                            .get()
-                                            .transformBy(target.getAlternateCameraToTarget().inverse())
-                                            .getZ());
-            double bestTransformDelta =
-                    Math.abs(
-                            robotToCamera.getZ()
-                                    - targetPosition
-                                            .get()
-                                            .transformBy(target.getBestCameraToTarget().inverse())
-                                            .getZ());
+            // Field-to-camera poses for each solution
+            Pose3d altCameraPose =
+                    targetPosition.transformBy(target.getAlternateCameraToTarget().inverse());
+            Pose3d bestCameraPose =
+                    targetPosition.transformBy(target.getBestCameraToTarget().inverse());
+
+            double alternateTransformDelta = Math.abs(robotToCamera.getZ() - altCameraPose.getZ());
+            double bestTransformDelta = Math.abs(robotToCamera.getZ() - bestCameraPose.getZ());
 
             if (alternateTransformDelta < smallestHeightDifference) {
                 smallestHeightDifference = alternateTransformDelta;
                 closestHeightTarget =
                         new EstimatedRobotPose(
-                                targetPosition
-                                        .get()
-                                        .transformBy(target.getAlternateCameraToTarget().inverse())
-                                        .transformBy(robotToCamera.inverse()),
+                                altCameraPose.transformBy(cameraToRobot),
                                 result.getTimestampSeconds(),
                                 result.getTargets(),
                                 PoseStrategy.CLOSEST_TO_CAMERA_HEIGHT);
@@ -547,10 +577,7 @@ public class PhotonPoseEstimator {
                 smallestHeightDifference = bestTransformDelta;
                 closestHeightTarget =
                         new EstimatedRobotPose(
-                                targetPosition
-                                        .get()
-                                        .transformBy(target.getBestCameraToTarget().inverse())
-                                        .transformBy(robotToCamera.inverse()),
+                                bestCameraPose.transformBy(cameraToRobot),
                                 result.getTimestampSeconds(),
                                 result.getTargets(),
                                 PoseStrategy.CLOSEST_TO_CAMERA_HEIGHT);
@@ -590,23 +617,17 @@ public class PhotonPoseEstimator {
             // the initial HashSet.
             if (targetFiducialId == -1) continue;
 
-            Optional<Pose3d> targetPosition = fieldTags.getTagPose(target.getFiducialId());
+            Pose3d targetPosition = getTagPose(target.getFiducialId());
 
-            if (targetPosition.isEmpty()) {
+            if (targetPosition == null) {
                 reportFiducialPoseError(targetFiducialId);
                 continue;
             }
 
             Pose3d altTransformPosition =
-                    targetPosition
-                            .get()
-                            .transformBy(target.getAlternateCameraToTarget().inverse())
-                            .transformBy(robotToCamera.inverse());
+                    robotPoseFromTag(targetPosition, target.getAlternateCameraToTarget());
             Pose3d bestTransformPosition =
-                    targetPosition
-                            .get()
-                            .transformBy(target.getBestCameraToTarget().inverse())
-                            .transformBy(robotToCamera.inverse());
+                    robotPoseFromTag(targetPosition, target.getBestCameraToTarget());
 
             double altDifference = Math.abs(calculateDifference(referencePose, altTransformPosition));
             double bestDifference = Math.abs(calculateDifference(referencePose, bestTransformPosition));
@@ -652,9 +673,9 @@ public class PhotonPoseEstimator {
             // the initial HashSet.
             if (targetFiducialId == -1) continue;
 
-            Optional<Pose3d> targetPosition = fieldTags.getTagPose(target.getFiducialId());
+            Pose3d targetPosition = getTagPose(target.getFiducialId());
 
-            if (targetPosition.isEmpty()) {
+            if (targetPosition == null) {
                 reportFiducialPoseError(targetFiducialId);
                 continue;
             }
@@ -665,10 +686,7 @@ public class PhotonPoseEstimator {
             if (targetPoseAmbiguity == 0) {
                 return Optional.of(
                         new EstimatedRobotPose(
-                                targetPosition
-                                        .get()
-                                        .transformBy(target.getBestCameraToTarget().inverse())
-                                        .transformBy(robotToCamera.inverse()),
+                                robotPoseFromTag(targetPosition, target.getBestCameraToTarget()),
                                 result.getTimestampSeconds(),
                                 result.getTargets(),
                                 PoseStrategy.AVERAGE_BEST_TARGETS));
@@ -678,11 +696,7 @@ public class PhotonPoseEstimator {
 
             estimatedRobotPoses.add(
                     new Pair<>(
-                            target,
-                            targetPosition
-                                    .get()
-                                    .transformBy(target.getBestCameraToTarget().inverse())
-                                    .transformBy(robotToCamera.inverse())));
+                            target, robotPoseFromTag(targetPosition, target.getBestCameraToTarget())));
         }
 
         // Take the average
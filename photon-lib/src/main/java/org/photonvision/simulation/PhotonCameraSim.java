@@ -32,12 +32,15 @@ import edu.wpi.first.cscore.VideoSource.ConnectionStrategy;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.Pair;
 import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.util.PixelFormat;
 import edu.wpi.first.util.WPIUtilJNI;
 import edu.wpi.first.wpilibj.RobotController;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 import java.util.stream.Collectors;
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
@@ -93,6 +96,9 @@ public class PhotonCameraSim implements AutoCloseable {
     private final Mat videoSimFrameProcessed = new Mat();
     private boolean videoSimProcEnabled = true;
 
+    // pixel noise for seeded processing
+    private final Random noiseRand = new Random();
+
     static {
         OpenCVHelp.forceLoadOpenCV();
     }
@@ -216,6 +222,26 @@ public class PhotonCameraSim implements AutoCloseable {
                 && (rel.camToTarg.getTranslation().getNorm() <= maxSightRangeMeters)); // target is too far
     }
 
+    /**
+     * Quickly determines if a point is inside this camera's field of view and sight range. This makes
+     * the same FOV and range checks as {@link #canSeeTargetPose(Pose3d, VisionTargetSim)}, without
+     * building a {@link CameraTargetRelation}, so it is cheap enough to cull every target on the
+     * field.
+     *
+     * @param camToPoint The point in camera coordinates
+     * @param tanHalfHoriz Tangent of half the horizontal FOV
+     * @param tanHalfVert Tangent of half the vertical FOV
+     */
+    private boolean inViewFrustum(Translation3d camToPoint, double tanHalfHoriz, double tanHalfVert) {
+        double x = camToPoint.getX();
+        // behind the camera, or too far
+        if (x <= 0 || camToPoint.getNorm() > maxSightRangeMeters) return false;
+        // small tolerance so this never rejects a target canSeeTargetPose() would accept
+        if (Math.abs(camToPoint.getY()) > x * tanHalfHoriz + 1e-9) return false;
+        double distXY = Math.hypot(x, camToPoint.getY());
+        return Math.abs(camToPoint.getZ()) <= distXY * tanHalfVert + 1e-9;
+    }
+
     /**
      * Determines if all target points are inside the camera's image.
      *
@@ -329,33 +355,55 @@ public class PhotonCameraSim implements AutoCloseable {
 
     public PhotonPipelineResult process(
             double latencyMillis, Pose3d cameraPose, List<VisionTargetSim> targets) {
+        return process(latencyMillis, cameraPose, targets, null);
+    }
+
+    /**
+     * Like {@link #process(double, Pose3d, List)}, but pixel noise is drawn from a generator seeded
+     * with {@code noiseSeed} instead of the one in {@link #prop}. The result then only depends on the
+     * inputs, so different cameras can be processed concurrently and still be reproducible.
+     *
+     * @param latencyMillis Simulated processing latency in milliseconds
+     * @param cameraPose The camera pose at image capture
+     * @param targets The targets on the field
+     * @param noiseSeed Seed for this frame's pixel noise
+     */
+    public PhotonPipelineResult process(
+            double latencyMillis, Pose3d cameraPose, List<VisionTargetSim> targets, long noiseSeed) {
+        noiseRand.setSeed(noiseSeed);
+        return process(latencyMillis, cameraPose, targets, noiseRand);
+    }
+
+    private PhotonPipelineResult process(
+            double latencyMillis, Pose3d cameraPose, List<VisionTargetSim> targets, Random noiseRand) {
+        // basis change from world coordinates to camera coordinates
+        var camRt = RotTrlTransform3d.makeRelativeTo(cameraPose);
+
+        // cull targets outside the view frustum before building anything per target
+        double tanHalfHoriz = Math.tan(prop.getHorizFOV().getRadians() / 2);
+        double tanHalfVert = Math.tan(prop.getVertFOV().getRadians() / 2);
+        var candidateTgts = new ArrayList<VisionTargetSim>();
+        for (var tgt : targets) {
+            var camToTargTrl = camRt.apply(tgt.getPose().getTranslation());
+            if (!inViewFrustum(camToTargTrl, tanHalfHoriz, tanHalfVert)) continue;
+            // pose isn't visible, skip to next
+            if (!canSeeTargetPose(cameraPose, tgt)) continue;
+            candidateTgts.add(tgt);
+        }
         // sort targets by distance to camera
-        targets = new ArrayList<>(targets);
-        targets.sort(
+        candidateTgts.sort(
                 (t1, t2) -> {
                     double dist1 = t1.getPose().getTranslation().getDistance(cameraPose.getTranslation());
                     double dist2 = t2.getPose().getTranslation().getDistance(cameraPose.getTranslation());
                     if (dist1 == dist2) return 0;
                     return dist1 < dist2 ? 1 : -1;
                 });
-        // all targets visible before noise
-        var visibleTgts = new ArrayList<Pair<VisionTargetSim, Point[]>>();
-        // all targets actually detected by camera (after noise)
-        var detectableTgts = new ArrayList<PhotonTrackedTarget>();
-        // basis change from world coordinates to camera coordinates
-        var camRt = RotTrlTransform3d.makeRelativeTo(cameraPose);
-
-        // reset our frame
-        VideoSimUtil.updateVideoProp(videoSimRaw, prop);
-        VideoSimUtil.updateVideoProp(videoSimProcessed, prop);
-        Size videoFrameSize = new Size(prop.getResWidth(), prop.getResHeight());
-        Mat.zeros(videoFrameSize, CvType.CV_8UC1).assignTo(videoSimFrameRaw);
-
-        for (var tgt : targets) {
-            // pose isn't visible, skip to next
-            if (!canSeeTargetPose(cameraPose, tgt)) continue;
 
-            // find target's 3d corner points
+        // find every target's 3d corner points, and project them all in one call
+        var allFieldCorners = new ArrayList<Translation3d>();
+        int[] cornerOffsets = new int[candidateTgts.size() + 1];
+        for (int i = 0; i < candidateTgts.size(); i++) {
+            var tgt = candidateTgts.get(i);
             var fieldCorners = tgt.getFieldVertices();
             if (tgt.getModel().isSpherical) { // target is spherical
                 var model = tgt.getModel();
@@ -366,9 +414,35 @@ public class PhotonCameraSim implements AutoCloseable {
                                 TargetModel.getOrientedPose(
                                         tgt.getPose().getTranslation(), cameraPose.getTranslation()));
             }
-            // project 3d target points into 2d image points
+            allFieldCorners.addAll(fieldCorners);
+            cornerOffsets[i + 1] = allFieldCorners.size();
+        }
+        var allImagePoints =
+                allFieldCorners.isEmpty()
+                        ? new Point[0]
+                        : OpenCVHelp.projectPoints(
+                                prop.getIntrinsics(), prop.getDistCoeffs(), camRt, allFieldCorners);
+
+        // all targets visible before noise
+        var visibleTgts = new ArrayList<Pair<VisionTargetSim, Point[]>>();
+        // all targets actually detected by camera (after noise)
+        var detectableTgts = new ArrayList<PhotonTrackedTarget>();
+
+        // reset our frame, reusing its memory. Nothing is drawn if neither stream is enabled
+        boolean videoSimEnabled = videoSimRawEnabled || videoSimProcEnabled;
+        if (videoSimEnabled) {
+            VideoSimUtil.updateVideoProp(videoSimRaw, prop);
+            VideoSimUtil.updateVideoProp(videoSimProcessed, prop);
+            videoSimFrameRaw.create(prop.getResHeight(), prop.getResWidth(), CvType.CV_8UC1);
+            videoSimFrameRaw.setTo(new Scalar(0));
+        }
+
+        for (int tgtIdx = 0; tgtIdx < candidateTgts.size(); tgtIdx++) {
+            var tgt = candidateTgts.get(tgtIdx);
+            // this target's 2d image points
             var imagePoints =
-                    OpenCVHelp.projectPoints(prop.getIntrinsics(), prop.getDistCoeffs(), camRt, fieldCorners);
+                    Arrays.copyOfRange(
+                            allImagePoints, cornerOffsets[tgtIdx], cornerOffsets[tgtIdx + 1]);
             // spherical targets need a rotated rectangle of their midpoints for visualization
             if (tgt.getModel().isSpherical) {
                 var center = OpenCVHelp.avgPoint(imagePoints);
@@ -406,7 +480,10 @@ public class PhotonCameraSim implements AutoCloseable {
             // save visible targets for raw video stream simulation
             visibleTgts.add(new Pair<>(tgt, imagePoints));
             // estimate pixel noise
-            var noisyTargetCorners = prop.estPixelNoise(imagePoints);
+            var noisyTargetCorners =
+                    noiseRand != null
+                            ? prop.estPixelNoise(imagePoints, noiseRand)
+                            : prop.estPixelNoise(imagePoints);
             // find the minimum area rectangle of target corners
             var minAreaRect = OpenCVHelp.getMinAreaRect(noisyTargetCorners);
             Point[] minAreaRectPts = new Point[4];
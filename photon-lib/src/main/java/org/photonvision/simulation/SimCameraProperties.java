@@ -164,6 +164,14 @@ public class SimCameraProperties {
         rand.setSeed(seed);
     }
 
+    /**
+     * @return A new seed drawn from this camera's random generator, so noise generators seeded with
+     *     it are still controlled by {@link #setRandomSeed(long)}
+     */
+    public long nextRandomSeed() {
+        return rand.nextLong();
+    }
+
     public void setCalibration(int resWidth, int resHeight, Rotation2d fovDiag) {
         if (fovDiag.getDegrees() < 1 || fovDiag.getDegrees() > 179) {
             fovDiag = Rotation2d.fromDegrees(MathUtil.clamp(fovDiag.getDegrees(), 1, 179));
@@ -559,6 +567,14 @@ public class SimCameraProperties {
 
     /** Returns these points after applying this camera's estimated noise. */
     public Point[] estPixelNoise(Point[] points) {
+        return estPixelNoise(points, rand);
+    }
+
+    /**
+     * Returns these points after applying this camera's estimated noise, drawn from the given
+     * generator instead of this camera's own.
+     */
+    public Point[] estPixelNoise(Point[] points, Random rand) {
         if (avgErrorPx == 0 && errorStdDevPx == 0) return points;
 
         Point[] noisyPts = new Point[points.length];
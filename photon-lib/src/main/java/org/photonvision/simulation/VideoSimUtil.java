@@ -33,8 +33,10 @@ import edu.wpi.first.util.RawFrame;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import org.opencv.core.Core;
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
@@ -56,6 +58,80 @@ public class VideoSimUtil {
     // Points corresponding to marker(black square) corners of 10x10 36h11 tag images
     public static final Point[] kTag36h11MarkerPts;
 
+    // Warped tag images, keyed by tag id and quantized destination quad
+    private static final int kSpriteQuantization = 8;
+    static final int kMaxCachedSprites = 256;
+    private static final long kMaxCachedSpriteArea = 256 * 256;
+    private static final Map<SpriteKey, TagSprite> kTagSprites =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<SpriteKey, TagSprite> eldest) {
+                    // not released here, since another thread may still be drawing it
+                    return size() > kMaxCachedSprites;
+                }
+            };
+    // How many sprites have been warped, cached or not
+    private static final AtomicLong kSpritesRendered = new AtomicLong();
+    // Intermediate Mats for warping, reused by each thread drawing tags
+    private static final ThreadLocal<WarpScratch> kWarpScratch =
+            ThreadLocal.withInitial(WarpScratch::new);
+
+    private static final class SpriteKey {
+        final int tagId;
+        final int[] quad;
+
+        SpriteKey(int tagId, int[] quad) {
+            this.tagId = tagId;
+            this.quad = quad;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SpriteKey)) return false;
+            var other = (SpriteKey) o;
+            return tagId == other.tagId && Arrays.equals(quad, other.quad);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * tagId + Arrays.hashCode(quad);
+        }
+    }
+
+    private static final class TagSprite {
+        final Mat image;
+        final Mat mask;
+        // top-left of the sprite relative to the quad's whole-pixel origin
+        final int offsetX;
+        final int offsetY;
+        // if part of the tag was outside the destination image
+        final boolean clipped;
+
+        TagSprite(Mat image, Mat mask, int offsetX, int offsetY, boolean clipped) {
+            this.image = image;
+            this.mask = mask;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            this.clipped = clipped;
+        }
+
+        void release() {
+            image.release();
+            mask.release();
+        }
+    }
+
+    private static final class WarpScratch {
+        final MatOfPoint2f tagPoints = new MatOfPoint2f();
+        final MatOfPoint2f tagImageCorners = new MatOfPoint2f();
+        final MatOfPoint2f dstPoints = new MatOfPoint2f();
+        final MatOfPoint2f extremeCorners = new MatOfPoint2f();
+        final Mat scaledDstPoints = new Mat();
+        final Mat scaledTagImage = new Mat();
+        final Mat supersampled = new Mat();
+    }
+
     // field dimensions for wireframe
     private static double fieldLength = 16.54175;
     private static double fieldWidth = 8.0137;
@@ -133,6 +209,9 @@ public class VideoSimUtil {
     /**
      * Warps the image of a specific 36h11 AprilTag onto the destination image at the given points.
      *
+     * <p>Warped tags are cached by tag id and the shape of the destination quad (to 1/8 pixel), so
+     * a tag that stays still or only moves by whole pixels is copied instead of warped again.
+     *
      * @param tagId The id of the specific tag to warp onto the destination image
      * @param dstPoints Points(4) in destination image where the tag marker(black square) corners
      *     should be warped onto.
@@ -145,19 +224,129 @@ public class VideoSimUtil {
             int tagId, Point[] dstPoints, boolean antialiasing, Mat destination) {
         Mat tagImage = kTag36h11Images.get(tagId);
         if (tagImage == null || tagImage.empty()) return;
-        var tagPoints = new MatOfPoint2f(kTag36h11MarkerPts);
+
+        // the warped tag only depends on the quad's position within a pixel, so key the sprite by
+        // the quad relative to its whole-pixel origin
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        for (var pt : dstPoints) {
+            minX = Math.min(minX, pt.x);
+            minY = Math.min(minY, pt.y);
+        }
+        int originX = (int) Math.floor(minX);
+        int originY = (int) Math.floor(minY);
+        int[] quantized = new int[dstPoints.length * 2];
+        var relPoints = new Point[dstPoints.length];
+        for (int i = 0; i < dstPoints.length; i++) {
+            quantized[i * 2] = (int) Math.round((dstPoints[i].x - originX) * kSpriteQuantization);
+            quantized[i * 2 + 1] =
+                    (int) Math.round((dstPoints[i].y - originY) * kSpriteQuantization);
+            relPoints[i] =
+                    new Point(
+                            quantized[i * 2] / (double) kSpriteQuantization,
+                            quantized[i * 2 + 1] / (double) kSpriteQuantization);
+        }
+        var key = new SpriteKey(tagId, quantized);
+
+        TagSprite sprite;
+        synchronized (kTagSprites) {
+            sprite = kTagSprites.get(key);
+        }
+        boolean cached = sprite != null;
+        if (!cached) {
+            // tags hanging off the image are only rendered where they are visible
+            var clip = new Rect(-originX, -originY, destination.width(), destination.height());
+            sprite = renderTagSprite(tagImage, relPoints, clip, kWarpScratch.get());
+            if (sprite == null) return;
+            if (!sprite.clipped && sprite.image.total() <= kMaxCachedSpriteArea) {
+                synchronized (kTagSprites) {
+                    // another camera may have rendered the same sprite meanwhile
+                    var existing = kTagSprites.putIfAbsent(key, sprite);
+                    if (existing != null) {
+                        sprite.release();
+                        sprite = existing;
+                    }
+                }
+                cached = true;
+            }
+        }
+
+        // constrain the sprite inside of the destination image
+        var spriteRect =
+                new Rect(
+                        originX + sprite.offsetX,
+                        originY + sprite.offsetY,
+                        sprite.image.width(),
+                        sprite.image.height());
+        int x0 = Math.max(spriteRect.x, 0);
+        int y0 = Math.max(spriteRect.y, 0);
+        int x1 = Math.min(spriteRect.x + spriteRect.width, destination.width());
+        int y1 = Math.min(spriteRect.y + spriteRect.height, destination.height());
+        if (x1 > x0 && y1 > y0) {
+            var dstRect = new Rect(x0, y0, x1 - x0, y1 - y0);
+            var srcRect =
+                    new Rect(x0 - spriteRect.x, y0 - spriteRect.y, dstRect.width, dstRect.height);
+            // copy ONLY the transformed tag to the result image, not the entire bounding rect
+            var srcImage = sprite.image.submat(srcRect);
+            var srcMask = sprite.mask.submat(srcRect);
+            var dstImage = destination.submat(dstRect);
+            srcImage.copyTo(dstImage, srcMask);
+            srcImage.release();
+            srcMask.release();
+            dstImage.release();
+        }
+
+        if (!cached) sprite.release();
+    }
+
+    /** Removes all cached tag sprites. */
+    public static void clearTagSpriteCache() {
+        synchronized (kTagSprites) {
+            // evicted sprites may still be drawn by another thread, so leave them to the GC
+            kTagSprites.clear();
+        }
+    }
+
+    /** The number of tag sprites currently cached. */
+    static int getTagSpriteCacheSize() {
+        synchronized (kTagSprites) {
+            return kTagSprites.size();
+        }
+    }
+
+    /** The number of times a tag has been warped instead of drawn from the cache. */
+    static long getTagSpritesRendered() {
+        return kSpritesRendered.get();
+    }
+
+    /**
+     * Warps a tag image onto a quad.
+     *
+     * @param tagImage The 10x10 tag image
+     * @param dstPoints Points(4) where the tag marker(black square) corners should be warped onto
+     * @param clip The destination image bounds, relative to the origin of dstPoints
+     * @param scratch This thread's reusable intermediate Mats
+     * @return The warped tag and its mask, positioned relative to the origin of dstPoints, or null
+     *     if it is entirely outside of clip
+     */
+    private static TagSprite renderTagSprite(
+            Mat tagImage, Point[] dstPoints, Rect clip, WarpScratch scratch) {
+        kSpritesRendered.incrementAndGet();
+        var tagPoints = scratch.tagPoints;
+        tagPoints.fromArray(kTag36h11MarkerPts);
         // points of tag image corners
-        var tagImageCorners = new MatOfPoint2f(getImageCorners(tagImage.size()));
-        var dstPointMat = new MatOfPoint2f(dstPoints);
-        // the rectangle describing the rectangle-of-interest(ROI)
-        var boundingRect = Imgproc.boundingRect(dstPointMat);
+        var tagImageCorners = scratch.tagImageCorners;
+        tagImageCorners.fromArray(getImageCorners(tagImage.size()));
+        var dstPointMat = scratch.dstPoints;
+        dstPointMat.fromArray(dstPoints);
         // find the perspective transform from the tag image to the warped destination points
         Mat perspecTrf = Imgproc.getPerspectiveTransform(tagPoints, dstPointMat);
-        // check extreme image corners after transform to check if we need to expand bounding rect
-        var extremeCorners = new MatOfPoint2f();
+        // check extreme image corners after transform to find the bounding rect of the full tag
+        var extremeCorners = scratch.extremeCorners;
         Core.perspectiveTransform(tagImageCorners, extremeCorners, perspecTrf);
-        // dilate ROI to fit full tag
-        boundingRect = Imgproc.boundingRect(extremeCorners);
+        perspecTrf.release();
+        // the rectangle describing the rectangle-of-interest(ROI)
+        var boundingRect = Imgproc.boundingRect(extremeCorners);
 
         // adjust interpolation strategy based on size of warped tag compared to tag image
         var warpedContourArea = Imgproc.contourArea(extremeCorners);
@@ -177,43 +366,41 @@ public class VideoSimUtil {
         supersampling = (int) Math.ceil(supersampling / warpedTagUpscale);
         supersampling = Math.max(Math.min(supersampling, 10), 1);
 
-        Mat scaledTagImage = new Mat();
+        Mat scaledTagImage = tagImage;
         if (warpedTagUpscale > 2.0) {
             warpStrategy = Imgproc.INTER_LINEAR;
             int scaleFactor = (int) (warpedTagUpscale / 3.0) + 2;
             scaleFactor = Math.max(Math.min(scaleFactor, 40), 1);
             scaleFactor *= supersampling;
+            scaledTagImage = scratch.scaledTagImage;
             Imgproc.resize(
                     tagImage, scaledTagImage, new Size(), scaleFactor, scaleFactor, Imgproc.INTER_NEAREST);
             tagPoints.fromArray(get36h11MarkerPts(scaleFactor));
-        } else tagImage.assignTo(scaledTagImage);
-
-        // constrain the bounding rect inside of the destination image
-        boundingRect.x -= 1;
-        boundingRect.y -= 1;
-        boundingRect.width += 2;
-        boundingRect.height += 2;
-        if (boundingRect.x < 0) {
-            boundingRect.width += boundingRect.x;
-            boundingRect.x = 0;
-        }
-        if (boundingRect.y < 0) {
-            boundingRect.height += boundingRect.y;
-            boundingRect.y = 0;
         }
-        boundingRect.width = Math.min(destination.width() - boundingRect.x, boundingRect.width);
-        boundingRect.height = Math.min(destination.height() - boundingRect.y, boundingRect.height);
-        if (boundingRect.width <= 0 || boundingRect.height <= 0) return;
+
+        // pad the bounding rect by a pixel, and constrain it inside of the destination image
+        int x0 = Math.max(boundingRect.x - 1, clip.x);
+        int y0 = Math.max(boundingRect.y - 1, clip.y);
+        int x1 = Math.min(boundingRect.x + boundingRect.width + 1, clip.x + clip.width);
+        int y1 = Math.min(boundingRect.y + boundingRect.height + 1, clip.y + clip.height);
+        if (x1 <= x0 || y1 <= y0) return null;
+        boolean clipped =
+                x0 != boundingRect.x - 1
+                        || y0 != boundingRect.y - 1
+                        || x1 != boundingRect.x + boundingRect.width + 1
+                        || y1 != boundingRect.y + boundingRect.height + 1;
+        boundingRect = new Rect(x0, y0, x1 - x0, y1 - y0);
+        var spriteRect = boundingRect.clone();
 
         // upscale if supersampling
-        Mat scaledDstPts = new Mat();
+        var scaledDstPts = scratch.scaledDstPoints;
         if (supersampling > 1) {
             Core.multiply(dstPointMat, new Scalar(supersampling, supersampling), scaledDstPts);
             boundingRect.x *= supersampling;
             boundingRect.y *= supersampling;
             boundingRect.width *= supersampling;
             boundingRect.height *= supersampling;
-        } else dstPointMat.assignTo(scaledDstPts);
+        } else dstPointMat.copyTo(scaledDstPts);
 
         // update transform relative to expanded, scaled bounding rect
         Core.subtract(scaledDstPts, new Scalar(boundingRect.tl().x, boundingRect.tl().y), scaledDstPts);
@@ -221,44 +408,29 @@ public class VideoSimUtil {
 
         // warp (scaled) tag image onto (scaled) ROI image representing the portion of
         // the destination image encapsulated by boundingRect
-        Mat tempROI = new Mat();
-        Imgproc.warpPerspective(scaledTagImage, tempROI, perspecTrf, boundingRect.size(), warpStrategy);
-
-        // downscale ROI with interpolation if supersampling
+        Mat image = new Mat();
         if (supersampling > 1) {
-            boundingRect.x /= supersampling;
-            boundingRect.y /= supersampling;
-            boundingRect.width /= supersampling;
-            boundingRect.height /= supersampling;
-            Imgproc.resize(tempROI, tempROI, boundingRect.size(), 0, 0, Imgproc.INTER_AREA);
+            Imgproc.warpPerspective(
+                    scaledTagImage, scratch.supersampled, perspecTrf, boundingRect.size(), warpStrategy);
+            // downscale ROI with interpolation
+            Imgproc.resize(scratch.supersampled, image, spriteRect.size(), 0, 0, Imgproc.INTER_AREA);
+        } else {
+            Imgproc.warpPerspective(scaledTagImage, image, perspecTrf, boundingRect.size(), warpStrategy);
         }
+        perspecTrf.release();
 
         // we want to copy ONLY the transformed tag to the result image, not the entire bounding rect
         // using a mask only copies the source pixels which have an associated non-zero value in the
         // mask
-        Mat tempMask = Mat.zeros(tempROI.size(), CvType.CV_8UC1);
+        Mat mask = Mat.zeros(image.size(), CvType.CV_8UC1);
         Core.subtract(
-                extremeCorners, new Scalar(boundingRect.tl().x, boundingRect.tl().y), extremeCorners);
-        Point tempCenter = new Point();
-        tempCenter.x =
-                Arrays.stream(extremeCorners.toArray()).mapToDouble(p -> p.x).average().getAsDouble();
-        tempCenter.y =
-                Arrays.stream(extremeCorners.toArray()).mapToDouble(p -> p.y).average().getAsDouble();
-        // dilate tag corners
-        Arrays.stream(extremeCorners.toArray())
-                .forEach(
-                        p -> {
-                            double xdiff = p.x - tempCenter.x;
-                            double ydiff = p.y - tempCenter.y;
-                            xdiff += 1 * Math.signum(xdiff);
-                            ydiff += 1 * Math.signum(ydiff);
-                            new Point(tempCenter.x + xdiff, tempCenter.y + ydiff);
-                        });
+                extremeCorners, new Scalar(spriteRect.tl().x, spriteRect.tl().y), extremeCorners);
         // (make inside of tag completely white in mask)
-        Imgproc.fillConvexPoly(tempMask, new MatOfPoint(extremeCorners.toArray()), new Scalar(255));
+        var maskContour = new MatOfPoint(extremeCorners.toArray());
+        Imgproc.fillConvexPoly(mask, maskContour, new Scalar(255));
+        maskContour.release();
 
-        // copy transformed tag onto result image
-        tempROI.copyTo(destination.submat(boundingRect), tempMask);
+        return new TagSprite(image, mask, spriteRect.x, spriteRect.y, clipped);
     }
 
     /**
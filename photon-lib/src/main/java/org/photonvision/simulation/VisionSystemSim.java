@@ -41,9 +41,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import org.photonvision.PhotonCamera;
 import org.photonvision.estimation.TargetModel;
+import org.photonvision.targeting.PhotonPipelineResult;
 
 /**
  * A simulated vision system involving a camera(s) and coprocessor(s) mounted on a mobile robot
@@ -68,6 +74,28 @@ public class VisionSystemSim {
 
     private final Transform3d kEmptyTrf = new Transform3d();
 
+    // shared by every vision system, only created once cameras are processed in parallel
+    private static ExecutorService workerPool;
+    private boolean parallelProcessing = true;
+
+    /** One camera's frame for a single {@link #update(Pose3d)}. */
+    private static class CameraFrame {
+        final PhotonCameraSim camSim;
+        long timestampNT;
+        double latencyMillis;
+        Pose3d cameraPose;
+        long noiseSeed;
+        PhotonPipelineResult result;
+
+        CameraFrame(PhotonCameraSim camSim) {
+            this.camSim = camSim;
+        }
+
+        void process(List<VisionTargetSim> allTargets) {
+            result = camSim.process(latencyMillis, cameraPose, allTargets, noiseSeed);
+        }
+    }
+
     /**
      * A simulated vision system involving a camera(s) and coprocessor(s) mounted on a mobile robot
      * running PhotonVision, detecting targets placed on the field. {@link VisionTargetSim}s added to
@@ -334,6 +362,15 @@ public class VisionSystemSim {
         return dbgField;
     }
 
+    /**
+     * Sets whether cameras with a frame due in the same {@link #update(Pose3d)} are processed
+     * concurrently. Each camera's pixel noise is seeded from its own {@link SimCameraProperties}, so
+     * results are the same either way. Enabled by default.
+     */
+    public void setParallelProcessing(boolean enabled) {
+        this.parallelProcessing = enabled;
+    }
+
     /**
      * Periodic update. Ensure this is called repeatedly-- camera performance is used to automatically
      * determine if a new frame should be submitted.
@@ -374,36 +411,87 @@ public class VisionSystemSim {
         var visTgtPoses2d = new ArrayList<Pose2d>();
         var cameraPoses2d = new ArrayList<Pose2d>();
         boolean processed = false;
-        // process each camera
+        // find which cameras have a frame due, in a fixed order so noise stays reproducible
+        var frames = new ArrayList<CameraFrame>();
         for (var camSim : camSimMap.values()) {
             // check if this camera is ready to process and get latency
             var optTimestamp = camSim.consumeNextEntryTime();
             if (optTimestamp.isEmpty()) continue;
             else processed = true;
+            var frame = new CameraFrame(camSim);
             // when this result "was" read by NT
-            long timestampNT = optTimestamp.get();
+            frame.timestampNT = optTimestamp.get();
             // this result's processing latency in milliseconds
-            double latencyMillis = camSim.prop.estLatencyMs();
+            frame.latencyMillis = camSim.prop.estLatencyMs();
             // the image capture timestamp in seconds of this result
-            double timestampCapture = timestampNT / 1e6 - latencyMillis / 1e3;
+            double timestampCapture = frame.timestampNT / 1e6 - frame.latencyMillis / 1e3;
 
             // use camera pose from the image capture timestamp
             Pose3d lateRobotPose = getRobotPose(timestampCapture);
-            Pose3d lateCameraPose = lateRobotPose.plus(getRobotToCamera(camSim, timestampCapture).get());
-            cameraPoses2d.add(lateCameraPose.toPose2d());
+            frame.cameraPose = lateRobotPose.plus(getRobotToCamera(camSim, timestampCapture).get());
+            frame.noiseSeed = camSim.prop.nextRandomSeed();
+            cameraPoses2d.add(frame.cameraPose.toPose2d());
+            frames.add(frame);
+        }
+
+        // process a PhotonPipelineResult with visible targets for each camera
+        processFrames(frames, allTargets);
 
-            // process a PhotonPipelineResult with visible targets
-            var camResult = camSim.process(latencyMillis, lateCameraPose, allTargets);
+        for (var frame : frames) {
             // publish this info to NT at estimated timestamp of receive
-            camSim.submitProcessedFrame(camResult, timestampNT);
+            frame.camSim.submitProcessedFrame(frame.result, frame.timestampNT);
             // display debug results
-            for (var target : camResult.getTargets()) {
+            for (var target : frame.result.getTargets()) {
                 var trf = target.getBestCameraToTarget();
                 if (trf.equals(kEmptyTrf)) continue;
-                visTgtPoses2d.add(lateCameraPose.transformBy(trf).toPose2d());
+                visTgtPoses2d.add(frame.cameraPose.transformBy(trf).toPose2d());
             }
         }
         if (processed) dbgField.getObject("visibleTargetPoses").setPoses(visTgtPoses2d);
         if (!cameraPoses2d.isEmpty()) dbgField.getObject("cameras").setPoses(cameraPoses2d);
     }
+
+    private void processFrames(List<CameraFrame> frames, List<VisionTargetSim> allTargets) {
+        if (!parallelProcessing || frames.size() < 2) {
+            for (var frame : frames) frame.process(allTargets);
+            return;
+        }
+
+        // the calling thread takes the first camera instead of waiting
+        var futures = new ArrayList<Future<?>>(frames.size() - 1);
+        for (int i = 1; i < frames.size(); i++) {
+            var frame = frames.get(i);
+            futures.add(getWorkerPool().submit(() -> frame.process(allTargets)));
+        }
+        frames.get(0).process(allTargets);
+
+        for (var future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while simulating cameras", e);
+            } catch (ExecutionException e) {
+                var cause = e.getCause();
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+
+    private static synchronized ExecutorService getWorkerPool() {
+        if (workerPool == null) {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            var counter = new AtomicInteger();
+            workerPool =
+                    Executors.newFixedThreadPool(
+                            threads,
+                            r -> {
+                                var thread = new Thread(r, "VisionSystemSim-" + counter.getAndIncrement());
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+        }
+        return workerPool;
+    }
 }
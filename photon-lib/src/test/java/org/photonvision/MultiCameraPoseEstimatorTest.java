@@ -0,0 +1,171 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) PhotonVision
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.photonvision;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.cscore.OpenCvLoader;
+import edu.wpi.first.math.MatBuilder;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.math.numbers.N8;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Point;
+import org.photonvision.estimation.OpenCVHelp;
+import org.photonvision.estimation.RotTrlTransform3d;
+import org.photonvision.estimation.TargetModel;
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+
+class MultiCameraPoseEstimatorTest {
+    static final Matrix<N3, N3> cameraMatrix =
+            MatBuilder.fill(Nat.N3(), Nat.N3(), 900, 0, 640, 0, 900, 400, 0, 0, 1);
+    static final Matrix<N8, N1> distCoeffs =
+            MatBuilder.fill(Nat.N8(), Nat.N1(), 0.05, -0.1, 0, 0, 0.02, 0, 0, 0);
+
+    static final Pose3d robotPose = new Pose3d(4, 3, 0, new Rotation3d(0, 0, 0.3));
+    static final List<Transform3d> robotToCameras =
+            List.of(
+                    new Transform3d(new Translation3d(0.3, 0, 0.5), new Rotation3d(0, -0.2, 0)),
+                    new Transform3d(new Translation3d(0, 0.3, 0.5), new Rotation3d(0, -0.2, Math.PI / 2)),
+                    new Transform3d(new Translation3d(0, -0.3, 0.5), new Rotation3d(0, -0.2, -Math.PI / 2)));
+
+    static AprilTagFieldLayout layout;
+
+    @BeforeAll
+    public static void setUp() {
+        OpenCvLoader.forceLoad();
+
+        // One tag a few meters in front of each camera, facing it
+        var tags = new ArrayList<AprilTag>();
+        for (int i = 0; i < robotToCameras.size(); i++) {
+            var tagPose =
+                    robotPose
+                            .transformBy(robotToCameras.get(i))
+                            .transformBy(
+                                    new Transform3d(
+                                            new Translation3d(3, 0.2 * i, 0.1), new Rotation3d(0, 0, Math.PI)));
+            tags.add(new AprilTag(i + 1, tagPose));
+        }
+        layout = new AprilTagFieldLayout(tags, 16, 8);
+    }
+
+    /** What each camera would see from the robot pose, with a little deterministic pixel noise. */
+    private static PhotonPipelineResult observe(int cameraIndex, double noisePixels, long micros) {
+        var cameraPose = robotPose.transformBy(robotToCameras.get(cameraIndex));
+        var camRt = RotTrlTransform3d.makeRelativeTo(cameraPose);
+        var targets = new ArrayList<PhotonTrackedTarget>();
+        for (var tag : layout.getTags()) {
+            if (camRt.apply(tag.pose).getX() < 0.5) continue;
+            var vertices = TargetModel.kAprilTag36h11.getFieldVertices(tag.pose);
+            var points = OpenCVHelp.projectPoints(cameraMatrix, distCoeffs, camRt, vertices);
+            for (int i = 0; i < points.length; i++) {
+                double sign = (i % 2 == 0) ? 1 : -1;
+                points[i] = new Point(points[i].x + sign * noisePixels, points[i].y - sign * noisePixels);
+            }
+            var corners = OpenCVHelp.pointsToCorners(points);
+            targets.add(
+                    new PhotonTrackedTarget(
+                            0, 0, 0, 0, tag.ID, -1, -1, new Transform3d(), new Transform3d(), 0, corners, corners));
+        }
+        var result = new PhotonPipelineResult(0, 0, 0, targets);
+        result.setRecieveTimestampMicros(micros);
+        return result;
+    }
+
+    private static MultiCameraPoseEstimator makeEstimator() {
+        var estimator = new MultiCameraPoseEstimator(layout);
+        // Don't let a cold JIT cut the refinement short
+        estimator.setSolveBudgetSeconds(1);
+        for (var robotToCamera : robotToCameras) {
+            estimator.addCamera(robotToCamera, cameraMatrix, distCoeffs);
+        }
+        return estimator;
+    }
+
+    @Test
+    void testFusedEstimate() {
+        var estimator = makeEstimator();
+        var results = new ArrayList<PhotonPipelineResult>();
+        for (int i = 0; i < robotToCameras.size(); i++) {
+            // Every camera only sees its own tag
+            var result = observe(i, 0.3, 1_000_000);
+            assertEquals(1, result.getTargets().size());
+            results.add(result);
+        }
+
+        var estimate = estimator.update(results);
+        assertTrue(estimate.isPresent());
+        var pose = estimate.get().estimatedPose;
+        assertEquals(robotPose.getX(), pose.getX(), 0.02);
+        assertEquals(robotPose.getY(), pose.getY(), 0.02);
+        assertEquals(robotPose.getZ(), pose.getZ(), 0.02);
+        assertEquals(robotPose.getRotation().getZ(), pose.getRotation().getZ(), 0.01);
+        assertEquals(1.0, estimate.get().timestampSeconds, 1e-9);
+        assertEquals(3, estimate.get().targetsUsed.size());
+        assertTrue(estimator.getLastReprojectionErrorPixels() < 1);
+
+        // The same results shouldn't be used twice
+        assertTrue(estimator.update(results).isEmpty());
+    }
+
+    @Test
+    void testTimestampAlignment() {
+        var estimator = makeEstimator();
+        estimator.setMaxTimestampSkewSeconds(0.02);
+
+        var results = new ArrayList<PhotonPipelineResult>();
+        results.add(observe(0, 0, 2_000_000));
+        results.add(observe(1, 0, 1_990_000));
+        // Too old to be fused with the others
+        results.add(observe(2, 0, 1_900_000));
+
+        var estimate = estimator.update(results);
+        assertTrue(estimate.isPresent());
+        assertEquals(2, estimate.get().targetsUsed.size());
+        assertEquals(1.995, estimate.get().timestampSeconds, 1e-9);
+        assertEquals(robotPose.getX(), estimate.get().estimatedPose.getX(), 0.01);
+        assertEquals(robotPose.getY(), estimate.get().estimatedPose.getY(), 0.01);
+
+        // A missing camera is skipped
+        results.set(0, null);
+        results.get(1).setRecieveTimestampMicros(2_100_000);
+        estimate = estimator.update(results);
+        assertTrue(estimate.isPresent());
+        assertEquals(1, estimate.get().targetsUsed.size());
+    }
+}
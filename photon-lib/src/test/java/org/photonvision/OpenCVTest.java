@@ -26,6 +26,8 @@ package org.photonvision;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
 import edu.wpi.first.cscore.OpenCvLoader;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Pose3d;
@@ -35,15 +37,20 @@ import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.photonvision.estimation.CameraTargetRelation;
 import org.photonvision.estimation.OpenCVHelp;
+import org.photonvision.estimation.PnPSolverContext;
 import org.photonvision.estimation.RotTrlTransform3d;
 import org.photonvision.estimation.TargetModel;
+import org.photonvision.estimation.VisionEstimation;
 import org.photonvision.simulation.SimCameraProperties;
 import org.photonvision.simulation.VisionTargetSim;
+import org.photonvision.targeting.PhotonTrackedTarget;
+import org.photonvision.targeting.TargetCorner;
 
 public class OpenCVTest {
     private static final double kTrlDelta = 0.005;
@@ -218,4 +225,62 @@ public class OpenCVTest {
         assertSame(relTarget.getRotation(), pnpSim.best.getRotation());
         assertSame(relTarget.getTranslation(), pnpSim.best.getTranslation());
     }
+
+    @Test
+    public void testPnPSolverContextMatchesVisionEstimation() {
+        var layout =
+                new AprilTagFieldLayout(
+                        List.of(
+                                new AprilTag(1, new Pose3d(5, 0.5, 1, new Rotation3d(0, 0, Math.PI))),
+                                new AprilTag(2, new Pose3d(5, -0.5, 1, new Rotation3d(0, 0, Math.PI))),
+                                new AprilTag(3, new Pose3d(6, 0, 1.5, new Rotation3d(0, 0, Math.PI)))),
+                        16.5,
+                        8);
+        var cameraPose = new Pose3d(0.5, 0.2, 0.6, new Rotation3d(0, -0.1, 0.05));
+        var camRt = RotTrlTransform3d.makeRelativeTo(cameraPose);
+
+        var targets = new ArrayList<PhotonTrackedTarget>();
+        for (var tag : layout.getTags()) {
+            var points =
+                    OpenCVHelp.projectPoints(
+                            prop.getIntrinsics(),
+                            prop.getDistCoeffs(),
+                            camRt,
+                            TargetModel.kAprilTag36h11.getFieldVertices(tag.pose));
+            List<TargetCorner> corners = OpenCVHelp.pointsToCorners(points);
+            targets.add(
+                    new PhotonTrackedTarget(
+                            0, 0, 0, 0, tag.ID, -1, -1, new Transform3d(), new Transform3d(), 0, corners, corners));
+        }
+
+        var context = new PnPSolverContext();
+        try {
+            // Run everything twice to make sure reused buffers don't leak between calls
+            for (int run = 0; run < 2; run++) {
+                for (var visible : List.of(targets, targets.subList(0, 2), targets.subList(2, 3))) {
+                    var expected =
+                            VisionEstimation.estimateCamPosePNP(
+                                    prop.getIntrinsics(),
+                                    prop.getDistCoeffs(),
+                                    visible,
+                                    layout,
+                                    TargetModel.kAprilTag36h11);
+                    var actual =
+                            context.estimateCamPose(
+                                    prop.getIntrinsics(),
+                                    prop.getDistCoeffs(),
+                                    visible,
+                                    layout,
+                                    TargetModel.kAprilTag36h11);
+
+                    assertTrue(actual.isPresent);
+                    assertSame(expected.best, actual.best);
+                    if (visible.size() > 1) assertSame(cameraPose, new Pose3d().plus(actual.best));
+                    assertEquals(expected.ambiguity, actual.ambiguity, 1e-3);
+                }
+            }
+        } finally {
+            context.release();
+        }
+    }
 }
@@ -557,6 +557,60 @@ class PhotonPoseEstimatorTest {
         assertEquals(20, estimator.poseCacheTimestampSeconds);
     }
 
+    @Test
+    void tagPosesFollowLayoutAndCameraChanges() {
+        var corners =
+                List.of(
+                        new TargetCorner(1, 2),
+                        new TargetCorner(3, 4),
+                        new TargetCorner(5, 6),
+                        new TargetCorner(7, 8));
+        var result =
+                new PhotonPipelineResult(
+                        0,
+                        0,
+                        0,
+                        List.of(
+                                new PhotonTrackedTarget(
+                                        0,
+                                        0,
+                                        0,
+                                        0,
+                                        0,
+                                        -1,
+                                        -1,
+                                        new Transform3d(new Translation3d(1, 0, 0), new Rotation3d()),
+                                        new Transform3d(new Translation3d(1, 0, 0), new Rotation3d()),
+                                        0.1,
+                                        corners,
+                                        corners)));
+
+        PhotonPoseEstimator estimator =
+                new PhotonPoseEstimator(aprilTags, PoseStrategy.LOWEST_AMBIGUITY, new Transform3d());
+
+        result.setRecieveTimestampMicros((long) (1 * 1e6));
+        assertEquals(2, estimator.update(result).get().estimatedPose.getX(), .01);
+
+        // New camera mount
+        estimator.setRobotToCameraTransform(
+                new Transform3d(new Translation3d(0.5, 0, 0), new Rotation3d()));
+        result.setRecieveTimestampMicros((long) (2 * 1e6));
+        assertEquals(1.5, estimator.update(result).get().estimatedPose.getX(), .01);
+
+        // New layout with tag 0 moved
+        var layout =
+                new AprilTagFieldLayout(
+                        List.of(new AprilTag(0, new Pose3d(6, 3, 3, new Rotation3d()))), 16, 8);
+        estimator.setFieldTags(layout);
+        result.setRecieveTimestampMicros((long) (3 * 1e6));
+        assertEquals(4.5, estimator.update(result).get().estimatedPose.getX(), .01);
+
+        // Moving the origin of the same layout object moves the tag too
+        layout.setOrigin(new Pose3d(1, 0, 0, new Rotation3d()));
+        result.setRecieveTimestampMicros((long) (4 * 1e6));
+        assertEquals(3.5, estimator.update(result).get().estimatedPose.getX(), .01);
+    }
+
     @Test
     void averageBestPoses() {
         PhotonCameraInjector cameraOne = new PhotonCameraInjector();
@@ -511,4 +511,78 @@ class VisionSystemSimTest {
         assertEquals(0, pose.getZ(), .01);
         assertEquals(Math.toRadians(5), pose.getRotation().getZ(), 0.01);
     }
+
+    @Test
+    public void testParallelCamerasReproducible() {
+        double[] cameraYaws = {-0.3, 0, 0.3};
+        var serialCameras = new ArrayList<PhotonCamera>();
+        var parallelCameras = new ArrayList<PhotonCamera>();
+        for (boolean parallel : new boolean[] {false, true}) {
+            var visionSysSim = new VisionSystemSim(parallel ? "Parallel" : "Serial");
+            visionSysSim.setParallelProcessing(parallel);
+            for (int i = 0; i < cameraYaws.length; i++) {
+                var camera = new PhotonCamera((parallel ? "parallel" : "serial") + i);
+                var cameraSim = new PhotonCameraSim(camera);
+                cameraSim.prop.setCalibration(640, 480, Rotation2d.fromDegrees(80));
+                cameraSim.prop.setCalibError(0.5, 0.2);
+                cameraSim.prop.setRandomSeed(42 + i);
+                cameraSim.setMinTargetAreaPixels(20.0);
+                visionSysSim.addCamera(
+                        cameraSim, new Transform3d(new Translation3d(), new Rotation3d(0, 0, cameraYaws[i])));
+                (parallel ? parallelCameras : serialCameras).add(camera);
+            }
+            for (int id = 0; id < 3; id++) {
+                visionSysSim.addVisionTargets(
+                        new VisionTargetSim(
+                                new Pose3d(15.98, 4 * (id - 1), 1, new Rotation3d(0, 0, Math.PI)),
+                                TargetModel.kAprilTag16h5,
+                                id));
+            }
+            visionSysSim.update(new Pose2d(6, 0, new Rotation2d()));
+        }
+
+        // Each camera's noise only depends on its own seed
+        for (int i = 0; i < cameraYaws.length; i++) {
+            var serialTargets = serialCameras.get(i).getLatestResult().getTargets();
+            var parallelTargets = parallelCameras.get(i).getLatestResult().getTargets();
+            assertFalse(serialTargets.isEmpty());
+            assertEquals(serialTargets.size(), parallelTargets.size());
+            for (int t = 0; t < serialTargets.size(); t++) {
+                assertEquals(
+                        serialTargets.get(t).getDetectedCorners(), parallelTargets.get(t).getDetectedCorners());
+            }
+        }
+    }
+
+    @Test
+    public void testStreamsDisabledWithManyTargets() {
+        var visionSysSim = new VisionSystemSim("Test");
+        var camera = new PhotonCamera("camera");
+        var cameraSim = new PhotonCameraSim(camera);
+        visionSysSim.addCamera(cameraSim, new Transform3d());
+        cameraSim.prop.setCalibration(640, 480, Rotation2d.fromDegrees(80));
+        cameraSim.setMinTargetAreaPixels(20.0);
+        cameraSim.enableRawStream(false);
+        cameraSim.enableProcessedStream(false);
+
+        // A ring of game pieces around the robot, only some of which are in view
+        for (int i = 0; i < 36; i++) {
+            double angle = Math.toRadians(i * 10);
+            visionSysSim.addVisionTargets(
+                    "gamepiece",
+                    new VisionTargetSim(
+                            new Pose3d(6 + 3 * Math.cos(angle), 3 * Math.sin(angle), 0, new Rotation3d()),
+                            new TargetModel(0.3)));
+        }
+        visionSysSim.update(new Pose2d(6, 0, new Rotation2d()));
+
+        var res = camera.getLatestResult();
+        // ~68 degree horizontal FOV over targets every 10 degrees: the center one and three per side
+        assertEquals(7, res.getTargets().size());
+        for (var target : res.getTargets()) {
+            assertTrue(Math.abs(target.getYaw()) < cameraSim.prop.getHorizFOV().getDegrees() / 2);
+        }
+        // no frame is drawn when nothing would show it
+        assertTrue(cameraSim.getVideoSimFrameRaw().empty());
+    }
 }
@@ -0,0 +1,190 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) PhotonVision
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.photonvision.simulation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.wpi.first.cscore.OpenCvLoader;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+
+public class VideoSimUtilTest {
+    private static final int kTagId = 3;
+
+    @BeforeAll
+    public static void setUp() {
+        OpenCvLoader.forceLoad();
+    }
+
+    @BeforeEach
+    public void clearCache() {
+        VideoSimUtil.clearTagSpriteCache();
+    }
+
+    /** Marker corners of an upright square tag, in the order the tag image's corners are in. */
+    private static Point[] square(double x, double y, double size) {
+        return new Point[] {
+            new Point(x, y),
+            new Point(x + size, y),
+            new Point(x + size, y + size),
+            new Point(x, y + size)
+        };
+    }
+
+    private static Mat render(Point[] quad, int width, int height) {
+        var image = new Mat(height, width, CvType.CV_8UC1, new Scalar(128));
+        VideoSimUtil.warp36h11TagImage(kTagId, quad, true, image);
+        return image;
+    }
+
+    /** The number of pixels that differ by more than tolerance. */
+    private static int countDifferent(Mat a, Mat b, int tolerance) {
+        var diff = new Mat();
+        Core.absdiff(a, b, diff);
+        Core.compare(diff, new Scalar(tolerance), diff, Core.CMP_GT);
+        int count = Core.countNonZero(diff);
+        diff.release();
+        return count;
+    }
+
+    @Test
+    public void cachedMatchesUncached() {
+        // on the 1/8 pixel grid, so nudging it by less than 1/16 pixel can't change its key
+        var quad = square(40.25, 30.625, 60);
+
+        long rendered = VideoSimUtil.getTagSpritesRendered();
+        var uncached = render(quad, 200, 150);
+        assertEquals(rendered + 1, VideoSimUtil.getTagSpritesRendered());
+        assertEquals(1, VideoSimUtil.getTagSpriteCacheSize());
+        // the tag was actually drawn
+        var blank = new Mat(150, 200, CvType.CV_8UC1, new Scalar(128));
+        assertTrue(countDifferent(uncached, blank, 0) > 0);
+        blank.release();
+
+        var cached = render(quad, 200, 150);
+        assertEquals(rendered + 1, VideoSimUtil.getTagSpritesRendered());
+        assertEquals(0, countDifferent(uncached, cached, 0));
+
+        // quads are keyed to 1/8 pixel, so anything closer than 1/16 pixel draws the same sprite
+        var nudged = render(square(40.25 + 1.0 / 32, 30.625 - 1.0 / 32, 60), 200, 150);
+        assertEquals(rendered + 1, VideoSimUtil.getTagSpritesRendered());
+        assertEquals(0, countDifferent(uncached, nudged, 0));
+
+        // moving by whole pixels reuses the sprite, and draws it moved by exactly that much
+        var moved = render(square(40.25 + 7, 30.625 + 3, 60), 200, 150);
+        assertEquals(rendered + 1, VideoSimUtil.getTagSpritesRendered());
+        // the whole tag, border included, is 10/8 the size of its marker
+        var region = new Rect(30, 20, 82, 82);
+        var movedRegion = new Rect(region.x + 7, region.y + 3, region.width, region.height);
+        assertEquals(0, countDifferent(uncached.submat(region), moved.submat(movedRegion), 0));
+
+        // and warping it again from scratch gives the same image
+        VideoSimUtil.clearTagSpriteCache();
+        var rerendered = render(quad, 200, 150);
+        assertEquals(rendered + 2, VideoSimUtil.getTagSpritesRendered());
+        assertEquals(0, countDifferent(uncached, rerendered, 0));
+
+        uncached.release();
+        cached.release();
+        nudged.release();
+        moved.release();
+        rerendered.release();
+    }
+
+    @Test
+    public void clippedTagRendersVisiblePart() {
+        // the same tag, once fully inside a wide image, and once hanging 20 pixels off the left
+        // edge of an image that starts 100 pixels in
+        var full = render(square(80.3, 50.4, 60), 240, 160);
+
+        long rendered = VideoSimUtil.getTagSpritesRendered();
+        var clipped = render(square(-19.7, 50.4, 60), 140, 160);
+        var clippedAgain = render(square(-19.7, 50.4, 60), 140, 160);
+
+        // clipped sprites only hold what was visible, so they're never cached
+        assertEquals(rendered + 2, VideoSimUtil.getTagSpritesRendered());
+        assertEquals(1, VideoSimUtil.getTagSpriteCacheSize());
+        assertEquals(0, countDifferent(clipped, clippedAgain, 0));
+
+        // allow a column's worth of edge pixels to round differently
+        var visible = full.submat(new Rect(100, 0, 140, 160));
+        assertTrue(countDifferent(visible, clipped, 1) <= 60);
+
+        // nothing is drawn for a tag entirely outside the image
+        var outside = render(square(-200, 50.4, 60), 140, 160);
+        var blank = new Mat(160, 140, CvType.CV_8UC1, new Scalar(128));
+        assertEquals(0, countDifferent(outside, blank, 0));
+
+        full.release();
+        clipped.release();
+        clippedAgain.release();
+        outside.release();
+        blank.release();
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        var image = new Mat(100, 100, CvType.CV_8UC1, new Scalar(128));
+        // every size is a whole number of 1/8 pixels apart, so each is its own sprite
+        var first = square(10, 10, 12);
+        var second = square(10, 10, 12 + 1.0 / 8);
+
+        VideoSimUtil.warp36h11TagImage(kTagId, first, true, image);
+        for (int i = 1; i < VideoSimUtil.kMaxCachedSprites; i++) {
+            VideoSimUtil.warp36h11TagImage(kTagId, square(10, 10, 12 + i / 8.0), true, image);
+        }
+        assertEquals(VideoSimUtil.kMaxCachedSprites, VideoSimUtil.getTagSpriteCacheSize());
+
+        // using the first sprite again makes the second the least recently used
+        long rendered = VideoSimUtil.getTagSpritesRendered();
+        VideoSimUtil.warp36h11TagImage(kTagId, first, true, image);
+        assertEquals(rendered, VideoSimUtil.getTagSpritesRendered());
+
+        var newest = square(10, 10, 12 + VideoSimUtil.kMaxCachedSprites / 8.0);
+        VideoSimUtil.warp36h11TagImage(kTagId, newest, true, image);
+        assertEquals(rendered + 1, VideoSimUtil.getTagSpritesRendered());
+        assertEquals(VideoSimUtil.kMaxCachedSprites, VideoSimUtil.getTagSpriteCacheSize());
+
+        VideoSimUtil.warp36h11TagImage(kTagId, first, true, image);
+        assertEquals(rendered + 1, VideoSimUtil.getTagSpritesRendered());
+        VideoSimUtil.warp36h11TagImage(kTagId, second, true, image);
+        assertEquals(rendered + 2, VideoSimUtil.getTagSpritesRendered());
+
+        VideoSimUtil.clearTagSpriteCache();
+        assertEquals(0, VideoSimUtil.getTagSpriteCacheSize());
+        VideoSimUtil.warp36h11TagImage(kTagId, first, true, image);
+        assertEquals(rendered + 3, VideoSimUtil.getTagSpritesRendered());
+        assertEquals(1, VideoSimUtil.getTagSpriteCacheSize());
+
+        image.release();
+    }
+}
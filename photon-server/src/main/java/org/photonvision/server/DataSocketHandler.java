@@ -32,6 +32,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import org.apache.commons.lang3.tuple.Pair;
 import org.msgpack.jackson.dataformat.MessagePackFactory;
@@ -47,6 +48,8 @@ import org.photonvision.vision.pipeline.PipelineType;
 public class DataSocketHandler {
     private final Logger logger = new Logger(DataSocketHandler.class, LogGroup.WebServer);
     private final List<WsContext> users = new CopyOnWriteArrayList<>();
+    // Which camera each client is looking at, for clients that have told us
+    private final Map<WsContext, Integer> userCameraIndices = new ConcurrentHashMap<>();
     private final ObjectMapper objectMapper = new ObjectMapper(new MessagePackFactory());
     private final DataChangeService dcService = DataChangeService.getInstance();
 
@@ -81,6 +84,7 @@ public class DataSocketHandler {
 
     protected void onClose(WsCloseContext context) {
         users.remove(context);
+        userCameraIndices.remove(context);
         var remote = (InetSocketAddress) context.session.getRemoteAddress();
         // Remote can be null if server is being closed for restart
         if (remote != null) {
@@ -236,6 +240,7 @@ public class DataSocketHandler {
                             }
                         case SMT_CURRENTCAMERA:
                             {
+                                userCameraIndices.put(context, (Integer) entryValue);
                                 var changeCurrentCameraEvent =
                                         new IncomingWebSocketEvent<>(
                                                 DataChangeDestination.DCD_OTHER, "changeUICamera", (Integer) entryValue);
@@ -372,4 +377,21 @@ public class DataSocketHandler {
             }
         }
     }
+
+    /**
+     * Send a message about one camera, only to the clients looking at it. Clients that haven't told
+     * us which camera they're looking at get everything.
+     */
+    public void broadcastCameraMessage(Object message, int cameraIndex)
+            throws JsonProcessingException {
+        ByteBuffer b = null;
+        for (WsContext user : users) {
+            var userCameraIndex = userCameraIndices.get(user);
+            if (userCameraIndex != null && userCameraIndex != cameraIndex) continue;
+
+            // Only bother serializing if someone actually wants this
+            if (b == null) b = ByteBuffer.wrap(objectMapper.writeValueAsBytes(message));
+            sendMessage(b, user);
+        }
+    }
 }
@@ -496,20 +496,16 @@ public class RequestHandler {
         try {
             index = kObjectMapper.readTree(ctx.bodyInputStream()).get("index").asInt();
 
-            var calData = VisionModuleManager.getInstance().getModule(index).endCalibration();
-            if (calData == null) {
-                ctx.result("The calibration process failed");
-                ctx.status(500);
-                logger.error(
-                        "The calibration process failed. Calibration data for module at index ("
-                                + index
-                                + ") was null");
-                return;
-            }
-
-            ctx.result("Camera calibration successfully completed!");
-            ctx.status(200);
-            logger.info("Camera calibration successfully completed!");
+            var module = VisionModuleManager.getInstance().getModule(index);
+            // The solve runs in the background; answer once it's done without holding this thread
+            ctx.future(
+                    () ->
+                            module.endCalibrationAsync()
+                                    .handle(
+                                            (calData, e) -> {
+                                                onCalibrationEnded(ctx, index, calData, e);
+                                                return null;
+                                            }));
         } catch (JsonProcessingException e) {
             ctx.status(400);
             ctx.result(
@@ -524,6 +520,29 @@ public class RequestHandler {
         }
     }
 
+    private static void onCalibrationEnded(
+            Context ctx, int index, CameraCalibrationCoefficients calData, Throwable e) {
+        if (e != null) {
+            ctx.status(500);
+            ctx.result("There was an error while ending calibration");
+            logger.error("There was an error while ending calibration", e);
+            return;
+        }
+        if (calData == null) {
+            ctx.result("The calibration process failed");
+            ctx.status(500);
+            logger.error(
+                    "The calibration process failed. Calibration data for module at index ("
+                            + index
+                            + ") was null");
+            return;
+        }
+
+        ctx.result("Camera calibration successfully completed!");
+        ctx.status(200);
+        logger.info("Camera calibration successfully completed!");
+    }
+
     public static void onCalibDBCalibrationImportRequest(Context ctx) {
         var data = ctx.bodyInputStream();
 
@@ -621,6 +640,28 @@ public class RequestHandler {
         }
     }
 
+    public static void onCameraRecordingRequest(Context ctx) {
+        try {
+            var data = kObjectMapper.readTree(ctx.bodyInputStream());
+
+            boolean enabled = data.get("enabled").asBoolean();
+            int idx = data.get("cameraIndex").asInt();
+
+            VisionModuleManager.getInstance().getModule(idx).setRecording(enabled);
+            ctx.status(200);
+            ctx.result("Successfully " + (enabled ? "started" : "stopped") + " recording");
+            logger.info("Successfully " + (enabled ? "started" : "stopped") + " recording");
+        } catch (JsonProcessingException | NullPointerException e) {
+            ctx.status(400);
+            ctx.result("The provided recording data was malformed");
+            logger.error("The provided recording data was malformed", e);
+        } catch (Exception e) {
+            ctx.status(500);
+            ctx.result("An error occurred while changing the camera's recording state");
+            logger.error("An error occurred while changing the camera's recording state", e);
+        }
+    }
+
     public static void onMetricsPublishRequest(Context ctx) {
         HardwareManager.getInstance().publishMetrics();
         ctx.status(204);
@@ -47,7 +47,9 @@ class UIOutboundSubscriber extends DataChangeSubscriber {
         if (event instanceof OutgoingUIEvent) {
             var thisEvent = (OutgoingUIEvent) event;
             try {
-                if (event.data instanceof HashMap) {
+                if (thisEvent.cameraIndex != null) {
+                    socketHandler.broadcastCameraMessage(event.data, thisEvent.cameraIndex);
+                } else if (event.data instanceof HashMap) {
                     var data = (HashMap) event.data;
                     socketHandler.broadcastMessage(data, thisEvent.originContext);
                 } else {
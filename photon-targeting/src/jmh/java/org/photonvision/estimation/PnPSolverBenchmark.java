@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) Photon Vision.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.photonvision.estimation;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.cscore.OpenCvLoader;
+import edu.wpi.first.math.MatBuilder;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.numbers.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.photonvision.targeting.PNPResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+
+/**
+ * Compares {@link VisionEstimation#estimateCamPosePNP} against a reused {@link PnPSolverContext}
+ * with 1 (IPPE_SQUARE) and several (SQPNP) tags in view.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PnPSolverBenchmark {
+    @Param({"1", "4", "8"})
+    public int tagCount;
+
+    private final Matrix<N3, N3> cameraMatrix =
+            MatBuilder.fill(Nat.N3(), Nat.N3(), 900, 0, 640, 0, 900, 400, 0, 0, 1);
+    private final Matrix<N8, N1> distCoeffs =
+            MatBuilder.fill(Nat.N8(), Nat.N1(), 0.05, -0.1, 0, 0, 0.02, 0, 0, 0);
+
+    private AprilTagFieldLayout layout;
+    private List<PhotonTrackedTarget> targets;
+    private PnPSolverContext context;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        OpenCvLoader.forceLoad();
+
+        layout = AprilTagFields.kDefaultField.loadAprilTagLayoutField();
+        context = new PnPSolverContext();
+
+        // Stand in the middle of the field looking down the field
+        var cameraPose = new Pose3d(8, 4, 0.5, new Rotation3d());
+        var camRt = RotTrlTransform3d.makeRelativeTo(cameraPose);
+
+        targets = new ArrayList<>();
+        for (var tag : layout.getTags()) {
+            if (targets.size() >= tagCount) break;
+            // Skip tags behind the camera
+            if (camRt.apply(tag.pose).getX() < 0.5) continue;
+            var vertices = TargetModel.kAprilTag36h11.getFieldVertices(tag.pose);
+            var points = OpenCVHelp.projectPoints(cameraMatrix, distCoeffs, camRt, vertices);
+            var corners = OpenCVHelp.pointsToCorners(points);
+            targets.add(
+                    new PhotonTrackedTarget(
+                            0, 0, 0, 0, tag.ID, -1, -1, new Transform3d(), new Transform3d(), 0, corners, corners));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.release();
+    }
+
+    @Benchmark
+    public PNPResult visionEstimation() {
+        return VisionEstimation.estimateCamPosePNP(
+                cameraMatrix, distCoeffs, targets, layout, TargetModel.kAprilTag36h11);
+    }
+
+    @Benchmark
+    public PNPResult solverContext() {
+        return context.estimateCamPose(
+                cameraMatrix, distCoeffs, targets, layout, TargetModel.kAprilTag36h11);
+    }
+}
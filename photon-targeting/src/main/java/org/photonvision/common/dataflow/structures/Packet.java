@@ -17,6 +17,8 @@
 
 package org.photonvision.common.dataflow.structures;
 
+import java.util.Arrays;
+
 /** A packet that holds byte-packed data to be sent over NetworkTables. */
 public class Packet {
     // Size of the packet.
@@ -48,7 +50,8 @@ public class Packet {
 
     /** Clears the packet and resets the read and write positions. */
     public void clear() {
-        packetData = new byte[size];
+        // Reuse our buffer, rather than allocating a new one every time we're cleared
+        Arrays.fill(packetData, (byte) 0);
         readPos = 0;
         writePos = 0;
     }
@@ -57,6 +60,29 @@ public class Packet {
         return size;
     }
 
+    /**
+     * Returns the number of bytes encoded into the packet so far. Only this many bytes at the start
+     * of {@link #getData()} are meaningful.
+     *
+     * @return The number of bytes written.
+     */
+    public int getNumBytesWritten() {
+        return writePos;
+    }
+
+    /**
+     * Grows the packet buffer, if needed, so that it can hold at least the given number of bytes.
+     * Anything already encoded is kept.
+     *
+     * @param minSize The minimum size of the packet buffer.
+     */
+    public void ensureCapacity(int minSize) {
+        if (minSize > size) {
+            packetData = Arrays.copyOf(packetData, minSize);
+            size = minSize;
+        }
+    }
+
     /**
      * Returns the packet data.
      *
@@ -67,13 +93,15 @@ public class Packet {
     }
 
     /**
-     * Sets the packet data.
+     * Sets the packet data, and resets the read and write positions to the start of it.
      *
      * @param data The packet data.
      */
     public void setData(byte[] data) {
         packetData = data;
         size = data.length;
+        readPos = 0;
+        writePos = 0;
     }
 
     /**
@@ -25,15 +25,20 @@ public class PacketPublisher<T> implements AutoCloseable {
     public final RawPublisher publisher;
     private final PacketSerde<T> serde;
 
+    // Reused for every publish; it only ever grows to fit the largest value we've sent
+    private final Packet packet = new Packet(1);
+
     public PacketPublisher(RawPublisher publisher, PacketSerde<T> serde) {
         this.publisher = publisher;
         this.serde = serde;
     }
 
-    public void set(T value, int byteSize) {
-        var packet = new Packet(byteSize);
+    public synchronized void set(T value, int byteSize) {
+        packet.ensureCapacity(byteSize);
+        packet.clear();
         serde.pack(packet, value);
-        publisher.set(packet.getData());
+        // Only send what we actually packed, not the whole (possibly oversized) buffer
+        publisher.set(packet.getData(), 0, packet.getNumBytesWritten());
     }
 
     public void set(T value) {
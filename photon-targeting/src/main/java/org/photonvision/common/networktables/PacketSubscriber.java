@@ -56,7 +56,7 @@ public class PacketSubscriber<T> implements AutoCloseable {
 
     /** Parse one chunk of timestamped data into T */
     private PacketResult<T> parse(byte[] data, long timestamp) {
-        packet.clear();
+        // No need to clear() first -- setData resets our read position
         packet.setData(data);
         if (packet.getSize() < 1) {
             return new PacketResult<T>();
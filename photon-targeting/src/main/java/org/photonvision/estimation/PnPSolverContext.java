@@ -0,0 +1,361 @@
+/*
+ * Copyright (C) Photon Vision.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.photonvision.estimation;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.numbers.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.opencv.calib3d.Calib3d;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.MatOfPoint3f;
+import org.opencv.core.Point3;
+import org.photonvision.targeting.PNPResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+
+/**
+ * Reusable state for estimating the camera's field pose from visible AprilTags. This gives the same
+ * results as {@link VisionEstimation#estimateCamPosePNP}, but keeps the camera intrinsics, the field
+ * corners of each tag in the layout, and all the OpenCV point buffers around between calls instead
+ * of rebuilding them every frame.
+ *
+ * <p>Intrinsics and the layout are re-checked on every call, so they may change at any time. This
+ * class is not thread safe; use one per camera. Call {@link #release()} when done with it to free
+ * native memory.
+ */
+public class PnPSolverContext {
+    // IPPE_SQUARE expects corners in a specific order, see OpenCVHelp.solvePNP_SQUARE
+    private static final int[] SQUARE_ORDER = {1, 0, 3, 2};
+
+    private static class CachedTag {
+        final Pose3d pose;
+        // Field-relative corners in EDN, {x0, y0, z0, x1, ...}
+        final float[] fieldCorners;
+
+        CachedTag(Pose3d pose, float[] fieldCorners) {
+            this.pose = pose;
+            this.fieldCorners = fieldCorners;
+        }
+    }
+
+    private final Mat cameraMatrixMat = new Mat(3, 3, CvType.CV_64F);
+    private final Mat distCoeffsMat = new Mat(8, 1, CvType.CV_64F);
+    private final double[] cachedCameraMatrix = new double[9];
+    private final double[] cachedDistCoeffs = new double[8];
+    private boolean hasIntrinsics = false;
+
+    private AprilTagFieldLayout cachedLayout;
+    private Pose3d cachedOrigin;
+    private TargetModel cachedModel;
+    private final Map<Integer, CachedTag> tagCache = new HashMap<>();
+    private float[] modelCorners;
+
+    private final MatOfPoint3f objectMat = new MatOfPoint3f();
+    private final MatOfPoint2f imageMat = new MatOfPoint2f();
+    private final Mat rvec = Mat.zeros(3, 1, CvType.CV_32F);
+    private final Mat tvec = Mat.zeros(3, 1, CvType.CV_32F);
+    private final Mat reprojectionError = new Mat();
+    private final List<Mat> rvecs = new ArrayList<>();
+    private final List<Mat> tvecs = new ArrayList<>();
+
+    private float[] objectBuffer = new float[0];
+    private float[] imageBuffer = new float[0];
+    private final float[] squareImageBuffer = new float[8];
+    private final float[] errors = new float[2];
+    private final List<Pose3d> knownTagPoses = new ArrayList<>();
+
+    /**
+     * Performs solvePNP using 3d-2d point correspondences of visible AprilTags to estimate the
+     * field-to-camera transformation. See {@link VisionEstimation#estimateCamPosePNP}.
+     *
+     * @param cameraMatrix The camera intrinsics matrix in standard opencv form
+     * @param distCoeffs The camera distortion matrix in standard opencv form
+     * @param visTags The visible tags reported by PV. Non-tag targets are automatically excluded.
+     * @param tagLayout The known tag layout on the field
+     * @param tagModel The model of each tag
+     * @return The transformation that maps the field origin to the camera pose. Ensure the {@link
+     *     PNPResult} are present before utilizing them.
+     */
+    public PNPResult estimateCamPose(
+            Matrix<N3, N3> cameraMatrix,
+            Matrix<N8, N1> distCoeffs,
+            List<PhotonTrackedTarget> visTags,
+            AprilTagFieldLayout tagLayout,
+            TargetModel tagModel) {
+        if (tagLayout == null
+                || visTags == null
+                || tagLayout.getTags().isEmpty()
+                || visTags.isEmpty()) {
+            return new PNPResult();
+        }
+
+        updateIntrinsics(cameraMatrix, distCoeffs);
+        updateLayout(tagLayout, tagModel);
+
+        int maxPoints = visTags.size() * 4;
+        if (objectBuffer.length < maxPoints * 3) {
+            objectBuffer = new float[maxPoints * 3];
+            imageBuffer = new float[maxPoints * 2];
+        }
+
+        // ensure these are AprilTags in our layout
+        knownTagPoses.clear();
+        int numPoints = 0;
+        for (var tgt : visTags) {
+            var tag = getTag(tgt.getFiducialId());
+            if (tag == null) continue;
+
+            var corners = tgt.getDetectedCorners();
+            if (corners.size() != 4) return new PNPResult();
+
+            System.arraycopy(tag.fieldCorners, 0, objectBuffer, numPoints * 3, 12);
+            for (int i = 0; i < 4; i++) {
+                imageBuffer[(numPoints + i) * 2] = (float) corners.get(i).x;
+                imageBuffer[(numPoints + i) * 2 + 1] = (float) corners.get(i).y;
+            }
+            knownTagPoses.add(tag.pose);
+            numPoints += 4;
+        }
+        if (knownTagPoses.isEmpty()) {
+            return new PNPResult();
+        }
+
+        // single-tag pnp
+        if (knownTagPoses.size() == 1) {
+            var camToTag = solveSquare();
+            if (!camToTag.isPresent) return new PNPResult();
+            var tagPose = knownTagPoses.get(0);
+            var bestPose = tagPose.transformBy(camToTag.best.inverse());
+            var altPose = new Pose3d();
+            if (camToTag.ambiguity != 0) altPose = tagPose.transformBy(camToTag.alt.inverse());
+
+            var o = new Pose3d();
+            return new PNPResult(
+                    new Transform3d(o, bestPose),
+                    new Transform3d(o, altPose),
+                    camToTag.ambiguity,
+                    camToTag.bestReprojErr,
+                    camToTag.altReprojErr);
+        }
+        // multi-tag pnp
+        else {
+            var camToOrigin = solveSQPNP(numPoints);
+            if (!camToOrigin.isPresent) return new PNPResult();
+            return new PNPResult(
+                    camToOrigin.best.inverse(),
+                    camToOrigin.alt.inverse(),
+                    camToOrigin.ambiguity,
+                    camToOrigin.bestReprojErr,
+                    camToOrigin.altReprojErr);
+        }
+    }
+
+    private void updateIntrinsics(Matrix<N3, N3> cameraMatrix, Matrix<N8, N1> distCoeffs) {
+        var cameraData = cameraMatrix.getData();
+        var distData = distCoeffs.getData();
+        if (hasIntrinsics
+                && Arrays.equals(cameraData, cachedCameraMatrix)
+                && Arrays.equals(distData, cachedDistCoeffs)) {
+            return;
+        }
+
+        System.arraycopy(cameraData, 0, cachedCameraMatrix, 0, 9);
+        System.arraycopy(distData, 0, cachedDistCoeffs, 0, 8);
+        cameraMatrixMat.put(0, 0, cachedCameraMatrix);
+        distCoeffsMat.put(0, 0, cachedDistCoeffs);
+        hasIntrinsics = true;
+    }
+
+    private void updateLayout(AprilTagFieldLayout tagLayout, TargetModel tagModel) {
+        // The origin can be changed in place, which moves every tag
+        if (tagLayout == cachedLayout
+                && tagModel == cachedModel
+                && tagLayout.getOrigin().equals(cachedOrigin)) {
+            return;
+        }
+
+        cachedLayout = tagLayout;
+        cachedModel = tagModel;
+        cachedOrigin = tagLayout.getOrigin();
+        tagCache.clear();
+
+        var reordered = OpenCVHelp.reorderCircular(tagModel.vertices, true, -1);
+        modelCorners = toEdnArray(reordered);
+    }
+
+    /** The cached layout entry for this ID, or null if it isn't in the layout. */
+    private CachedTag getTag(int id) {
+        if (tagCache.containsKey(id)) return tagCache.get(id);
+
+        var tag =
+                cachedLayout
+                        .getTagPose(id)
+                        .map(pose -> new CachedTag(pose, toEdnArray(cachedModel.getFieldVertices(pose))))
+                        .orElse(null);
+        tagCache.put(id, tag);
+        return tag;
+    }
+
+    private static float[] toEdnArray(List<Translation3d> translations) {
+        var mat = OpenCVHelp.translationToTvec(translations.toArray(new Translation3d[0]));
+        Point3[] points = mat.toArray();
+        mat.release();
+
+        var ret = new float[points.length * 3];
+        for (int i = 0; i < points.length; i++) {
+            ret[i * 3] = (float) points[i].x;
+            ret[i * 3 + 1] = (float) points[i].y;
+            ret[i * 3 + 2] = (float) points[i].z;
+        }
+        return ret;
+    }
+
+    private PNPResult solveSquare() {
+        for (int i = 0; i < 4; i++) {
+            squareImageBuffer[i * 2] = imageBuffer[SQUARE_ORDER[i] * 2];
+            squareImageBuffer[i * 2 + 1] = imageBuffer[SQUARE_ORDER[i] * 2 + 1];
+        }
+        setPoints(modelCorners, squareImageBuffer, 4);
+
+        try {
+            Transform3d best = null;
+            Transform3d alt = null;
+
+            for (int tries = 0; tries < 2; tries++) {
+                // calc rvecs/tvecs and associated reprojection error from image points
+                solve(Calib3d.SOLVEPNP_IPPE_SQUARE);
+
+                reprojectionError.get(0, 0, errors);
+                // convert to wpilib coordinates
+                best =
+                        new Transform3d(
+                                OpenCVHelp.tvecToTranslation(tvecs.get(0)),
+                                OpenCVHelp.rvecToRotation(rvecs.get(0)));
+
+                if (tvecs.size() > 1) {
+                    alt =
+                            new Transform3d(
+                                    OpenCVHelp.tvecToTranslation(tvecs.get(1)),
+                                    OpenCVHelp.rvecToRotation(rvecs.get(1)));
+                }
+
+                // check if we got a NaN result
+                if (!Double.isNaN(errors[0])) break;
+                else { // add noise and retry
+                    squareImageBuffer[0] -= 0.001f;
+                    squareImageBuffer[1] -= 0.001f;
+                    imageMat.put(0, 0, squareImageBuffer);
+                }
+            }
+
+            // check if solvePnP failed with NaN results and retrying failed
+            if (Double.isNaN(errors[0])) throw new Exception("SolvePNP_SQUARE NaN result");
+
+            if (alt != null) return new PNPResult(best, alt, errors[0] / errors[1], errors[0], errors[1]);
+            else return new PNPResult(best, errors[0]);
+        }
+        // solvePnP failed
+        catch (Exception e) {
+            System.err.println("SolvePNP_SQUARE failed!");
+            e.printStackTrace();
+            return new PNPResult();
+        } finally {
+            releaseSolutions();
+        }
+    }
+
+    private PNPResult solveSQPNP(int numPoints) {
+        setPoints(objectBuffer, imageBuffer, numPoints);
+
+        try {
+            // calc rvec/tvec from image points
+            solve(Calib3d.SOLVEPNP_SQPNP);
+
+            reprojectionError.get(0, 0, errors);
+            // convert to wpilib coordinates
+            var best =
+                    new Transform3d(
+                            OpenCVHelp.tvecToTranslation(tvecs.get(0)),
+                            OpenCVHelp.rvecToRotation(rvecs.get(0)));
+
+            // check if solvePnP failed with NaN results
+            if (Double.isNaN(errors[0])) throw new Exception("SolvePNP_SQPNP NaN result");
+
+            return new PNPResult(best, errors[0]);
+        } catch (Exception e) {
+            System.err.println("SolvePNP_SQPNP failed!");
+            e.printStackTrace();
+            return new PNPResult();
+        } finally {
+            releaseSolutions();
+        }
+    }
+
+    /** Resizes the point Mats if needed and fills them from the front of the given buffers. */
+    private void setPoints(float[] objectPoints, float[] imagePoints, int numPoints) {
+        if (objectMat.rows() != numPoints) objectMat.alloc(numPoints);
+        if (imageMat.rows() != numPoints) imageMat.alloc(numPoints);
+        // put() stops at the end of the Mat, so oversized buffers are fine
+        objectMat.put(0, 0, objectPoints);
+        imageMat.put(0, 0, imagePoints);
+    }
+
+    private void solve(int flags) {
+        releaseSolutions();
+        Calib3d.solvePnPGeneric(
+                objectMat,
+                imageMat,
+                cameraMatrixMat,
+                distCoeffsMat,
+                rvecs,
+                tvecs,
+                false,
+                flags,
+                rvec,
+                tvec,
+                reprojectionError);
+    }
+
+    private void releaseSolutions() {
+        for (var v : rvecs) v.release();
+        for (var v : tvecs) v.release();
+        rvecs.clear();
+        tvecs.clear();
+    }
+
+    /** Frees the native memory held by this context. It must not be used afterwards. */
+    public void release() {
+        releaseSolutions();
+        cameraMatrixMat.release();
+        distCoeffsMat.release();
+        objectMat.release();
+        imageMat.release();
+        rvec.release();
+        tvec.release();
+        reprojectionError.release();
+    }
+}
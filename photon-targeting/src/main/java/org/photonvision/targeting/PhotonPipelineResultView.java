@@ -0,0 +1,302 @@
+/*
+ * Copyright (C) Photon Vision.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.photonvision.targeting;
+
+import edu.wpi.first.math.geometry.Quaternion;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import org.photonvision.common.dataflow.structures.Packet;
+import org.photonvision.utils.PacketUtils;
+
+/**
+ * A read-only view over a packed {@link PhotonPipelineResult}, as sent over NetworkTables. Values
+ * are read straight out of the packet bytes when asked for, so looking at a result through a view
+ * doesn't build a PhotonPipelineResult/PhotonTrackedTarget object graph. A view can be re-pointed at
+ * new bytes with {@link #wrap(byte[])} as often as needed.
+ *
+ * <p>The layout read here must match {@link PhotonPipelineResult.APacketSerde}.
+ */
+public class PhotonPipelineResultView {
+    // Result header: sequence ID, capture and publish timestamps, then the target count
+    private static final int SEQUENCE_ID_OFFSET = 0;
+    private static final int CAPTURE_TIMESTAMP_OFFSET = SEQUENCE_ID_OFFSET + Long.BYTES;
+    private static final int PUBLISH_TIMESTAMP_OFFSET = CAPTURE_TIMESTAMP_OFFSET + Long.BYTES;
+    private static final int TARGET_COUNT_OFFSET = PUBLISH_TIMESTAMP_OFFSET + Long.BYTES;
+    private static final int HEADER_SIZE = TARGET_COUNT_OFFSET + 1;
+
+    // Offsets of each field, relative to the start of a target
+    private static final int YAW_OFFSET = 0;
+    private static final int PITCH_OFFSET = YAW_OFFSET + Double.BYTES;
+    private static final int AREA_OFFSET = PITCH_OFFSET + Double.BYTES;
+    private static final int SKEW_OFFSET = AREA_OFFSET + Double.BYTES;
+    private static final int FIDUCIAL_ID_OFFSET = SKEW_OFFSET + Double.BYTES;
+    private static final int CLASS_ID_OFFSET = FIDUCIAL_ID_OFFSET + Integer.BYTES;
+    private static final int CONFIDENCE_OFFSET = CLASS_ID_OFFSET + Integer.BYTES;
+    private static final int BEST_TRANSFORM_OFFSET = CONFIDENCE_OFFSET + Float.BYTES;
+    private static final int ALT_TRANSFORM_OFFSET =
+            BEST_TRANSFORM_OFFSET + PacketUtils.TRANSFORM3D_BYTE_SIZE;
+    private static final int AMBIGUITY_OFFSET = ALT_TRANSFORM_OFFSET + PacketUtils.TRANSFORM3D_BYTE_SIZE;
+    private static final int MIN_AREA_RECT_CORNERS_OFFSET = AMBIGUITY_OFFSET + Double.BYTES;
+    private static final int CORNER_SIZE = Double.BYTES * 2;
+    private static final int DETECTED_CORNER_COUNT_OFFSET =
+            MIN_AREA_RECT_CORNERS_OFFSET + 4 * CORNER_SIZE;
+    private static final int DETECTED_CORNERS_OFFSET = DETECTED_CORNER_COUNT_OFFSET + 1;
+
+    // Offsets relative to the start of the multi-target result
+    private static final int MULTITAG_PRESENT_OFFSET = 0;
+    private static final int MULTITAG_BEST_OFFSET = MULTITAG_PRESENT_OFFSET + 1;
+    private static final int MULTITAG_BEST_ERROR_OFFSET =
+            MULTITAG_BEST_OFFSET + 2 * PacketUtils.TRANSFORM3D_BYTE_SIZE;
+    private static final int MULTITAG_PNP_SIZE = MULTITAG_BEST_ERROR_OFFSET + 3 * Double.BYTES;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(0);
+    private int[] targetOffsets = new int[8];
+    private int targetCount = 0;
+    private int multiTagOffset = -1;
+    private long ntRecieveTimestampMicros;
+
+    /** Constructs an empty view, with no targets. */
+    public PhotonPipelineResultView() {}
+
+    /**
+     * Point this view at a new packed pipeline result. The bytes are not copied, so they must not be
+     * modified while this view is in use.
+     *
+     * @param data The packed result
+     * @return Whether the data held a complete result. If not, the view is left empty.
+     */
+    public boolean wrap(byte[] data) {
+        clear();
+        if (data.length < HEADER_SIZE) return false;
+
+        // Same signed byte that APacketSerde reads
+        int count = data[TARGET_COUNT_OFFSET];
+        if (count < 0) return false;
+        if (targetOffsets.length < count) targetOffsets = Arrays.copyOf(targetOffsets, count);
+
+        // Targets are variable length (they carry however many corners were detected), so walk
+        // them once to find where each one starts
+        int offset = HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            if (offset + DETECTED_CORNERS_OFFSET > data.length) return false;
+            targetOffsets[i] = offset;
+
+            int cornerCount = data[offset + DETECTED_CORNER_COUNT_OFFSET];
+            if (cornerCount < 0) return false;
+            offset += DETECTED_CORNERS_OFFSET + cornerCount * CORNER_SIZE;
+        }
+        if (offset > data.length) return false;
+
+        buffer = ByteBuffer.wrap(data);
+        targetCount = count;
+        multiTagOffset = offset < data.length ? offset : -1;
+        return true;
+    }
+
+    /** Empty this view, so that it has no targets. */
+    public void clear() {
+        buffer = ByteBuffer.allocate(0);
+        targetCount = 0;
+        multiTagOffset = -1;
+        ntRecieveTimestampMicros = 0;
+    }
+
+    /** Sets the FPGA timestamp this result was recieved by robot code */
+    public void setRecieveTimestampMicros(long timestampMicros) {
+        this.ntRecieveTimestampMicros = timestampMicros;
+    }
+
+    /** The time that the robot recieved this result, in the FPGA timebase. */
+    public long getNtRecieveTimestampMicros() {
+        return ntRecieveTimestampMicros;
+    }
+
+    /**
+     * The number of non-empty frames processed by this camera since boot, or -1 if this view is
+     * empty.
+     */
+    public long getSequenceID() {
+        return buffer.capacity() == 0 ? -1 : buffer.getLong(SEQUENCE_ID_OFFSET);
+    }
+
+    /** The time that this image was captured, in the coprocessor's time base. */
+    public long getCaptureTimestampMicros() {
+        return buffer.capacity() == 0 ? -1 : buffer.getLong(CAPTURE_TIMESTAMP_OFFSET);
+    }
+
+    /** The time that this result was published to NT, in the coprocessor's time base. */
+    public long getPublishTimestampMicros() {
+        return buffer.capacity() == 0 ? -1 : buffer.getLong(PUBLISH_TIMESTAMP_OFFSET);
+    }
+
+    /** Returns the time between image capture and publish to NT */
+    public double getLatencyMillis() {
+        return (getPublishTimestampMicros() - getCaptureTimestampMicros()) / 1e3;
+    }
+
+    /**
+     * Returns the estimated time the frame was taken, in the recieved system's time base. See {@link
+     * PhotonPipelineResult#getTimestampSeconds()}.
+     *
+     * @return The timestamp in seconds
+     */
+    public double getTimestampSeconds() {
+        return (ntRecieveTimestampMicros - (getPublishTimestampMicros() - getCaptureTimestampMicros()))
+                / 1e6;
+    }
+
+    public boolean hasTargets() {
+        return targetCount > 0;
+    }
+
+    /** The number of targets in this result. Targets are indexed from 0, best target first. */
+    public int getTargetCount() {
+        return targetCount;
+    }
+
+    public double getYaw(int targetIndex) {
+        return buffer.getDouble(targetOffset(targetIndex) + YAW_OFFSET);
+    }
+
+    public double getPitch(int targetIndex) {
+        return buffer.getDouble(targetOffset(targetIndex) + PITCH_OFFSET);
+    }
+
+    public double getArea(int targetIndex) {
+        return buffer.getDouble(targetOffset(targetIndex) + AREA_OFFSET);
+    }
+
+    public double getSkew(int targetIndex) {
+        return buffer.getDouble(targetOffset(targetIndex) + SKEW_OFFSET);
+    }
+
+    /** Get the fiducial ID of a target, or -1 if not set. */
+    public int getFiducialId(int targetIndex) {
+        return buffer.getInt(targetOffset(targetIndex) + FIDUCIAL_ID_OFFSET);
+    }
+
+    /** Get the object detection class ID number of a target, or -1 if not set. */
+    public int getDetectedObjectClassID(int targetIndex) {
+        return buffer.getInt(targetOffset(targetIndex) + CLASS_ID_OFFSET);
+    }
+
+    /** Get the object detection confidence of a target, or -1 if not set. */
+    public float getDetectedObjectConfidence(int targetIndex) {
+        return buffer.getFloat(targetOffset(targetIndex) + CONFIDENCE_OFFSET);
+    }
+
+    /** Get the pose ambiguity of a target. See {@link PhotonTrackedTarget#getPoseAmbiguity()}. */
+    public double getPoseAmbiguity(int targetIndex) {
+        return buffer.getDouble(targetOffset(targetIndex) + AMBIGUITY_OFFSET);
+    }
+
+    /**
+     * Get the camera to target transform with the lowest reprojection error. This allocates a new
+     * Transform3d.
+     */
+    public Transform3d getBestCameraToTarget(int targetIndex) {
+        return getTransform3d(targetOffset(targetIndex) + BEST_TRANSFORM_OFFSET);
+    }
+
+    /**
+     * Get the camera to target transform with the highest reprojection error. This allocates a new
+     * Transform3d.
+     */
+    public Transform3d getAlternateCameraToTarget(int targetIndex) {
+        return getTransform3d(targetOffset(targetIndex) + ALT_TRANSFORM_OFFSET);
+    }
+
+    /** The number of corners detected for a target. */
+    public int getDetectedCornerCount(int targetIndex) {
+        return buffer.get(targetOffset(targetIndex) + DETECTED_CORNER_COUNT_OFFSET);
+    }
+
+    /** The x coordinate, in pixels, of one of a target's detected corners. */
+    public double getDetectedCornerX(int targetIndex, int cornerIndex) {
+        return buffer.getDouble(detectedCornerOffset(targetIndex, cornerIndex));
+    }
+
+    /** The y coordinate, in pixels, of one of a target's detected corners. */
+    public double getDetectedCornerY(int targetIndex, int cornerIndex) {
+        return buffer.getDouble(detectedCornerOffset(targetIndex, cornerIndex) + Double.BYTES);
+    }
+
+    /** Whether this result has a valid multi-target PNP estimate. */
+    public boolean hasMultiTagResult() {
+        return multiTagOffset >= 0
+                && multiTagOffset + MULTITAG_PNP_SIZE <= buffer.capacity()
+                && buffer.get(multiTagOffset + MULTITAG_PRESENT_OFFSET) == 1;
+    }
+
+    /**
+     * The best multi-target PNP estimate (field to camera). Check {@link #hasMultiTagResult()} first.
+     * This allocates a new Transform3d.
+     */
+    public Transform3d getMultiTagBestTransform() {
+        return hasMultiTagResult()
+                ? getTransform3d(multiTagOffset + MULTITAG_BEST_OFFSET)
+                : new Transform3d();
+    }
+
+    /** The reprojection error of the best multi-target PNP estimate, in pixels. */
+    public double getMultiTagBestReprojectionError() {
+        return hasMultiTagResult() ? buffer.getDouble(multiTagOffset + MULTITAG_BEST_ERROR_OFFSET) : 0;
+    }
+
+    /**
+     * Build a full PhotonPipelineResult from the bytes this view points at, for when the whole object
+     * graph really is needed.
+     */
+    public PhotonPipelineResult toPipelineResult() {
+        if (buffer.capacity() == 0) return new PhotonPipelineResult();
+
+        var result = PhotonPipelineResult.serde.unpack(new Packet(buffer.array()));
+        result.setRecieveTimestampMicros(ntRecieveTimestampMicros);
+        return result;
+    }
+
+    private int targetOffset(int targetIndex) {
+        return targetOffsets[Objects.checkIndex(targetIndex, targetCount)];
+    }
+
+    private int detectedCornerOffset(int targetIndex, int cornerIndex) {
+        Objects.checkIndex(cornerIndex, getDetectedCornerCount(targetIndex));
+        return targetOffset(targetIndex) + DETECTED_CORNERS_OFFSET + cornerIndex * CORNER_SIZE;
+    }
+
+    // Matches PacketUtils.packTransform3d: translation xyz, then quaternion wxyz
+    private Transform3d getTransform3d(int offset) {
+        var translation =
+                new Translation3d(
+                        buffer.getDouble(offset),
+                        buffer.getDouble(offset + Double.BYTES),
+                        buffer.getDouble(offset + 2 * Double.BYTES));
+        var rotation =
+                new Rotation3d(
+                        new Quaternion(
+                                buffer.getDouble(offset + 3 * Double.BYTES),
+                                buffer.getDouble(offset + 4 * Double.BYTES),
+                                buffer.getDouble(offset + 5 * Double.BYTES),
+                                buffer.getDouble(offset + 6 * Double.BYTES)));
+        return new Transform3d(translation, rotation);
+    }
+}
@@ -18,14 +18,18 @@
 package org.photonvision;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import edu.wpi.first.math.geometry.*;
+import java.util.Arrays;
 import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.photonvision.common.dataflow.structures.Packet;
 import org.photonvision.targeting.MultiTargetPNPResult;
 import org.photonvision.targeting.PNPResult;
 import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonPipelineResultView;
 import org.photonvision.targeting.PhotonTrackedTarget;
 import org.photonvision.targeting.TargetCorner;
 import org.photonvision.utils.PacketUtils;
@@ -354,4 +358,102 @@ class PacketTest {
                                         new Transform3d(new Translation3d(1, 2, 3), new Rotation3d(1, 2, 3)), 0.1),
                                 List.of(1, 2, 3)));
     }
+
+    @Test
+    void pipelineResultView() {
+        var result =
+                new PhotonPipelineResult(
+                        3,
+                        4,
+                        5,
+                        List.of(
+                                new PhotonTrackedTarget(
+                                        3.0,
+                                        -4.0,
+                                        9.0,
+                                        4.0,
+                                        2,
+                                        -1,
+                                        -1f,
+                                        new Transform3d(new Translation3d(1, 2, 3), new Rotation3d(1, 2, 3)),
+                                        new Transform3d(new Translation3d(3, 2, 1), new Rotation3d(3, 2, 1)),
+                                        0.25,
+                                        List.of(
+                                                new TargetCorner(1, 2),
+                                                new TargetCorner(3, 4),
+                                                new TargetCorner(5, 6),
+                                                new TargetCorner(7, 8)),
+                                        List.of(new TargetCorner(1, 2), new TargetCorner(3, 4))),
+                                new PhotonTrackedTarget(
+                                        3.0,
+                                        -4.0,
+                                        9.1,
+                                        6.7,
+                                        3,
+                                        -1,
+                                        -1f,
+                                        new Transform3d(new Translation3d(4, 2, 3), new Rotation3d(1, 5, 3)),
+                                        new Transform3d(new Translation3d(4, 2, 3), new Rotation3d(1, 5, 3)),
+                                        0.5,
+                                        List.of(
+                                                new TargetCorner(1, 2),
+                                                new TargetCorner(3, 4),
+                                                new TargetCorner(5, 6),
+                                                new TargetCorner(7, 8)),
+                                        List.of(
+                                                new TargetCorner(1, 2),
+                                                new TargetCorner(3, 4),
+                                                new TargetCorner(5, 6),
+                                                new TargetCorner(7, 8)))),
+                        new MultiTargetPNPResult(
+                                new PNPResult(
+                                        new Transform3d(new Translation3d(1, 2, 3), new Rotation3d(1, 2, 3)), 0.1),
+                                List.of(2, 3)));
+
+        // Pack into a reused, oversized packet the same way PacketPublisher does
+        var packet = new Packet(1);
+        packet.ensureCapacity(result.getPacketSize() * 2);
+        packet.clear();
+        PhotonPipelineResult.serde.pack(packet, result);
+        var data = Arrays.copyOf(packet.getData(), packet.getNumBytesWritten());
+
+        var view = new PhotonPipelineResultView();
+        assertTrue(view.wrap(data));
+        view.setRecieveTimestampMicros(100);
+        var unpacked = PhotonPipelineResult.serde.unpack(new Packet(data));
+        unpacked.setRecieveTimestampMicros(100);
+
+        assertEquals(unpacked.getSequenceID(), view.getSequenceID());
+        assertEquals(unpacked.getCaptureTimestampMicros(), view.getCaptureTimestampMicros());
+        assertEquals(unpacked.getPublishTimestampMicros(), view.getPublishTimestampMicros());
+        assertEquals(unpacked.getTimestampSeconds(), view.getTimestampSeconds());
+        assertEquals(unpacked.getTargets().size(), view.getTargetCount());
+        for (int i = 0; i < view.getTargetCount(); i++) {
+            var target = unpacked.getTargets().get(i);
+            assertEquals(target.getYaw(), view.getYaw(i));
+            assertEquals(target.getPitch(), view.getPitch(i));
+            assertEquals(target.getArea(), view.getArea(i));
+            assertEquals(target.getSkew(), view.getSkew(i));
+            assertEquals(target.getFiducialId(), view.getFiducialId(i));
+            assertEquals(target.getPoseAmbiguity(), view.getPoseAmbiguity(i));
+            assertEquals(target.getBestCameraToTarget(), view.getBestCameraToTarget(i));
+            assertEquals(target.getAlternateCameraToTarget(), view.getAlternateCameraToTarget(i));
+            assertEquals(target.getDetectedCorners().size(), view.getDetectedCornerCount(i));
+            for (int j = 0; j < view.getDetectedCornerCount(i); j++) {
+                assertEquals(target.getDetectedCorners().get(j).x, view.getDetectedCornerX(i, j));
+                assertEquals(target.getDetectedCorners().get(j).y, view.getDetectedCornerY(i, j));
+            }
+        }
+        assertTrue(view.hasMultiTagResult());
+        assertEquals(
+                unpacked.getMultiTagResult().estimatedPose.best, view.getMultiTagBestTransform());
+        assertEquals(
+                unpacked.getMultiTagResult().estimatedPose.bestReprojErr,
+                view.getMultiTagBestReprojectionError());
+        assertEquals(unpacked, view.toPipelineResult());
+
+        // Truncated data shouldn't be readable
+        assertFalse(view.wrap(Arrays.copyOf(data, 40)));
+        assertEquals(0, view.getTargetCount());
+    }
 }